@@ -0,0 +1,209 @@
+package com.squashtrainingapp.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.squashtrainingapp.database.archive.RecordArchive;
+import com.squashtrainingapp.database.dao.RecordDao;
+import com.squashtrainingapp.database.dao.SearchDao;
+import com.squashtrainingapp.database.mapping.RecordRowMapper;
+import com.squashtrainingapp.database.mapping.RowMapper;
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.utils.Timestamps;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * On-device microbenchmarks for the data layer, built into debug builds only. Each run builds
+ * a throwaway in-memory database, so it never touches user data. Call off the main thread and
+ * read the results from logcat (tag "DatabaseBenchmark").
+ */
+public final class DatabaseBenchmark {
+    private static final String TAG = "DatabaseBenchmark";
+    private static final int DEFAULT_ROWS = 100_000;
+    private static final int ROUNDS = 3;
+
+    private DatabaseBenchmark() {}
+
+    public static String runRecordDecode() {
+        return runRecordDecode(DEFAULT_ROWS);
+    }
+
+    // Decode throughput for records: per-row getColumnIndex over SELECT * versus row mappers
+    public static String runRecordDecode(int rows) {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            DatabaseHelper.createSchema(db);
+            new RecordDao(db).insertAll(generateRecords(rows));
+
+            // Warm up the page cache and JIT before timing
+            decodeLegacy(db);
+            decodeMapped(db, RecordRowMapper.FULL_PROJECTION);
+
+            long legacy = Long.MAX_VALUE;
+            long mapped = Long.MAX_VALUE;
+            long summary = Long.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i++) {
+                legacy = Math.min(legacy, decodeLegacy(db));
+                mapped = Math.min(mapped, decodeMapped(db, RecordRowMapper.FULL_PROJECTION));
+                summary = Math.min(summary, decodeMapped(db, RecordRowMapper.SUMMARY_PROJECTION));
+            }
+
+            String result = String.format(Locale.US,
+                    "Record decode, ms per 100k rows (best of %d, %d rows): " +
+                    "SELECT * + getColumnIndex per row=%.1f, row mapper=%.1f, summary projection=%.1f",
+                    ROUNDS, rows, per100k(legacy, rows), per100k(mapped, rows), per100k(summary, rows));
+            Log.i(TAG, result);
+            return result;
+        } finally {
+            db.close();
+        }
+    }
+
+    public static String runRecordSort() {
+        return runRecordSort(DEFAULT_ROWS);
+    }
+    
+    // Sorting history by date: the old String date parsed with a new SimpleDateFormat on every
+    // compare, versus the typed epoch millis parsed once at decode
+    public static String runRecordSort(int rows) {
+        List<Record> records = generateRecords(rows);
+        Collections.shuffle(records, new Random(42));
+        List<String> dates = new ArrayList<>(rows);
+        for (Record record : records) {
+            dates.add(record.getDate());
+        }
+        
+        // Parse-per-compare is slow enough that one round is representative
+        List<String> legacyRows = new ArrayList<>(dates);
+        long start = SystemClock.elapsedRealtimeNanos();
+        Collections.sort(legacyRows, (a, b) -> Long.compare(legacyTimestamp(b), legacyTimestamp(a)));
+        long legacy = SystemClock.elapsedRealtimeNanos() - start;
+        
+        long parse = Long.MAX_VALUE;
+        long typed = Long.MAX_VALUE;
+        TimeZone zone = TimeZone.getDefault();
+        for (int i = 0; i < ROUNDS; i++) {
+            start = SystemClock.elapsedRealtimeNanos();
+            for (String date : dates) {
+                Timestamps.parse(date, zone);
+            }
+            parse = Math.min(parse, SystemClock.elapsedRealtimeNanos() - start);
+            
+            List<Record> typedRows = new ArrayList<>(records);
+            start = SystemClock.elapsedRealtimeNanos();
+            Collections.sort(typedRows, RecordArchive.NEWEST_FIRST);
+            typed = Math.min(typed, SystemClock.elapsedRealtimeNanos() - start);
+        }
+        
+        String result = String.format(Locale.US,
+                "Record sort, ms (%d rows): SimpleDateFormat per compare=%.1f, " +
+                "typed millis (best of %d)=%.1f, plus parsing every date once=%.1f",
+                rows, legacy / 1_000_000.0, ROUNDS, typed / 1_000_000.0, parse / 1_000_000.0);
+        Log.i(TAG, result);
+        return result;
+    }
+    
+    // Record.getDateAsTimestamp() before dates were typed
+    private static long legacyTimestamp(String date) {
+        try {
+            Date parsed = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).parse(date);
+            return parsed != null ? parsed.getTime() : System.currentTimeMillis();
+        } catch (ParseException e) {
+            return System.currentTimeMillis();
+        }
+    }
+    
+    public static String runSearch() {
+        return runSearch(DEFAULT_ROWS);
+    }
+    
+    // Latency of ranked prefix search over a large history, for English and Hangul queries
+    public static String runSearch(int rows) {
+        String[] queries = {"drive", "dr", "memo 4242", "백핸드", "연습 드라"};
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            DatabaseHelper.createSchema(db);
+            new RecordDao(db).insertAll(generateRecords(rows));
+            SearchDao searchDao = new SearchDao(db);
+            
+            StringBuilder result = new StringBuilder(String.format(Locale.US,
+                    "Search, ms per query (best of %d, %d rows):", ROUNDS, rows));
+            for (String query : queries) {
+                searchDao.search(query, 20);
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < ROUNDS; i++) {
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    searchDao.search(query, 20);
+                    best = Math.min(best, SystemClock.elapsedRealtimeNanos() - start);
+                }
+                result.append(String.format(Locale.US, " \"%s\"=%.1f", query, best / 1_000_000.0));
+            }
+            Log.i(TAG, result.toString());
+            return result.toString();
+        } finally {
+            db.close();
+        }
+    }
+    
+    static List<Record> generateRecords(int rows) {
+        String[] names = {"Straight Drives", "Drop Shot Drill", "Volley Practice", "Serve Returns",
+                "Boast Practice", "Ghosting", "Practice Match", "백핸드 드라이브 연습", "포핸드 발리"};
+        long now = System.currentTimeMillis();
+        List<Record> records = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Record record = new Record(names[i % names.length], 3, 10, 20 + i % 40,
+                    i % 10 + 1, i % 10 + 1, i % 10 + 1, i % 5 == 0 ? "memo " + i : null);
+            // Spread rows over roughly five years, a few per day
+            record.setDateMillis(now - (long) i * 30 * 60 * 1000L);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static double per100k(long nanos, int rows) {
+        return nanos / 1_000_000.0 * 100_000 / rows;
+    }
+
+    // The decode path RecordDao used before row mappers existed. Records then held the date as
+    // the stored text, unparsed; it is kept beside each record here, as Record no longer has it.
+    private static long decodeLegacy(SQLiteDatabase db) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        Cursor cursor = db.rawQuery("SELECT * FROM " + DatabaseContract.TABLE_RECORDS, null);
+        List<Record> records = new ArrayList<>();
+        List<String> dates = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            Record record = new Record();
+            record.setId(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_ID)));
+            record.setExerciseName(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_EXERCISE)));
+            record.setSets(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_SETS)));
+            record.setReps(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_REPS)));
+            record.setDuration(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DURATION)));
+            record.setIntensity(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_INTENSITY)));
+            record.setCondition(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_CONDITION)));
+            record.setFatigue(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_FATIGUE)));
+            record.setMemo(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_MEMO)));
+            dates.add(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DATE)));
+            records.add(record);
+        }
+        cursor.close();
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static long decodeMapped(SQLiteDatabase db, String[] projection) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        Cursor cursor = db.query(DatabaseContract.TABLE_RECORDS, projection, null, null, null, null, null);
+        RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+}
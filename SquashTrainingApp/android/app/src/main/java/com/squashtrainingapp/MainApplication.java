@@ -6,6 +6,9 @@ import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 
+import com.squashtrainingapp.database.BackupWorker;
+import com.squashtrainingapp.database.archive.ArchiveWorker;
+
 import java.util.Locale;
 
 public class MainApplication extends Application {
@@ -16,6 +19,10 @@ public class MainApplication extends Application {
         
         // Apply saved language preference
         applyLanguagePreference();
+        
+        // Keep the records table to the last year; older rows move to the archive files
+        ArchiveWorker.schedule(this);
+        BackupWorker.schedule(this);
     }
     
     @Override
@@ -21,7 +21,7 @@ import com.squashtrainingapp.ai.ExtendedVoiceCommands;
 import com.squashtrainingapp.ai.ImprovedVoiceRecognitionManager;
 import com.squashtrainingapp.ai.PersonalizedCoachingEngine;
 import com.squashtrainingapp.ai.SmartRecommendationEngine;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.CoachingAdvice;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.WorkoutRecommendation;
@@ -52,8 +52,8 @@ public class SimpleMainActivity extends AppCompatActivity implements
     private TextView levelText;
     
     // Database
-    private DatabaseHelper databaseHelper;
-    private User currentUser;
+    private TrainingRepository repository;
+    private User currentUser = new User();
     
     // AI components
     private ImprovedVoiceRecognitionManager voiceManager;
@@ -87,7 +87,7 @@ public class SimpleMainActivity extends AppCompatActivity implements
         setContentView(R.layout.activity_simple_main);
         
         // Initialize database
-        databaseHelper = DatabaseHelper.getInstance(this);
+        repository = TrainingRepository.getInstance(this);
         
         // Initialize AI components
         initializeAIComponents();
@@ -190,13 +190,16 @@ public class SimpleMainActivity extends AppCompatActivity implements
     }
     
     private void loadUserStats() {
-        // Load user data from database
-        currentUser = databaseHelper.getUserDao().getUser();
-        
-        // Update UI
-        streakCountText.setText(String.valueOf(currentUser.getCurrentStreak()));
-        sessionsCountText.setText(String.valueOf(currentUser.getTotalSessions()));
-        levelText.setText(String.valueOf(currentUser.getLevel()));
+        // Follow the stored user; saved workouts push updates here without a reload
+        repository.observeUser().observe(this, user -> {
+            if (user == null) return;
+            currentUser = user;
+            
+            // Update UI
+            streakCountText.setText(String.valueOf(currentUser.getCurrentStreak()));
+            sessionsCountText.setText(String.valueOf(currentUser.getTotalSessions()));
+            levelText.setText(String.valueOf(currentUser.getLevel()));
+        });
     }
     
     private void initializeAIComponents() {
@@ -276,8 +279,8 @@ public class SimpleMainActivity extends AppCompatActivity implements
     @Override
     protected void onResume() {
         super.onResume();
-        // Refresh stats when returning to main screen
-        loadUserStats();
+        // The streak counts back from today, so reload the stats if the day changed
+        repository.refreshUserIfDayChanged();
         // Update coaching advice
         showPersonalizedCoaching();
     }
@@ -3,7 +3,7 @@ package com.squashtrainingapp.ai;
 import android.content.Context;
 import android.util.Log;
 
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.CoachingAdvice;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.WorkoutRecommendation;
@@ -21,8 +21,8 @@ public class AdvancedAIResponseEngine {
     private PersonalizedCoachingEngine coachingEngine;
     private SmartRecommendationEngine recommendationEngine;
     private ConversationContext conversationContext;
-    private DatabaseHelper dbHelper;
-    private User currentUser;
+    // Defaults until the stored user has loaded
+    private volatile User currentUser = new User();
     
     // Conversation states
     private static final String STATE_GREETING = "greeting";
@@ -84,8 +84,7 @@ public class AdvancedAIResponseEngine {
         this.coachingEngine = new PersonalizedCoachingEngine(context);
         this.recommendationEngine = new SmartRecommendationEngine(context);
         this.conversationContext = new ConversationContext();
-        this.dbHelper = DatabaseHelper.getInstance(context);
-        this.currentUser = dbHelper.getUserDao().getUser();
+        TrainingRepository.getInstance(context).getUser().thenAccept(user -> currentUser = user);
     }
     
     public String generateContextualResponse(String userInput) {
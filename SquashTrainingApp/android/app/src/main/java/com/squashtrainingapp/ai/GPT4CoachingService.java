@@ -3,7 +3,8 @@ package com.squashtrainingapp.ai;
 import android.content.Context;
 import android.util.Log;
 
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.DatabaseExecutor;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.WorkoutSession;
 
@@ -32,7 +33,7 @@ public class GPT4CoachingService {
     private Context context;
     private OkHttpClient client;
     private String apiKey;
-    private DatabaseHelper databaseHelper;
+    private TrainingRepository repository;
     
     // Coaching modes
     public enum CoachingMode {
@@ -52,7 +53,7 @@ public class GPT4CoachingService {
     
     public GPT4CoachingService(Context context) {
         this.context = context;
-        this.databaseHelper = DatabaseHelper.getInstance(context);
+        this.repository = TrainingRepository.getInstance(context);
         
         // Initialize OkHttp client with timeout settings
         this.client = new OkHttpClient.Builder()
@@ -74,16 +75,18 @@ public class GPT4CoachingService {
     
     // Get tactical advice based on user's skill level and goals
     public void getTacticalAdvice(String userQuery, GPT4Callback callback) {
-        User user = databaseHelper.getUserDao().getUser();
-        String prompt = buildTacticalPrompt(user, userQuery);
-        sendGPT4Request(prompt, CoachingMode.TACTICAL_ADVICE, callback);
+        repository.getUser().thenAcceptAsync(user -> {
+            String prompt = buildTacticalPrompt(user, userQuery);
+            sendGPT4Request(prompt, CoachingMode.TACTICAL_ADVICE, callback);
+        }, DatabaseExecutor.mainThread());
     }
     
     // Create personalized fitness plan
     public void createFitnessPlan(int weeklyFrequency, String primaryGoal, GPT4Callback callback) {
-        User user = databaseHelper.getUserDao().getUser();
-        String prompt = buildFitnessPlanPrompt(user, weeklyFrequency, primaryGoal);
-        sendGPT4Request(prompt, CoachingMode.FITNESS_PLANNING, callback);
+        repository.getUser().thenAcceptAsync(user -> {
+            String prompt = buildFitnessPlanPrompt(user, weeklyFrequency, primaryGoal);
+            sendGPT4Request(prompt, CoachingMode.FITNESS_PLANNING, callback);
+        }, DatabaseExecutor.mainThread());
     }
     
     // Get mental coaching advice
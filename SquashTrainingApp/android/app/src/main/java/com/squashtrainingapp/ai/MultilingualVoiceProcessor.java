@@ -4,6 +4,7 @@ import android.content.Context;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -100,6 +101,11 @@ public class MultilingualVoiceProcessor {
         EXERCISE_TERM_MAPPING.put("근력", "strength");
     }
     
+    // Korean term to English, for callers that need to recognize the same vocabulary
+    public static Map<String, String> getExerciseTermMapping() {
+        return Collections.unmodifiableMap(EXERCISE_TERM_MAPPING);
+    }
+    
     // Language detection
     public enum DetectedLanguage {
         KOREAN,
@@ -3,7 +3,7 @@ package com.squashtrainingapp.ai;
 import android.content.Context;
 import android.util.Log;
 
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.CoachingAdvice;
 import com.squashtrainingapp.models.User;
 
@@ -17,8 +17,8 @@ public class PersonalizedCoachingEngine {
     private static final String TAG = "PersonalizedCoaching";
     
     private Context context;
-    private DatabaseHelper dbHelper;
-    private User currentUser;
+    // Defaults until the stored user has loaded
+    private volatile User currentUser = new User();
     private SmartRecommendationEngine recommendationEngine;
     
     // Coaching types
@@ -35,8 +35,7 @@ public class PersonalizedCoachingEngine {
     
     public PersonalizedCoachingEngine(Context context) {
         this.context = context;
-        this.dbHelper = DatabaseHelper.getInstance(context);
-        this.currentUser = dbHelper.getUserDao().getUser();
+        TrainingRepository.getInstance(context).getUser().thenAccept(user -> currentUser = user);
         this.recommendationEngine = new SmartRecommendationEngine(context);
     }
     
@@ -3,9 +3,11 @@ package com.squashtrainingapp.ai;
 import android.content.Context;
 import android.util.Log;
 
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.analytics.DailySeries;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.WorkoutRecommendation;
+import com.squashtrainingapp.utils.EpochDay;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -21,8 +23,10 @@ public class SmartRecommendationEngine {
     private static final String TAG = "SmartRecommendation";
     
     private Context context;
-    private DatabaseHelper dbHelper;
-    private User currentUser;
+    // Defaults until the stored user has loaded
+    private volatile User currentUser = new User();
+    // Last RECENT_DAYS of workouts from the daily rollup; null until loaded
+    private volatile DailySeries recentDays;
     
     // Recommendation parameters
     private static final int BEGINNER_LEVEL = 1;
@@ -43,10 +47,16 @@ public class SmartRecommendationEngine {
     private static final double RECENT_WEIGHT = 0.15;
     private static final double PREFERENCE_WEIGHT = 0.15;
     
+    // Recent history window and the weekly-mean fatigue that calls for a recovery day
+    private static final int RECENT_DAYS = 28;
+    private static final float HIGH_FATIGUE = 7f;
+    
     public SmartRecommendationEngine(Context context) {
         this.context = context;
-        this.dbHelper = DatabaseHelper.getInstance(context);
-        this.currentUser = dbHelper.getUserDao().getUser();
+        TrainingRepository repository = TrainingRepository.getInstance(context);
+        repository.getUser().thenAccept(user -> currentUser = user);
+        int today = EpochDay.today();
+        repository.getDailySeries(today - RECENT_DAYS + 1, today).thenAccept(days -> recentDays = days);
     }
     
     public List<WorkoutRecommendation> getPersonalizedRecommendations() {
@@ -101,8 +111,15 @@ public class SmartRecommendationEngine {
         // Find weakest areas
         profile.weakestAreas = findWeakestAreas(typePerformance);
         
-        // Calculate workout frequency (mock)
-        profile.workoutFrequency = 3.5;
+        // Sessions per week and fatigue over the last week, from the daily rollup
+        DailySeries days = recentDays;
+        if (days != null) {
+            int today = EpochDay.today();
+            profile.workoutFrequency = days.total(DailySeries.Metric.SESSIONS) * 7.0 / RECENT_DAYS;
+            profile.recentFatigue = days.slice(today - 6, today).total(DailySeries.Metric.FATIGUE);
+        } else {
+            profile.workoutFrequency = 3.5;
+        }
         
         return profile;
     }
@@ -236,7 +253,7 @@ public class SmartRecommendationEngine {
         }
         
         // Recovery day recommendation
-        if (profile.currentStreak >= 5) {
+        if (profile.currentStreak >= 5 || profile.recentFatigue >= HIGH_FATIGUE) {
             recommendations.add(new WorkoutRecommendation(
                 "액티브 리커버리",
                 "피로 회복과 유연성 향상을 위한 저강도 운동입니다.",
@@ -358,6 +375,8 @@ public class SmartRecommendationEngine {
         int level;
         int currentStreak;
         double workoutFrequency;
+        // Session-weighted mean fatigue over the last seven days
+        float recentFatigue;
         Map<String, Integer> exerciseTypeDistribution = new HashMap<>();
         Map<String, Double> exerciseTypePerformance = new HashMap<>();
         List<String> weakestAreas = new ArrayList<>();
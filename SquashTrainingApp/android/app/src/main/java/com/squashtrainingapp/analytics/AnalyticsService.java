@@ -3,29 +3,27 @@ package com.squashtrainingapp.analytics;
 import android.content.Context;
 import android.util.Log;
 
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
-import com.squashtrainingapp.database.DatabaseHelper;
-import com.squashtrainingapp.models.WorkoutSession;
+import com.squashtrainingapp.database.DatabaseExecutor;
+import com.squashtrainingapp.database.TrainingRepository;
+import com.squashtrainingapp.sync.WriteBehindQueue;
+import com.squashtrainingapp.utils.EpochDay;
 
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 public class AnalyticsService {
     private static final String TAG = "AnalyticsService";
     
     private Context context;
-    private FirebaseFirestore db;
     private FirebaseAuthManager authManager;
-    private DatabaseHelper databaseHelper;
+    private TrainingRepository repository;
+    private WriteBehindQueue writeQueue;
+    private long dashboardDeadlineMillis = DEFAULT_DASHBOARD_DEADLINE_MILLIS;
     
     // Analytics data types
     public enum AnalyticsType {
@@ -56,8 +54,30 @@ public class AnalyticsService {
         public int getDays() {
             return days;
         }
+        
+        // First local epoch day covered when the period ends today
+        public int getStartDay(int today) {
+            return today - days;
+        }
+    }
+    
+    // Sources the dashboard fans out to
+    public enum DashboardSource {
+        // Workout, fitness, performance, progression, goal and injury data from the device
+        LOCAL_ANALYTICS,
+        // How the user compares with others, from Firestore
+        COMPARISON_DATA
+    }
+    
+    public enum SourceStatus {
+        COMPLETED,
+        FAILED,
+        TIMED_OUT
     }
     
+    // How long the dashboard waits for its slowest source before showing what it has
+    public static final long DEFAULT_DASHBOARD_DEADLINE_MILLIS = 5000;
+    
     public interface AnalyticsCallback {
         void onSuccess(AnalyticsData data);
         void onError(String error);
@@ -65,187 +85,57 @@ public class AnalyticsService {
     
     public AnalyticsService(Context context) {
         this.context = context;
-        this.db = FirebaseFirestore.getInstance();
         this.authManager = FirebaseAuthManager.getInstance(context);
-        this.databaseHelper = DatabaseHelper.getInstance(context);
+        this.repository = TrainingRepository.getInstance(context);
+        this.writeQueue = WriteBehindQueue.getInstance(context);
+    }
+    
+    public void setDashboardDeadlineMillis(long deadlineMillis) {
+        this.dashboardDeadlineMillis = deadlineMillis;
     }
     
-    // Get comprehensive analytics data
+    // Get comprehensive analytics data. Personal analytics are computed on the device from the
+    // local database, so they arrive offline within a few milliseconds; only the cross-user
+    // comparison goes to Firestore. The callback fires on the main thread once both finish, or
+    // at the deadline with whatever has arrived; data.sourceStatus tells which sources made it.
     public void getAnalyticsDashboard(TimePeriod period, AnalyticsCallback callback) {
         String userId = authManager.getCurrentUser().getUid();
         long startTime = getStartTime(period);
         
-        AnalyticsData analyticsData = new AnalyticsData();
-        
-        // Fetch multiple data sources in parallel
-        fetchWorkoutStats(userId, startTime, analyticsData);
-        fetchPerformanceMetrics(userId, startTime, analyticsData);
-        fetchProgressionData(userId, startTime, analyticsData);
-        fetchGoalCompletion(userId, startTime, analyticsData);
-        fetchComparisonData(userId, startTime, analyticsData);
-        
-        // Wait for all data to be fetched (simplified for now)
-        new android.os.Handler().postDelayed(() -> {
-            callback.onSuccess(analyticsData);
-        }, 1000);
+        DashboardLoader loader = new DashboardLoader();
+        loader.add(DashboardSource.LOCAL_ANALYTICS, loadLocalAnalytics(period), AnalyticsService::copyLocal);
+        loader.add(DashboardSource.COMPARISON_DATA, fetchComparisonData(userId, startTime),
+                (data, comparison) -> data.comparisonData = comparison);
+        loader.start(dashboardDeadlineMillis, callback);
     }
     
+    // The single-topic getters below all deliver the full local analytics for the period, on the
+    // main thread. Every type comes out of one computation per period, which is cached until a
+    // record or session is written and recomputed in the background after each workout.
+    
     // Get performance metrics
     public void getPerformanceMetrics(TimePeriod period, AnalyticsCallback callback) {
-        String userId = authManager.getCurrentUser().getUid();
-        long startTime = getStartTime(period);
-        
-        db.collection("workoutMetrics")
-                .whereEqualTo("userId", userId)
-                .whereGreaterThan("timestamp", startTime)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        AnalyticsData data = new AnalyticsData();
-                        List<PerformanceMetric> metrics = new ArrayList<>();
-                        
-                        for (QueryDocumentSnapshot doc : task.getResult()) {
-                            PerformanceMetric metric = parsePerformanceMetric(doc);
-                            if (metric != null) {
-                                metrics.add(metric);
-                            }
-                        }
-                        
-                        data.performanceMetrics = calculateAverageMetrics(metrics);
-                        data.performanceTrend = calculateTrend(metrics);
-                        
-                        callback.onSuccess(data);
-                    } else {
-                        Log.e(TAG, "Failed to get performance metrics", task.getException());
-                        callback.onError("Failed to load performance metrics");
-                    }
-                });
+        deliverLocal(period, callback);
     }
     
     // Get skill progression analysis
     public void getSkillProgression(TimePeriod period, AnalyticsCallback callback) {
-        String userId = authManager.getCurrentUser().getUid();
-        
-        AnalyticsData data = new AnalyticsData();
-        data.skillProgression = new SkillProgression();
-        
-        // Analyze technique improvements
-        analyzeTechnique(userId, period, data.skillProgression);
-        
-        // Analyze consistency
-        analyzeConsistency(userId, period, data.skillProgression);
-        
-        // Analyze accuracy
-        analyzeAccuracy(userId, period, data.skillProgression);
-        
-        callback.onSuccess(data);
+        deliverLocal(period, callback);
     }
     
     // Get fitness tracking data
     public void getFitnessData(TimePeriod period, AnalyticsCallback callback) {
-        String userId = authManager.getCurrentUser().getUid();
-        long startTime = getStartTime(period);
-        
-        // Get workout sessions from local database
-        // In a real app, you would get this from the database
-        // For now, create mock data
-        List<WorkoutSession> sessions = new ArrayList<>();
-        
-        // Add some mock sessions
-        for (int i = 0; i < 5; i++) {
-            WorkoutSession session = new WorkoutSession();
-            session.setSessionName("스쿼시 트레이닝 " + (i + 1));
-            session.setDurationMinutes(45 + (i * 10));
-            session.setScheduledDate(new Date(System.currentTimeMillis() - (i * 24 * 60 * 60 * 1000)));
-            sessions.add(session);
-        }
-        
-        AnalyticsData data = new AnalyticsData();
-        data.fitnessStats = new FitnessStats();
-        
-        // Calculate totals
-        int totalCalories = 0;
-        int totalDuration = 0;
-        int totalSessions = sessions.size();
-        Map<String, Integer> exerciseFrequency = new HashMap<>();
-        
-        for (WorkoutSession session : sessions) {
-            totalDuration += session.getDurationMinutes();
-            totalCalories += calculateCalories(session);
-            
-            String exerciseType = session.getExerciseTypes();
-            exerciseFrequency.put(exerciseType, 
-                    exerciseFrequency.getOrDefault(exerciseType, 0) + 1);
-        }
-        
-        data.fitnessStats.totalCaloriesBurned = totalCalories;
-        data.fitnessStats.totalMinutesExercised = totalDuration;
-        data.fitnessStats.averageSessionDuration = totalSessions > 0 ? 
-                totalDuration / totalSessions : 0;
-        data.fitnessStats.workoutFrequency = calculateFrequency(sessions, period);
-        data.fitnessStats.mostFrequentExercise = getMostFrequent(exerciseFrequency);
-        
-        callback.onSuccess(data);
+        deliverLocal(period, callback);
     }
     
-    // Get goal achievement data
+    // Get goal achievement data: scheduled sessions due this month and how many were completed
     public void getGoalAchievement(AnalyticsCallback callback) {
-        String userId = authManager.getCurrentUser().getUid();
-        
-        db.collection("userGoals")
-                .whereEqualTo("userId", userId)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        AnalyticsData data = new AnalyticsData();
-                        data.goalStats = new GoalStats();
-                        
-                        int totalGoals = 0;
-                        int completedGoals = 0;
-                        int activeGoals = 0;
-                        
-                        for (QueryDocumentSnapshot doc : task.getResult()) {
-                            totalGoals++;
-                            String status = doc.getString("status");
-                            if ("completed".equals(status)) {
-                                completedGoals++;
-                            } else if ("active".equals(status)) {
-                                activeGoals++;
-                            }
-                        }
-                        
-                        data.goalStats.totalGoals = totalGoals;
-                        data.goalStats.completedGoals = completedGoals;
-                        data.goalStats.activeGoals = activeGoals;
-                        data.goalStats.completionRate = totalGoals > 0 ? 
-                                (float) completedGoals / totalGoals * 100 : 0;
-                        
-                        callback.onSuccess(data);
-                    } else {
-                        Log.e(TAG, "Failed to get goals", task.getException());
-                        callback.onError("Failed to load goal data");
-                    }
-                });
+        deliverLocal(TimePeriod.MONTH, callback);
     }
     
     // Get injury prevention insights
     public void getInjuryPreventionInsights(AnalyticsCallback callback) {
-        String userId = authManager.getCurrentUser().getUid();
-        
-        AnalyticsData data = new AnalyticsData();
-        data.injuryPrevention = new InjuryPreventionData();
-        
-        // Analyze rest days
-        analyzeRestDays(userId, data.injuryPrevention);
-        
-        // Analyze workout intensity patterns
-        analyzeIntensityPatterns(userId, data.injuryPrevention);
-        
-        // Generate recommendations
-        generateInjuryPreventionTips(data.injuryPrevention);
-        
-        callback.onSuccess(data);
+        deliverLocal(TimePeriod.MONTH, callback);
     }
     
     // Record workout metrics
@@ -265,14 +155,7 @@ public class AnalyticsService {
         data.put("powerRating", metrics.powerRating);
         data.put("speedRating", metrics.speedRating);
         
-        db.collection("workoutMetrics")
-                .add(data)
-                .addOnSuccessListener(ref -> {
-                    Log.d(TAG, "Metrics recorded successfully");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to record metrics", e);
-                });
+        writeQueue.add("workoutMetrics", data);
     }
     
     // Helper methods
@@ -282,170 +165,39 @@ public class AnalyticsService {
         return cal.getTimeInMillis();
     }
     
-    private void fetchWorkoutStats(String userId, long startTime, AnalyticsData data) {
-        // Implementation for fetching workout statistics
-        data.workoutStats = new WorkoutStats();
-        // This would be filled with actual data from Firebase
-    }
-    
-    private void fetchPerformanceMetrics(String userId, long startTime, AnalyticsData data) {
-        // Implementation for fetching performance metrics
-        data.performanceMetrics = new PerformanceMetrics();
-    }
-    
-    private void fetchProgressionData(String userId, long startTime, AnalyticsData data) {
-        // Implementation for fetching progression data
-        data.skillProgression = new SkillProgression();
-    }
-    
-    private void fetchGoalCompletion(String userId, long startTime, AnalyticsData data) {
-        // Implementation for fetching goal completion data
-        data.goalStats = new GoalStats();
-    }
-    
-    private void fetchComparisonData(String userId, long startTime, AnalyticsData data) {
-        // Implementation for fetching comparison data
-        data.comparisonData = new ComparisonData();
-    }
-    
-    private PerformanceMetric parsePerformanceMetric(DocumentSnapshot doc) {
-        try {
-            PerformanceMetric metric = new PerformanceMetric();
-            metric.timestamp = doc.getLong("timestamp");
-            metric.shotAccuracy = doc.getDouble("shotAccuracy").floatValue();
-            metric.powerRating = doc.getDouble("powerRating").floatValue();
-            metric.speedRating = doc.getDouble("speedRating").floatValue();
-            return metric;
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse metric", e);
-            return null;
-        }
-    }
-    
-    private PerformanceMetrics calculateAverageMetrics(List<PerformanceMetric> metrics) {
-        PerformanceMetrics avg = new PerformanceMetrics();
-        if (metrics.isEmpty()) return avg;
-        
-        float totalAccuracy = 0, totalPower = 0, totalSpeed = 0;
-        for (PerformanceMetric metric : metrics) {
-            totalAccuracy += metric.shotAccuracy;
-            totalPower += metric.powerRating;
-            totalSpeed += metric.speedRating;
-        }
-        
-        int count = metrics.size();
-        avg.averageShotAccuracy = totalAccuracy / count;
-        avg.averagePowerRating = totalPower / count;
-        avg.averageSpeedRating = totalSpeed / count;
-        
-        return avg;
-    }
-    
-    private float calculateTrend(List<PerformanceMetric> metrics) {
-        if (metrics.size() < 2) return 0;
-        
-        // Simple trend calculation - compare first half to second half
-        int midPoint = metrics.size() / 2;
-        float firstHalfAvg = 0, secondHalfAvg = 0;
-        
-        for (int i = 0; i < midPoint; i++) {
-            firstHalfAvg += metrics.get(i).getOverallScore();
-        }
-        firstHalfAvg /= midPoint;
-        
-        for (int i = midPoint; i < metrics.size(); i++) {
-            secondHalfAvg += metrics.get(i).getOverallScore();
-        }
-        secondHalfAvg /= (metrics.size() - midPoint);
-        
-        return ((secondHalfAvg - firstHalfAvg) / firstHalfAvg) * 100;
-    }
-    
-    private int calculateCalories(WorkoutSession session) {
-        // Rough calculation: 10 calories per minute for moderate intensity
-        int baseCalories = session.getDurationMinutes() * 10;
-        
-        // Adjust based on intensity
-        String intensity = session.getIntensity();
-        if ("High".equals(intensity)) {
-            return (int) (baseCalories * 1.5);
-        } else if ("Low".equals(intensity)) {
-            return (int) (baseCalories * 0.7);
-        }
-        
-        return baseCalories;
-    }
-    
-    private float calculateFrequency(List<WorkoutSession> sessions, TimePeriod period) {
-        if (sessions.isEmpty()) return 0;
-        
-        long daysCovered = TimeUnit.MILLISECONDS.toDays(
-                System.currentTimeMillis() - sessions.get(sessions.size() - 1)
-                        .getScheduledDate().getTime());
-        
-        if (daysCovered == 0) daysCovered = 1;
-        
-        return (float) sessions.size() / daysCovered * 7; // Sessions per week
+    // Shared cached snapshot; callers copy it before handing it out
+    private CompletableFuture<AnalyticsData> loadLocalAnalytics(TimePeriod period) {
+        int today = EpochDay.today();
+        return repository.getLocalAnalytics(period.getStartDay(today), today);
     }
     
-    private String getMostFrequent(Map<String, Integer> frequency) {
-        String mostFrequent = "General Training";
-        int maxCount = 0;
-        
-        for (Map.Entry<String, Integer> entry : frequency.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                mostFrequent = entry.getKey();
+    private void deliverLocal(TimePeriod period, AnalyticsCallback callback) {
+        loadLocalAnalytics(period).whenCompleteAsync((local, error) -> {
+            if (error == null) {
+                AnalyticsData data = new AnalyticsData();
+                copyLocal(data, local);
+                callback.onSuccess(data);
+            } else {
+                Log.e(TAG, "Failed to compute local analytics", error);
+                callback.onError("Failed to load analytics");
             }
-        }
-        
-        return mostFrequent;
-    }
-    
-    private void analyzeTechnique(String userId, TimePeriod period, SkillProgression progression) {
-        // Implementation for technique analysis
-        progression.techniqueScore = 75; // Mock value
-        progression.techniqueImprovement = 12.5f; // Mock improvement percentage
-    }
-    
-    private void analyzeConsistency(String userId, TimePeriod period, SkillProgression progression) {
-        // Implementation for consistency analysis
-        progression.consistencyScore = 85;
-        progression.streakDays = 14;
-    }
-    
-    private void analyzeAccuracy(String userId, TimePeriod period, SkillProgression progression) {
-        // Implementation for accuracy analysis
-        progression.accuracyScore = 78;
-        progression.accuracyTrend = 8.3f;
-    }
-    
-    private void analyzeRestDays(String userId, InjuryPreventionData data) {
-        // Implementation for rest day analysis
-        data.restDaysPerWeek = 2;
-        data.recommendedRestDays = 2;
+        }, DatabaseExecutor.mainThread());
     }
     
-    private void analyzeIntensityPatterns(String userId, InjuryPreventionData data) {
-        // Implementation for intensity pattern analysis
-        data.highIntensityPercentage = 30;
-        data.fatigueLevel = "Moderate";
+    // Everything the device computed, leaving the target's source statuses alone
+    private static void copyLocal(AnalyticsData target, AnalyticsData local) {
+        target.workoutStats = local.workoutStats;
+        target.performanceMetrics = local.performanceMetrics;
+        target.performanceTrend = local.performanceTrend;
+        target.skillProgression = local.skillProgression;
+        target.fitnessStats = local.fitnessStats;
+        target.goalStats = local.goalStats;
+        target.injuryPrevention = local.injuryPrevention;
     }
     
-    private void generateInjuryPreventionTips(InjuryPreventionData data) {
-        data.recommendations = new ArrayList<>();
-        
-        if (data.restDaysPerWeek < data.recommendedRestDays) {
-            data.recommendations.add("충분한 휴식일을 가지세요. 주 " + 
-                    data.recommendedRestDays + "일을 권장합니다.");
-        }
-        
-        if (data.highIntensityPercentage > 40) {
-            data.recommendations.add("고강도 운동 비율이 높습니다. 중강도 운동을 늘려보세요.");
-        }
-        
-        data.recommendations.add("운동 전후 충분한 스트레칭을 하세요.");
-        data.recommendations.add("수분 섭취를 충분히 하세요.");
+    private CompletableFuture<ComparisonData> fetchComparisonData(String userId, long startTime) {
+        // Implementation for fetching comparison data
+        return CompletableFuture.completedFuture(new ComparisonData());
     }
     
     // Data models
@@ -458,6 +210,16 @@ public class AnalyticsService {
         public GoalStats goalStats;
         public ComparisonData comparisonData;
         public InjuryPreventionData injuryPrevention;
+        // How each dashboard source ended; sources not listed were not part of the request
+        public final Map<DashboardSource, SourceStatus> sourceStatus = new EnumMap<>(DashboardSource.class);
+        
+        // True when every dashboard source delivered its data
+        public boolean isComplete() {
+            for (SourceStatus status : sourceStatus.values()) {
+                if (status != SourceStatus.COMPLETED) return false;
+            }
+            return true;
+        }
     }
     
     public static class WorkoutStats {
@@ -523,6 +285,13 @@ public class AnalyticsService {
         public int recommendedRestDays;
         public int highIntensityPercentage;
         public String fatigueLevel;
+        // Exponentially weighted daily load (duration x intensity) and the derived risk measures
+        public float acuteLoad;
+        public float chronicLoad;
+        public float acuteChronicRatio;
+        public float monotony;
+        public float strain;
+        public String riskLevel;
         public List<String> recommendations;
     }
     
@@ -0,0 +1,259 @@
+package com.squashtrainingapp.analytics;
+
+import com.squashtrainingapp.models.User;
+import com.squashtrainingapp.utils.EpochDay;
+
+import java.util.Arrays;
+
+/**
+ * Training metrics per local epoch day, held in parallel primitive columns: sessions, minutes,
+ * calories, and session-weighted mean intensity and fatigue. Only days with data have a row, so a
+ * ten year range costs one row per active day. Rows are kept in day order; appending is amortised
+ * O(1), lookups and slices binary search the day column, and rolling windows are one pass with two
+ * cursors. Nothing on these paths boxes.
+ *
+ * Series shared through the query cache, from the DAO or inside a {@link StatsSnapshot}, are
+ * frozen: appending to them throws. Use {@link #slice} or {@link #resample} to derive new ones.
+ */
+public final class DailySeries {
+
+    public enum Metric {
+        SESSIONS,
+        MINUTES,
+        CALORIES,
+        // Mean per session, weighted by each day's sessions when combined
+        INTENSITY,
+        FATIGUE
+    }
+
+    public enum Period {
+        // Weeks start on Sunday, matching EpochDay.dayOfWeek
+        WEEK,
+        MONTH
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] days;
+    private int[] sessions;
+    private int[] minutes;
+    private int[] calories;
+    private float[] intensity;
+    private float[] fatigue;
+    private int size;
+    private boolean frozen;
+
+    public DailySeries() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public DailySeries(int capacity) {
+        capacity = Math.max(capacity, 1);
+        days = new int[capacity];
+        sessions = new int[capacity];
+        minutes = new int[capacity];
+        calories = new int[capacity];
+        intensity = new float[capacity];
+        fatigue = new float[capacity];
+    }
+
+    // Add one rollup row. Days must not go backwards; a repeated day (another category of the
+    // same day) is merged into the last row.
+    public void append(int epochDay, int sessions, int minutes, int intensitySum, int fatigueSum) {
+        if (frozen) {
+            throw new IllegalStateException("Series is frozen");
+        }
+        add(epochDay, sessions, minutes, minutes * User.CALORIES_PER_MINUTE, intensitySum, fatigueSum);
+    }
+
+    // Make the series read-only before sharing it; returns this
+    public DailySeries freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void add(int epochDay, int addSessions, int addMinutes, int addCalories,
+                     float intensitySum, float fatigueSum) {
+        int row;
+        if (size > 0 && days[size - 1] == epochDay) {
+            row = size - 1;
+        } else {
+            if (size > 0 && epochDay < days[size - 1]) {
+                throw new IllegalArgumentException("Day " + epochDay + " appended after " + days[size - 1]);
+            }
+            if (size == days.length) {
+                grow();
+            }
+            row = size++;
+            days[row] = epochDay;
+        }
+
+        int total = sessions[row] + addSessions;
+        if (total > 0) {
+            intensity[row] = (intensity[row] * sessions[row] + intensitySum) / total;
+            fatigue[row] = (fatigue[row] * sessions[row] + fatigueSum) / total;
+        }
+        sessions[row] = total;
+        minutes[row] += addMinutes;
+        calories[row] += addCalories;
+    }
+
+    private void grow() {
+        int capacity = days.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        sessions = Arrays.copyOf(sessions, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        calories = Arrays.copyOf(calories, capacity);
+        intensity = Arrays.copyOf(intensity, capacity);
+        fatigue = Arrays.copyOf(fatigue, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Epoch day of the row; rows are oldest first
+    public int day(int row) {
+        return days[row];
+    }
+
+    public int sessions(int row) {
+        return sessions[row];
+    }
+
+    public int minutes(int row) {
+        return minutes[row];
+    }
+
+    public int calories(int row) {
+        return calories[row];
+    }
+
+    public float intensity(int row) {
+        return intensity[row];
+    }
+
+    public float fatigue(int row) {
+        return fatigue[row];
+    }
+
+    public float value(Metric metric, int row) {
+        switch (metric) {
+            case SESSIONS: return sessions[row];
+            case MINUTES: return minutes[row];
+            case CALORIES: return calories[row];
+            case INTENSITY: return intensity[row];
+            default: return fatigue[row];
+        }
+    }
+
+    // Row holding the day, or -1 when the day has no data
+    public int indexOf(int epochDay) {
+        int row = Arrays.binarySearch(days, 0, size, epochDay);
+        return row >= 0 ? row : -1;
+    }
+
+    // First row on or after the day; size() when every row is earlier
+    public int ceilingIndex(int epochDay) {
+        int row = Arrays.binarySearch(days, 0, size, epochDay);
+        return row >= 0 ? row : -row - 1;
+    }
+
+    // Rows between the two days, inclusive, as a new series
+    public DailySeries slice(int startDay, int endDay) {
+        int from = ceilingIndex(startDay);
+        int to = Math.max(from, ceilingIndex(endDay + 1));
+        DailySeries slice = new DailySeries(to - from);
+        slice.size = to - from;
+        System.arraycopy(days, from, slice.days, 0, slice.size);
+        System.arraycopy(sessions, from, slice.sessions, 0, slice.size);
+        System.arraycopy(minutes, from, slice.minutes, 0, slice.size);
+        System.arraycopy(calories, from, slice.calories, 0, slice.size);
+        System.arraycopy(intensity, from, slice.intensity, 0, slice.size);
+        System.arraycopy(fatigue, from, slice.fatigue, 0, slice.size);
+        return slice;
+    }
+
+    // Total over every row; intensity and fatigue give the session-weighted mean instead
+    public float total(Metric metric) {
+        if (metric == Metric.INTENSITY || metric == Metric.FATIGUE) {
+            double weighted = 0;
+            long weight = 0;
+            for (int row = 0; row < size; row++) {
+                weighted += value(metric, row) * sessions[row];
+                weight += sessions[row];
+            }
+            return weight > 0 ? (float) (weighted / weight) : 0f;
+        }
+        long sum = 0;
+        for (int row = 0; row < size; row++) {
+            sum += (long) value(metric, row);
+        }
+        return sum;
+    }
+
+    // For each row, the sum over the days in (day - windowDays, day]
+    public float[] rollingSum(Metric metric, int windowDays) {
+        return rolling(metric, windowDays, false);
+    }
+
+    // For each row, the mean per calendar day over (day - windowDays, day], counting days without
+    // data as zero. Intensity and fatigue are instead averaged over the window's sessions.
+    public float[] rollingMean(Metric metric, int windowDays) {
+        return rolling(metric, windowDays, true);
+    }
+
+    private float[] rolling(Metric metric, int windowDays, boolean mean) {
+        if (windowDays < 1) {
+            throw new IllegalArgumentException("windowDays must be positive: " + windowDays);
+        }
+        boolean weighted = metric == Metric.INTENSITY || metric == Metric.FATIGUE;
+        float[] result = new float[size];
+        double sum = 0;
+        long weight = 0;
+        int tail = 0;
+        for (int row = 0; row < size; row++) {
+            float value = value(metric, row);
+            sum += weighted ? value * sessions[row] : value;
+            weight += sessions[row];
+            while (days[tail] <= days[row] - windowDays) {
+                float old = value(metric, tail);
+                sum -= weighted ? old * sessions[tail] : old;
+                weight -= sessions[tail];
+                tail++;
+            }
+            if (weighted) {
+                result[row] = weight > 0 ? (float) (sum / weight) : 0f;
+            } else {
+                result[row] = (float) (mean ? sum / windowDays : sum);
+            }
+        }
+        return result;
+    }
+
+    // One row per week or month that has data, keyed by the bucket's first day
+    public DailySeries resample(Period period) {
+        DailySeries buckets = new DailySeries();
+        for (int row = 0; row < size; row++) {
+            buckets.add(bucketStart(days[row], period), sessions[row], minutes[row], calories[row],
+                    intensity[row] * sessions[row], fatigue[row] * sessions[row]);
+        }
+        return buckets;
+    }
+
+    private static int bucketStart(int epochDay, Period period) {
+        if (period == Period.WEEK) {
+            return epochDay - EpochDay.dayOfWeek(epochDay);
+        }
+        int date = EpochDay.toYearMonthDay(epochDay);
+        return EpochDay.of(date / 10000, date / 100 % 100, 1);
+    }
+}
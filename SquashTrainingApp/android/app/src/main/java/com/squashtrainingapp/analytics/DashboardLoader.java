@@ -0,0 +1,111 @@
+package com.squashtrainingapp.analytics;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.squashtrainingapp.database.DatabaseExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Fans the dashboard's sources out in parallel and fans their results back into one
+ * AnalyticsData. The callback runs once, on the main thread, as soon as every source has
+ * finished or the deadline passes, whichever comes first. Sources still running at the deadline
+ * are reported as timed out and their late results are dropped, so the delivered data never
+ * changes under the caller.
+ *
+ * Results are applied on the main thread only, so the aggregation needs no locking.
+ */
+final class DashboardLoader {
+    private static final String TAG = "DashboardLoader";
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AnalyticsService.AnalyticsData data = new AnalyticsService.AnalyticsData();
+    private final List<Source<?>> sources = new ArrayList<>();
+
+    private AnalyticsService.AnalyticsCallback callback;
+    private int pending;
+    private boolean delivered;
+
+    // Register a running source and how its value fills the data; call before start
+    <T> void add(AnalyticsService.DashboardSource source, CompletableFuture<T> result,
+                 BiConsumer<AnalyticsService.AnalyticsData, T> apply) {
+        sources.add(new Source<>(source, result, apply));
+    }
+
+    // Wait for every source, but no longer than the deadline
+    void start(long deadlineMillis, AnalyticsService.AnalyticsCallback callback) {
+        DatabaseExecutor.mainThread().execute(() -> {
+            this.callback = callback;
+            pending = sources.size();
+            for (Source<?> source : sources) {
+                source.listen();
+            }
+            if (pending == 0) {
+                deliver();
+            } else {
+                handler.postDelayed(this::onDeadline, deadlineMillis);
+            }
+        });
+    }
+
+    private void onDeadline() {
+        if (delivered) return;
+        for (Source<?> source : sources) {
+            if (!data.sourceStatus.containsKey(source.id)) {
+                data.sourceStatus.put(source.id, AnalyticsService.SourceStatus.TIMED_OUT);
+                Log.w(TAG, "Dashboard source timed out: " + source.id);
+            }
+        }
+        deliver();
+    }
+
+    private void onSourceFinished() {
+        if (--pending == 0 && !delivered) {
+            handler.removeCallbacksAndMessages(null);
+            deliver();
+        }
+    }
+
+    private void deliver() {
+        delivered = true;
+        if (!sources.isEmpty() && !data.sourceStatus.containsValue(AnalyticsService.SourceStatus.COMPLETED)) {
+            callback.onError("Failed to load analytics");
+        } else {
+            callback.onSuccess(data);
+        }
+    }
+
+    private final class Source<T> {
+        final AnalyticsService.DashboardSource id;
+        final CompletableFuture<T> result;
+        final BiConsumer<AnalyticsService.AnalyticsData, T> apply;
+
+        Source(AnalyticsService.DashboardSource id, CompletableFuture<T> result,
+               BiConsumer<AnalyticsService.AnalyticsData, T> apply) {
+            this.id = id;
+            this.result = result;
+            this.apply = apply;
+        }
+
+        void listen() {
+            result.whenCompleteAsync(this::onResult, DatabaseExecutor.mainThread());
+        }
+
+        private void onResult(T value, Throwable error) {
+            if (delivered) return;
+            if (error == null) {
+                apply.accept(data, value);
+                data.sourceStatus.put(id, AnalyticsService.SourceStatus.COMPLETED);
+            } else {
+                Log.e(TAG, "Dashboard source failed: " + id, error);
+                data.sourceStatus.put(id, AnalyticsService.SourceStatus.FAILED);
+            }
+            onSourceFinished();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.squashtrainingapp.analytics;
+
+import com.squashtrainingapp.models.StreakIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the dashboard's personal analytics on the device from the daily_stats rollup (kept
+ * in step with the records table), the activity bitmap and the workout_sessions table. Inputs
+ * come from the query cache, so a dashboard open costs one pass over the period's active days
+ * and needs no network.
+ *
+ * Injury prevention also reads the persisted {@link TrainingLoad}, so acute:chronic ratio,
+ * monotony and strain cost nothing beyond moving the model to today.
+ *
+ * Shot accuracy, rally length and court coverage are not recorded on the device; those
+ * performance fields stay zero.
+ *
+ * Results are cached and shared between callers, so they are complete when returned and must be
+ * treated as read-only.
+ */
+public final class LocalAnalyticsEngine {
+    // Session-weighted mean intensity (1-10) from which a day counts as high intensity
+    private static final float HIGH_INTENSITY = 8f;
+    private static final int RECOMMENDED_REST_DAYS = 2;
+    // Days looked back for rest days and fatigue
+    private static final int REST_WINDOW_DAYS = 28;
+    private static final int FATIGUE_WINDOW_DAYS = 7;
+    // Weeks with at least this many sessions count as consistent
+    private static final int CONSISTENT_WEEK_SESSIONS = 2;
+    // Share of sessions at high intensity above which the tips suggest easing off
+    private static final int HIGH_INTENSITY_TIP_PERCENT = 40;
+
+    private static final String STATUS_COMPLETED = "completed";
+    private static final String STATUS_SCHEDULED = "scheduled";
+
+    private LocalAnalyticsEngine() {}
+
+    // Everything but comparison data for [startDay, today]; sessionCounts are workout_sessions
+    // per status scheduled in that range
+    public static AnalyticsService.AnalyticsData compute(StatsSnapshot period, StreakIndex streaks,
+                                                         Map<String, Integer> sessionCounts,
+                                                         TrainingLoad trainingLoad,
+                                                         int startDay, int today) {
+        DailySeries days = period.getDailySeries();
+        int weeks = Math.max(1, (today - startDay + 1 + 6) / 7);
+
+        AnalyticsService.AnalyticsData data = new AnalyticsService.AnalyticsData();
+        data.workoutStats = workoutStats(period, streaks, today, weeks);
+        data.fitnessStats = fitnessStats(period, weeks);
+        data.performanceMetrics = new AnalyticsService.PerformanceMetrics();
+        data.performanceMetrics.averagePowerRating = days.total(DailySeries.Metric.INTENSITY) * 10;
+        data.performanceTrend = intensityTrend(days, startDay, today);
+        data.skillProgression = skillProgression(days, streaks, today, weeks);
+        data.goalStats = goalStats(sessionCounts);
+        data.injuryPrevention = injuryPrevention(days, streaks, trainingLoad.at(today), today);
+        return data;
+    }
+
+    private static AnalyticsService.WorkoutStats workoutStats(StatsSnapshot period, StreakIndex streaks,
+                                                              int today, int weeks) {
+        DailySeries days = period.getDailySeries();
+        AnalyticsService.WorkoutStats stats = new AnalyticsService.WorkoutStats();
+        stats.totalSessions = period.getTotalSessions();
+        stats.totalMinutes = period.getTotalMinutes();
+        stats.currentStreak = streaks.currentStreak(today);
+
+        // Longest run of consecutive active days inside the period
+        int run = 0;
+        for (int i = 0; i < days.size(); i++) {
+            run = i > 0 && days.day(i) == days.day(i - 1) + 1 ? run + 1 : 1;
+            stats.longestStreak = Math.max(stats.longestStreak, run);
+        }
+        stats.averageSessionsPerWeek = stats.totalSessions / (float) weeks;
+        return stats;
+    }
+
+    private static AnalyticsService.FitnessStats fitnessStats(StatsSnapshot period, int weeks) {
+        AnalyticsService.FitnessStats stats = new AnalyticsService.FitnessStats();
+        stats.totalCaloriesBurned = (int) period.getDailySeries().total(DailySeries.Metric.CALORIES);
+        stats.totalMinutesExercised = period.getTotalMinutes();
+        stats.averageSessionDuration = period.getAverageMinutes();
+        stats.workoutFrequency = period.getTotalSessions() / (float) weeks;
+        stats.mostFrequentExercise = period.getCategoryCount() > 0 ?
+                period.getCategoryName(0) : "General Training";
+        return stats;
+    }
+
+    // Percent change in mean intensity from the first half of the period to the second
+    private static float intensityTrend(DailySeries days, int startDay, int today) {
+        int middle = startDay + (today - startDay + 1) / 2;
+        float first = days.slice(startDay, middle - 1).total(DailySeries.Metric.INTENSITY);
+        float second = days.slice(middle, today).total(DailySeries.Metric.INTENSITY);
+        return first > 0 && second > 0 ? (second - first) / first * 100 : 0f;
+    }
+
+    private static AnalyticsService.SkillProgression skillProgression(DailySeries days, StreakIndex streaks,
+                                                                      int today, int weeks) {
+        AnalyticsService.SkillProgression progression = new AnalyticsService.SkillProgression();
+        DailySeries perWeek = days.resample(DailySeries.Period.WEEK);
+        int consistentWeeks = 0;
+        for (int i = 0; i < perWeek.size(); i++) {
+            if (perWeek.sessions(i) >= CONSISTENT_WEEK_SESSIONS) consistentWeeks++;
+        }
+        progression.consistencyScore = Math.min(100, Math.round(consistentWeeks * 100f / weeks));
+        progression.streakDays = streaks.currentStreak(today);
+        return progression;
+    }
+
+    // Scheduled sessions stand in for goals: those due in the period and how many were done
+    private static AnalyticsService.GoalStats goalStats(Map<String, Integer> sessionCounts) {
+        AnalyticsService.GoalStats goals = new AnalyticsService.GoalStats();
+        for (Map.Entry<String, Integer> status : sessionCounts.entrySet()) {
+            goals.totalGoals += status.getValue();
+            if (STATUS_COMPLETED.equals(status.getKey())) {
+                goals.completedGoals += status.getValue();
+            } else if (STATUS_SCHEDULED.equals(status.getKey())) {
+                goals.activeGoals += status.getValue();
+            }
+        }
+        goals.completionRate = goals.totalGoals > 0 ?
+                (float) goals.completedGoals / goals.totalGoals * 100 : 0;
+        return goals;
+    }
+
+    private static AnalyticsService.InjuryPreventionData injuryPrevention(DailySeries days, StreakIndex streaks,
+                                                                          TrainingLoad load, int today) {
+        AnalyticsService.InjuryPreventionData injury = new AnalyticsService.InjuryPreventionData();
+        int activeDays = streaks.activeDays(today - REST_WINDOW_DAYS + 1, today);
+        injury.restDaysPerWeek = Math.round((REST_WINDOW_DAYS - activeDays) * 7f / REST_WINDOW_DAYS);
+        injury.recommendedRestDays = RECOMMENDED_REST_DAYS;
+
+        int sessions = 0;
+        int highIntensitySessions = 0;
+        for (int i = 0; i < days.size(); i++) {
+            sessions += days.sessions(i);
+            if (days.intensity(i) >= HIGH_INTENSITY) highIntensitySessions += days.sessions(i);
+        }
+        injury.highIntensityPercentage = sessions > 0 ? Math.round(highIntensitySessions * 100f / sessions) : 0;
+
+        float fatigue = days.slice(today - FATIGUE_WINDOW_DAYS + 1, today).total(DailySeries.Metric.FATIGUE);
+        injury.fatigueLevel = fatigue < 4 ? "Low" : fatigue < 7 ? "Moderate" : "High";
+
+        injury.acuteLoad = load.getAcuteLoad();
+        injury.chronicLoad = load.getChronicLoad();
+        injury.acuteChronicRatio = load.getAcuteChronicRatio();
+        injury.monotony = load.getMonotony();
+        injury.strain = load.getStrain();
+        injury.riskLevel = riskLevel(load.getRisk());
+        injury.recommendations = injuryTips(injury, load);
+        return injury;
+    }
+
+    private static String riskLevel(TrainingLoad.Risk risk) {
+        switch (risk) {
+            case LOW: return "Low";
+            case MODERATE: return "Moderate";
+            case HIGH: return "High";
+            default: return "Unknown";
+        }
+    }
+
+    private static List<String> injuryTips(AnalyticsService.InjuryPreventionData injury, TrainingLoad load) {
+        List<String> tips = new ArrayList<>();
+        if (load.hasChronicBase() && injury.acuteChronicRatio > TrainingLoad.HIGH_RATIO) {
+            tips.add("최근 일주일 운동량이 평소보다 크게 늘었습니다. 부상 위험이 높으니 강도를 낮추세요.");
+        } else if (load.hasChronicBase() && injury.chronicLoad > 0
+                && injury.acuteChronicRatio < TrainingLoad.DETRAINING_RATIO) {
+            tips.add("최근 운동량이 평소보다 줄었습니다. 체력 유지를 위해 점진적으로 늘려보세요.");
+        }
+        if (injury.monotony > TrainingLoad.HIGH_MONOTONY) {
+            tips.add("매일 비슷한 강도로 운동하고 있습니다. 강한 날과 가벼운 날을 섞어보세요.");
+        }
+        if (injury.restDaysPerWeek < injury.recommendedRestDays) {
+            tips.add("충분한 휴식일을 가지세요. 주 " + injury.recommendedRestDays + "일을 권장합니다.");
+        }
+        if (injury.highIntensityPercentage > HIGH_INTENSITY_TIP_PERCENT) {
+            tips.add("고강도 운동 비율이 높습니다. 중강도 운동을 늘려보세요.");
+        }
+        tips.add("운동 전후 충분한 스트레칭을 하세요.");
+        tips.add("수분 섭취를 충분히 하세요.");
+        return tips;
+    }
+}
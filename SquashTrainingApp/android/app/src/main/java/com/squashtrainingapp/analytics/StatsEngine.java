@@ -0,0 +1,104 @@
+package com.squashtrainingapp.analytics;
+
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.utils.EpochDay;
+import com.squashtrainingapp.utils.ExerciseClassifier;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link StatsSnapshot} from daily_stats rows in a single pass. Rows are added into a
+ * {@link DailySeries} and primitive arrays indexed by day of the week and category, so the work
+ * per row is a few array writes however many cards and charts read the result.
+ *
+ * Not thread-safe; use one engine per snapshot on a background thread.
+ */
+public final class StatsEngine {
+    // Every category a rollup row can carry; unknown names are counted as Other
+    private static final String[] CATEGORIES;
+    private static final Map<String, Integer> CATEGORY_INDEX = new HashMap<>();
+    private static final int OTHER;
+
+    static {
+        List<String> keywordCategories = ExerciseClassifier.categories();
+        CATEGORIES = new String[keywordCategories.size() + 2];
+        keywordCategories.toArray(CATEGORIES);
+        CATEGORIES[CATEGORIES.length - 2] = Record.TYPE_GENERAL;
+        CATEGORIES[CATEGORIES.length - 1] = Record.TYPE_OTHER;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            CATEGORY_INDEX.put(CATEGORIES[i], i);
+        }
+        OTHER = CATEGORIES.length - 1;
+    }
+
+    private final int startDay;
+    private final int endDay;
+    private final DailySeries days = new DailySeries();
+    private final int[] weekdayMinutes = new int[7];
+    private final int[] categorySessions = new int[CATEGORIES.length];
+    private int totalSessions;
+    private int totalMinutes;
+
+    public StatsEngine(int startDay, int endDay) {
+        if (endDay < startDay) {
+            throw new IllegalArgumentException("endDay " + endDay + " is before startDay " + startDay);
+        }
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    // One daily_stats row, in day order; rows outside the range or without sessions are ignored
+    public void add(int epochDay, String category, int sessions, int minutes, int intensitySum, int fatigueSum) {
+        if (epochDay < startDay || epochDay > endDay || sessions <= 0) return;
+
+        days.append(epochDay, sessions, minutes, intensitySum, fatigueSum);
+        weekdayMinutes[EpochDay.dayOfWeek(epochDay)] += minutes;
+        Integer index = CATEGORY_INDEX.get(category);
+        categorySessions[index != null ? index : OTHER] += sessions;
+        totalSessions += sessions;
+        totalMinutes += minutes;
+    }
+
+    public StatsSnapshot build() {
+        String[] dayLabels = new String[days.size()];
+        for (int i = 0; i < dayLabels.length; i++) {
+            dayLabels[i] = monthDayLabel(days.day(i));
+        }
+
+        // Insertion sort by sessions, descending; there are only a handful of categories and
+        // ties keep the classifier's priority order
+        int[] order = new int[CATEGORIES.length];
+        int categoryCount = 0;
+        for (int category = 0; category < CATEGORIES.length; category++) {
+            if (categorySessions[category] <= 0) continue;
+            int position = categoryCount++;
+            while (position > 0 && categorySessions[order[position - 1]] < categorySessions[category]) {
+                order[position] = order[position - 1];
+                position--;
+            }
+            order[position] = category;
+        }
+        String[] names = new String[categoryCount];
+        int[] sessions = new int[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            names[i] = CATEGORIES[order[i]];
+            sessions[i] = categorySessions[order[i]];
+        }
+
+        return new StatsSnapshot(startDay, endDay, totalSessions, totalMinutes, days, dayLabels,
+                weekdayMinutes.clone(), names, sessions);
+    }
+
+    // "MM/dd" without a SimpleDateFormat per screen
+    private static String monthDayLabel(int epochDay) {
+        int date = EpochDay.toYearMonthDay(epochDay);
+        int month = date / 100 % 100;
+        int day = date % 100;
+        return new String(new char[] {
+            (char) ('0' + month / 10), (char) ('0' + month % 10), '/',
+            (char) ('0' + day / 10), (char) ('0' + day % 10)
+        });
+    }
+}
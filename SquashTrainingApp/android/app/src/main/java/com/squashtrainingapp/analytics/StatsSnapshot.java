@@ -0,0 +1,98 @@
+package com.squashtrainingapp.analytics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every card and chart series of the statistics screen for one range of days, computed off the
+ * main thread by {@link StatsEngine}. The screen only binds these values to its views.
+ *
+ * Shared through the query cache, so it never changes once built.
+ */
+public final class StatsSnapshot {
+    private final int startDay;
+    private final int endDay;
+    private final int totalSessions;
+    private final int totalMinutes;
+
+    // Days with at least one session, oldest first
+    private final DailySeries days;
+    private final List<String> dayLabels;
+
+    // Indexed by EpochDay.dayOfWeek
+    private final int[] weekdayMinutes;
+
+    // Categories with at least one session, most sessions first
+    private final String[] categoryNames;
+    private final int[] categorySessions;
+
+    StatsSnapshot(int startDay, int endDay, int totalSessions, int totalMinutes,
+                  DailySeries days, String[] dayLabels, int[] weekdayMinutes,
+                  String[] categoryNames, int[] categorySessions) {
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.totalSessions = totalSessions;
+        this.totalMinutes = totalMinutes;
+        this.days = days.freeze();
+        this.dayLabels = Collections.unmodifiableList(Arrays.asList(dayLabels));
+        this.weekdayMinutes = weekdayMinutes;
+        this.categoryNames = categoryNames;
+        this.categorySessions = categorySessions;
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getEndDay() {
+        return endDay;
+    }
+
+    public boolean isEmpty() {
+        return totalSessions == 0;
+    }
+
+    public int getTotalSessions() {
+        return totalSessions;
+    }
+
+    public int getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    public float getTotalHours() {
+        return totalMinutes / 60f;
+    }
+
+    public int getAverageMinutes() {
+        return totalSessions > 0 ? totalMinutes / totalSessions : 0;
+    }
+
+    // One row per active day in the range; frozen, like the rest of the snapshot
+    public DailySeries getDailySeries() {
+        return days;
+    }
+
+    // "MM/dd" label of each row of the daily series
+    public List<String> getDayLabels() {
+        return dayLabels;
+    }
+
+    // 0 = Sunday ... 6 = Saturday
+    public int getWeekdayMinutes(int dayOfWeek) {
+        return weekdayMinutes[dayOfWeek];
+    }
+
+    public int getCategoryCount() {
+        return categoryNames.length;
+    }
+
+    public String getCategoryName(int index) {
+        return categoryNames[index];
+    }
+
+    public int getCategorySessions(int index) {
+        return categorySessions[index];
+    }
+}
@@ -0,0 +1,218 @@
+package com.squashtrainingapp.analytics;
+
+import com.squashtrainingapp.models.Record;
+
+import java.util.Arrays;
+
+/**
+ * Running training-load model over local epoch days. A record's load is duration x intensity
+ * (session RPE, in arbitrary units). Acute (7-day) and chronic (28-day) load are exponentially
+ * weighted moving averages of the daily load, with lambda = 2 / (N + 1); the last seven daily
+ * loads are kept as well for monotony (mean / standard deviation of the week) and strain
+ * (weekly load x monotony).
+ *
+ * Both averages are linear in every day's load, so adding or removing a record, even a backdated
+ * one, is O(1): its load is decayed by the days between it and the model's day. Moving the model
+ * to a later day decays both averages in one step. The state is persisted in the training_load
+ * table; a model read from the DAO is shared through the query cache, so use {@link #copy} or
+ * {@link #at} before changing or advancing it.
+ */
+public final class TrainingLoad {
+    public static final int ACUTE_DAYS = 7;
+    public static final int CHRONIC_DAYS = 28;
+
+    public enum Risk {
+        // Chronic load needs about CHRONIC_DAYS of history before the ratio means anything
+        NOT_ENOUGH_DATA,
+        LOW,
+        MODERATE,
+        HIGH
+    }
+
+    // Acute:chronic ratios above these mark a spike in load
+    private static final float ELEVATED_RATIO = 1.3f;
+    public static final float HIGH_RATIO = 1.5f;
+    // Below this the athlete is doing less than they are conditioned for
+    public static final float DETRAINING_RATIO = 0.8f;
+    public static final float HIGH_MONOTONY = 2.0f;
+    // Weekly strain at which illness and injury rates rose in the session-RPE literature
+    private static final int HIGH_STRAIN = 6000;
+    // Monotony of a week whose every day had the same non-zero load
+    private static final float MAX_MONOTONY = 10f;
+
+    private static final double ACUTE_DECAY = 1 - 2.0 / (ACUTE_DAYS + 1);
+    private static final double CHRONIC_DECAY = 1 - 2.0 / (CHRONIC_DAYS + 1);
+
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
+    // Earliest day with load, and the day the averages are current for
+    private int firstDay = NO_DAY;
+    private int day = NO_DAY;
+    private double acute;
+    private double chronic;
+    // Load of day d, for d in (day - ACUTE_DAYS, day], at index floorMod(d, ACUTE_DAYS)
+    private final int[] week = new int[ACUTE_DAYS];
+
+    public TrainingLoad() {}
+
+    // State as persisted; week is in slot order, as returned by weekSlots
+    public TrainingLoad(int firstDay, int day, double acute, double chronic, int[] week) {
+        if (week.length != ACUTE_DAYS) {
+            throw new IllegalArgumentException("Expected " + ACUTE_DAYS + " daily loads, got " + week.length);
+        }
+        this.firstDay = firstDay;
+        this.day = day;
+        this.acute = acute;
+        this.chronic = chronic;
+        System.arraycopy(week, 0, this.week, 0, ACUTE_DAYS);
+    }
+
+    public static int loadOf(Record record) {
+        return record.getDuration() * record.getIntensity();
+    }
+
+    public boolean isEmpty() {
+        return day == NO_DAY;
+    }
+
+    public TrainingLoad copy() {
+        return isEmpty() ? new TrainingLoad() : new TrainingLoad(firstDay, day, acute, chronic, week);
+    }
+
+    // Copy as of the given day; a model already past it is copied unchanged
+    public TrainingLoad at(int epochDay) {
+        TrainingLoad copy = copy();
+        if (!copy.isEmpty() && epochDay > copy.day) {
+            copy.advanceTo(epochDay);
+        }
+        return copy;
+    }
+
+    // Add load on a day (negative to take a deleted record back out)
+    public void add(int epochDay, int load) {
+        if (load <= 0 && (isEmpty() || epochDay > day)) {
+            // Every counted record is on or before the model's day, so this one never was, e.g.
+            // an archived record the backfill skipped
+            return;
+        }
+        if (isEmpty()) {
+            firstDay = epochDay;
+            day = epochDay;
+        } else if (epochDay > day) {
+            advanceTo(epochDay);
+        }
+        if (load > 0) {
+            firstDay = Math.min(firstDay, epochDay);
+        }
+
+        int age = day - epochDay;
+        // Loads are never negative, so neither are the sums; clamping drops rounding residue and
+        // removals of records that were never counted
+        acute = Math.max(0, acute + (1 - ACUTE_DECAY) * load * Math.pow(ACUTE_DECAY, age));
+        chronic = Math.max(0, chronic + (1 - CHRONIC_DECAY) * load * Math.pow(CHRONIC_DECAY, age));
+        if (age < ACUTE_DAYS) {
+            int slot = Math.floorMod(epochDay, ACUTE_DAYS);
+            week[slot] = Math.max(0, week[slot] + load);
+        }
+    }
+
+    public void add(Record record, int sign) {
+        add(record.getEpochDay(), sign * loadOf(record));
+    }
+
+    private void advanceTo(int epochDay) {
+        int gap = epochDay - day;
+        acute *= Math.pow(ACUTE_DECAY, gap);
+        chronic *= Math.pow(CHRONIC_DECAY, gap);
+        if (gap >= ACUTE_DAYS) {
+            Arrays.fill(week, 0);
+        } else {
+            for (int d = day + 1; d <= epochDay; d++) {
+                week[Math.floorMod(d, ACUTE_DAYS)] = 0;
+            }
+        }
+        day = epochDay;
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public float getAcuteLoad() {
+        return (float) acute;
+    }
+
+    public float getChronicLoad() {
+        return (float) chronic;
+    }
+
+    // Raw state for persistence
+    public double getAcuteState() {
+        return acute;
+    }
+
+    public double getChronicState() {
+        return chronic;
+    }
+
+    public int[] weekSlots() {
+        return week.clone();
+    }
+
+    // 0 with no chronic load yet
+    public float getAcuteChronicRatio() {
+        float chronicLoad = getChronicLoad();
+        return chronicLoad > 0 ? getAcuteLoad() / chronicLoad : 0f;
+    }
+
+    public int getWeeklyLoad() {
+        int total = 0;
+        for (int load : week) {
+            total += load;
+        }
+        return total;
+    }
+
+    public float getMonotony() {
+        int total = getWeeklyLoad();
+        if (total <= 0) return 0f;
+
+        double mean = total / (double) ACUTE_DAYS;
+        double variance = 0;
+        for (int load : week) {
+            variance += (load - mean) * (load - mean);
+        }
+        double deviation = Math.sqrt(variance / ACUTE_DAYS);
+        return deviation > 0 ? (float) Math.min(MAX_MONOTONY, mean / deviation) : MAX_MONOTONY;
+    }
+
+    public float getStrain() {
+        return getWeeklyLoad() * getMonotony();
+    }
+
+    // Whether the chronic average has seen enough days to compare against
+    public boolean hasChronicBase() {
+        return !isEmpty() && day - firstDay + 1 >= CHRONIC_DAYS;
+    }
+
+    // Injury risk as of the model's day; call on at(today)
+    public Risk getRisk() {
+        if (isEmpty()) return Risk.NOT_ENOUGH_DATA;
+
+        boolean monotonous = getMonotony() > HIGH_MONOTONY;
+        boolean strained = getStrain() > HIGH_STRAIN;
+        if (!hasChronicBase()) {
+            // Monotony and strain only need the week
+            return monotonous && strained ? Risk.HIGH : monotonous || strained ? Risk.MODERATE : Risk.NOT_ENOUGH_DATA;
+        }
+
+        float ratio = getAcuteChronicRatio();
+        if (ratio > HIGH_RATIO || (monotonous && strained)) return Risk.HIGH;
+        if (ratio > ELEVATED_RATIO || monotonous || strained) return Risk.MODERATE;
+        return Risk.LOW;
+    }
+}
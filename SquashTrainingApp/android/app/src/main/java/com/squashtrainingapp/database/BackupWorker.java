@@ -0,0 +1,61 @@
+package com.squashtrainingapp.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily background job that writes a database snapshot through {@link DatabaseBackup}, keeping
+ * the newest {@link DatabaseBackup#DEFAULT_KEEP}.
+ */
+public class BackupWorker extends Worker {
+    private static final String TAG = "BackupWorker";
+    private static final String WORK_NAME = "database-backup";
+
+    public BackupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Safe to call on every start; an already scheduled job is kept
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(BackupWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            File snapshot = TrainingRepository.getInstance(getApplicationContext())
+                    .backupDatabase(null)
+                    .getResult()
+                    .get();
+            Log.d(TAG, "Wrote " + snapshot.getName());
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Backup failed", e.getCause());
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+}
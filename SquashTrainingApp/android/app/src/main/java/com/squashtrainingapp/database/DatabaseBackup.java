@@ -0,0 +1,457 @@
+package com.squashtrainingapp.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.squashtrainingapp.database.archive.RecordArchive;
+import com.squashtrainingapp.database.migrations.MigrationRunner;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compressed snapshots of the database and the record archive. A snapshot is a zip holding a
+ * consistent copy of the database file followed by the archive's yearly files.
+ *
+ * The copy comes from VACUUM INTO on a second connection where SQLite supports it, which reads
+ * one WAL snapshot while writers carry on. Older SQLite versions copy the file and its log while
+ * holding the write lock, so writers wait for the copy but never see a torn file.
+ *
+ * Restoring happens in two steps. {@link #stage} unpacks a snapshot next to the live files and
+ * checks it, stopping at the first problem. {@link #restore} then swaps it in.
+ */
+public class DatabaseBackup {
+    private static final String TAG = "DatabaseBackup";
+
+    // Snapshots kept by prune(); older ones are deleted
+    public static final int DEFAULT_KEEP = 3;
+
+    // Checks a restore runs through, reported as progress steps
+    public static final int RESTORE_STEPS = 3;
+
+    private static final String FILE_PREFIX = "snapshot-";
+    private static final String FILE_SUFFIX = ".zip";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final String COPY_NAME = "snapshot.db.tmp";
+    private static final String STAGING_NAME = "restore.tmp";
+    private static final String DATABASE_ENTRY = "database.db";
+    private static final String ARCHIVE_ENTRY_PREFIX = "archive/";
+
+    private static final byte[] SQLITE_MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Bytes between progress reports and cancellation checks
+    private static final int PROGRESS_STEP = 1024 * 1024;
+    // VACUUM INTO arrived in SQLite 3.27 (Android 11)
+    private static final int[] VACUUM_INTO_VERSION = { 3, 27 };
+
+    // A snapshot unpacked and checked, ready for restore()
+    public static final class Staged {
+        final File directory;
+        final File database;
+        final File archive;
+
+        Staged(File directory) {
+            this.directory = directory;
+            this.database = new File(directory, DATABASE_ENTRY);
+            this.archive = new File(directory, ARCHIVE_ENTRY_PREFIX);
+        }
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final File directory;
+
+    DatabaseBackup(DatabaseHelper dbHelper, File directory) {
+        this.dbHelper = dbHelper;
+        this.directory = directory;
+    }
+
+    // Snapshots on disk, newest first
+    public List<File> listSnapshots() {
+        List<File> snapshots = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    snapshots.add(file);
+                }
+            }
+        }
+        // Names carry a sortable timestamp
+        Collections.sort(snapshots, Collections.reverseOrder());
+        return snapshots;
+    }
+
+    // Delete all but the newest keep snapshots
+    public void prune(int keep) {
+        List<File> snapshots = listSnapshots();
+        for (int i = keep; i < snapshots.size(); i++) {
+            if (!snapshots.get(i).delete()) {
+                Log.w(TAG, "Could not delete " + snapshots.get(i));
+            }
+        }
+    }
+
+    // Write a new snapshot and return it. Progress is counted in KiB of input packed so far.
+    public File snapshot(DatabaseJob<?> job) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        String name = FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date())
+                + FILE_SUFFIX;
+        File target = new File(directory, name);
+        File partial = new File(directory, name + PARTIAL_SUFFIX);
+        File copy = new File(directory, COPY_NAME);
+        deleteDatabaseFiles(copy);
+
+        long started = SystemClock.elapsedRealtime();
+        boolean complete = false;
+        try {
+            copyDatabase(copy);
+            job.throwIfCancelled();
+
+            // Archive files are replaced by rename, never rewritten in place, so each one read
+            // here is whole. Rows archived after the copy show up twice; restore() drops the
+            // table's copy.
+            List<File> archived = dbHelper.getRecordArchive().files();
+            long total = copy.length();
+            for (File file : archived) {
+                total += file.length();
+            }
+
+            Progress progress = new Progress(job, total);
+            try (ZipOutputStream zip = new ZipOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(partial), BUFFER_SIZE))) {
+                // Pages of a freshly vacuumed file shrink well even at the fastest level
+                zip.setLevel(Deflater.BEST_SPEED);
+                addEntry(zip, DATABASE_ENTRY, copy, progress);
+                for (File file : archived) {
+                    try {
+                        addEntry(zip, ARCHIVE_ENTRY_PREFIX + file.getName(), file, progress);
+                    } catch (FileNotFoundException e) {
+                        // Its last row was deleted since the listing
+                    }
+                }
+            }
+            if (!partial.renameTo(target)) {
+                throw new IOException("Cannot create " + target);
+            }
+            complete = true;
+            Log.d(TAG, "Snapshot " + name + ": " + (total >> 10) + " KiB -> " + (target.length() >> 10)
+                    + " KiB in " + (SystemClock.elapsedRealtime() - started) + " ms");
+            return target;
+        } finally {
+            deleteDatabaseFiles(copy);
+            if (!complete && partial.exists() && !partial.delete()) {
+                Log.w(TAG, "Could not delete " + partial);
+            }
+        }
+    }
+
+    // Unpack a snapshot beside the live files and check it: zip checksums and the SQLite header
+    // while unpacking, then SQLite's own integrity check, then the schema version. Nothing live
+    // is touched; a failed check throws and leaves nothing behind.
+    public Staged stage(File snapshot, DatabaseJob<?> job) throws IOException {
+        File stagingDir = new File(directory, STAGING_NAME);
+        deleteRecursively(stagingDir);
+        Staged staged = new Staged(stagingDir);
+        if (!staged.archive.mkdirs()) {
+            throw new IOException("Cannot create " + staged.archive);
+        }
+
+        boolean valid = false;
+        try {
+            job.reportProgress(0, RESTORE_STEPS);
+            unpack(snapshot, staged, job);
+            job.reportProgress(1, RESTORE_STEPS);
+            checkIntegrity(staged.database);
+            job.throwIfCancelled();
+            job.reportProgress(2, RESTORE_STEPS);
+            checkSchema(staged.database);
+            job.reportProgress(RESTORE_STEPS, RESTORE_STEPS);
+            valid = true;
+            return staged;
+        } finally {
+            if (!valid) {
+                deleteRecursively(stagingDir);
+            }
+        }
+    }
+
+    // Replace the live database and archive with a staged snapshot. Call on the writer thread so
+    // no write is in progress.
+    public void restore(Staged staged) throws IOException {
+        try {
+            dbHelper.restoreFrom(staged.database, staged.archive);
+        } finally {
+            deleteRecursively(staged.directory);
+        }
+    }
+
+    private void copyDatabase(File copy) throws IOException {
+        SQLiteDatabase live = dbHelper.getDatabase();
+        try {
+            if (supportsVacuumInto(live)) {
+                vacuumInto(live.getPath(), copy);
+            } else {
+                copyWithWritesPaused(live, copy);
+            }
+        } catch (SQLiteException e) {
+            throw new IOException("Could not copy the database", e);
+        }
+    }
+
+    // Runs on its own connection: the shared one would hold up every write for the duration
+    private static void vacuumInto(String livePath, File copy) {
+        SQLiteDatabase reader = SQLiteDatabase.openDatabase(livePath, null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        try {
+            reader.execSQL("VACUUM INTO ?", new Object[] { copy.getPath() });
+        } finally {
+            reader.close();
+        }
+    }
+
+    // Holding the write lock stops commits and checkpoints, so the file and its log stay a
+    // matching pair while they are copied
+    private static void copyWithWritesPaused(SQLiteDatabase live, File copy) throws IOException {
+        File liveFile = new File(live.getPath());
+        File liveLog = new File(live.getPath() + "-wal");
+        File copyLog = new File(copy.getPath() + "-wal");
+        live.beginTransactionNonExclusive();
+        try {
+            copyFile(liveFile, copy);
+            if (liveLog.length() > 0) {
+                copyFile(liveLog, copyLog);
+            }
+        } finally {
+            live.endTransaction();
+        }
+
+        // Opening without WAL replays the copied log into the file and removes it
+        SQLiteDatabase.openDatabase(copy.getPath(), null, SQLiteDatabase.OPEN_READWRITE).close();
+    }
+
+    private static boolean supportsVacuumInto(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT sqlite_version()", null);
+        try {
+            if (!cursor.moveToFirst()) return false;
+            String[] parts = cursor.getString(0).split("\\.");
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > VACUUM_INTO_VERSION[0]
+                    || (major == VACUUM_INTO_VERSION[0] && minor >= VACUUM_INTO_VERSION[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, File file, Progress progress)
+            throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            zip.putNextEntry(new ZipEntry(name));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+                progress.add(read);
+            }
+            zip.closeEntry();
+        }
+    }
+
+    // The database entry must come first so a file that is not a snapshot fails on its first bytes
+    private static void unpack(File snapshot, Staged staged, DatabaseJob<?> job) throws IOException {
+        boolean sawDatabase = false;
+        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(snapshot))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (!sawDatabase) {
+                    if (!DATABASE_ENTRY.equals(name)) {
+                        throw new IOException("Not a database snapshot: " + snapshot.getName());
+                    }
+                    unpackDatabase(zip, staged.database, job);
+                    sawDatabase = true;
+                } else if (name.startsWith(ARCHIVE_ENTRY_PREFIX)) {
+                    String fileName = name.substring(ARCHIVE_ENTRY_PREFIX.length());
+                    if (fileName.isEmpty() || fileName.contains("/") || fileName.contains("..")) {
+                        throw new IOException("Bad archive entry " + name);
+                    }
+                    File file = new File(staged.archive, fileName);
+                    copyStream(zip, file, job);
+                    RecordArchive.verify(file);
+                }
+                // ZipInputStream checks each entry's CRC as it reaches the entry's end
+            }
+        }
+        if (!sawDatabase) {
+            throw new IOException("Empty snapshot: " + snapshot.getName());
+        }
+    }
+
+    private static void unpackDatabase(InputStream in, File target, DatabaseJob<?> job) throws IOException {
+        byte[] header = new byte[SQLITE_MAGIC.length];
+        int read = 0;
+        while (read < header.length) {
+            int n = in.read(header, read, header.length - read);
+            if (n == -1) break;
+            read += n;
+        }
+        if (!Arrays.equals(header, SQLITE_MAGIC)) {
+            throw new IOException("Snapshot does not hold a SQLite database");
+        }
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE)) {
+            out.write(header);
+            copy(in, out, job);
+        }
+    }
+
+    private static void checkIntegrity(File database) throws IOException {
+        SQLiteDatabase db = openStaged(database);
+        try {
+            Cursor cursor = db.rawQuery("PRAGMA quick_check", null);
+            String result;
+            try {
+                result = cursor.moveToFirst() ? cursor.getString(0) : null;
+            } finally {
+                cursor.close();
+            }
+            if (!"ok".equals(result)) {
+                throw new IOException("Snapshot failed its integrity check: " + result);
+            }
+        } catch (SQLiteException e) {
+            throw new IOException("Snapshot failed its integrity check", e);
+        } finally {
+            db.close();
+        }
+    }
+
+    // Older snapshots are migrated on open; newer ones or ones predating the baseline cannot be
+    private static void checkSchema(File database) throws IOException {
+        SQLiteDatabase db = openStaged(database);
+        try {
+            int version = db.getVersion();
+            if (version > DatabaseContract.DATABASE_VERSION || !MigrationRunner.canMigrate(version)) {
+                throw new IOException("Snapshot schema version " + version + " cannot be restored");
+            }
+            for (String table : new String[] { DatabaseContract.TABLE_RECORDS, DatabaseContract.TABLE_USER }) {
+                long found = DatabaseUtils.queryNumEntries(db, "sqlite_master",
+                        "type = 'table' AND name = ?", new String[] { table });
+                if (found == 0) {
+                    throw new IOException("Snapshot is missing the " + table + " table");
+                }
+            }
+        } catch (SQLiteException e) {
+            throw new IOException("Snapshot schema could not be read", e);
+        } finally {
+            db.close();
+        }
+    }
+
+    // The default error handler deletes a corrupt file; keep it so the check can report it
+    private static SQLiteDatabase openStaged(File database) throws IOException {
+        try {
+            return SQLiteDatabase.openDatabase(database.getPath(), null, SQLiteDatabase.OPEN_READONLY,
+                    corruptDb -> { });
+        } catch (SQLiteException e) {
+            throw new IOException("Snapshot database could not be opened", e);
+        }
+    }
+
+    private static void copyFile(File source, File target) throws IOException {
+        try (InputStream in = new FileInputStream(source)) {
+            copyStream(in, target, null);
+        }
+    }
+
+    private static void copyStream(InputStream in, File target, DatabaseJob<?> job) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE)) {
+            copy(in, out, job);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out, DatabaseJob<?> job) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long sinceCheck = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            sinceCheck += read;
+            if (job != null && sinceCheck >= PROGRESS_STEP) {
+                job.throwIfCancelled();
+                sinceCheck = 0;
+            }
+        }
+    }
+
+    private static void deleteDatabaseFiles(File database) {
+        for (String suffix : new String[] { "", "-wal", "-shm", "-journal" }) {
+            File file = new File(database.getPath() + suffix);
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Could not delete " + file);
+            }
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    // Bytes written so far, reported in KiB so a large database still fits the int progress
+    private static final class Progress {
+        private final DatabaseJob<?> job;
+        private final int totalKib;
+        private long done;
+        private long sinceReport;
+
+        Progress(DatabaseJob<?> job, long totalBytes) {
+            this.job = job;
+            this.totalKib = (int) (totalBytes >> 10);
+            job.reportProgress(0, totalKib);
+        }
+
+        void add(int bytes) {
+            done += bytes;
+            sinceReport += bytes;
+            if (sinceReport >= PROGRESS_STEP) {
+                sinceReport = 0;
+                job.throwIfCancelled();
+                job.reportProgress((int) Math.min(done >> 10, totalKib), totalKib);
+            }
+        }
+    }
+}
@@ -20,7 +20,7 @@ public final class DatabaseContract {
     
     // Database Info
     public static final String DATABASE_NAME = "squashTraining.db";
-    public static final int DATABASE_VERSION = 3; // Incremented for workout sessions
+    public static final int DATABASE_VERSION = 13; // Incremented for Hangul bigrams in the search index
     
     // Table Names
     public static final String TABLE_EXERCISES = "exercises";
@@ -29,6 +29,11 @@ public final class DatabaseContract {
     public static final String TABLE_TRAINING_PROGRAMS = "training_programs";
     public static final String TABLE_PROGRAM_ENROLLMENTS = "program_enrollments";
     public static final String TABLE_WORKOUT_SESSIONS = "workout_sessions";
+    public static final String TABLE_DAILY_STATS = "daily_stats";
+    public static final String TABLE_SEARCH_INDEX = "search_index";
+    public static final String TABLE_ACTIVITY_DAYS = "activity_days";
+    public static final String TABLE_PENDING_WRITES = "pending_writes";
+    public static final String TABLE_TRAINING_LOAD = "training_load";
     
     // Common columns
     public static final String COLUMN_ID = "id";
@@ -49,6 +54,10 @@ public final class DatabaseContract {
     public static final String COLUMN_RECORD_FATIGUE = "fatigue";
     public static final String COLUMN_RECORD_MEMO = "memo";
     public static final String COLUMN_RECORD_DATE = "date";
+    public static final String COLUMN_RECORD_DATE_MILLIS = "date_millis";
+    public static final String COLUMN_RECORD_CATEGORY = "category";
+    // Local epoch day the rollup and training load count the record under, fixed at insert
+    public static final String COLUMN_RECORD_EPOCH_DAY = "epoch_day";
     
     // User Table Columns
     public static final String COLUMN_USER_NAME = "name";
@@ -92,6 +101,46 @@ public final class DatabaseContract {
     public static final String COLUMN_SESSION_CREATED_AT = "created_at";
     public static final String COLUMN_SESSION_UPDATED_AT = "updated_at";
     
+    // Daily Stats Table Columns (one row per local day and exercise type)
+    public static final String COLUMN_DAILY_DAY = "day";
+    public static final String COLUMN_DAILY_CATEGORY = "category";
+    public static final String COLUMN_DAILY_SESSIONS = "sessions";
+    public static final String COLUMN_DAILY_MINUTES = "minutes";
+    public static final String COLUMN_DAILY_SETS = "sets";
+    public static final String COLUMN_DAILY_REPS = "reps";
+    public static final String COLUMN_DAILY_INTENSITY_SUM = "intensity_sum";
+    public static final String COLUMN_DAILY_FATIGUE_SUM = "fatigue_sum";
+    
+    // Activity Days Columns. Bit (day & 63) of the row for word (day >> 6) is set when that local
+    // epoch day has any daily_stats row
+    public static final String COLUMN_ACTIVITY_WORD = "word";
+    public static final String COLUMN_ACTIVITY_BITS = "bits";
+    
+    // Search Index Columns. docid = source row id * SEARCH_SOURCE_SLOTS + SEARCH_SOURCE_*
+    public static final String COLUMN_SEARCH_TITLE = "title";
+    public static final String COLUMN_SEARCH_BODY = "body";
+    // Bigrams of the Hangul in title and body, so words match inside compounds; written by the DAOs
+    public static final String COLUMN_SEARCH_GRAMS = "grams";
+    public static final int SEARCH_SOURCE_SLOTS = 4;
+    public static final int SEARCH_SOURCE_RECORD = 1;
+    public static final int SEARCH_SOURCE_EXERCISE = 2;
+    public static final int SEARCH_SOURCE_PROGRAM = 3;
+    
+    // Pending Writes Columns. Firestore mutations waiting for WriteBehindQueue to flush them;
+    // fields is the JSON of the field map
+    public static final String COLUMN_PENDING_PATH = "path";
+    public static final String COLUMN_PENDING_OP = "op";
+    public static final String COLUMN_PENDING_FIELDS = "fields";
+    public static final String COLUMN_PENDING_CREATED_AT = "created_at";
+    
+    // Training Load Columns. A single row with the state of analytics.TrainingLoad; week holds
+    // the last seven daily loads, comma separated, in the model's slot order
+    public static final String COLUMN_LOAD_FIRST_DAY = "first_day";
+    public static final String COLUMN_LOAD_DAY = "day";
+    public static final String COLUMN_LOAD_ACUTE = "acute";
+    public static final String COLUMN_LOAD_CHRONIC = "chronic";
+    public static final String COLUMN_LOAD_WEEK = "week";
+    
     // SQL Create Statements
     public static final String SQL_CREATE_EXERCISES = "CREATE TABLE " + TABLE_EXERCISES +
             "(" +
@@ -176,6 +225,78 @@ public final class DatabaseContract {
             "FOREIGN KEY(" + COLUMN_SESSION_PROGRAM_ID + ") REFERENCES " + TABLE_TRAINING_PROGRAMS + "(" + COLUMN_ID + ")" +
             ")";
     
+    // SQL Create Daily Stats Table
+    public static final String SQL_CREATE_DAILY_STATS = "CREATE TABLE " + TABLE_DAILY_STATS +
+            "(" +
+            COLUMN_DAILY_DAY + " INTEGER NOT NULL," +
+            COLUMN_DAILY_CATEGORY + " TEXT NOT NULL," +
+            COLUMN_DAILY_SESSIONS + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_DAILY_MINUTES + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_DAILY_SETS + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_DAILY_REPS + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_DAILY_INTENSITY_SUM + " INTEGER NOT NULL DEFAULT 0," +
+            COLUMN_DAILY_FATIGUE_SUM + " INTEGER NOT NULL DEFAULT 0," +
+            "PRIMARY KEY(" + COLUMN_DAILY_DAY + ", " + COLUMN_DAILY_CATEGORY + ")" +
+            ") WITHOUT ROWID";
+    
+    // SQL Create Activity Days Table
+    public static final String SQL_CREATE_ACTIVITY_DAYS = "CREATE TABLE " + TABLE_ACTIVITY_DAYS +
+            "(" +
+            COLUMN_ACTIVITY_WORD + " INTEGER PRIMARY KEY," +
+            COLUMN_ACTIVITY_BITS + " INTEGER NOT NULL DEFAULT 0" +
+            ")";
+    
+    // SQL Create Pending Writes Table. id order is the order the mutations were made in
+    public static final String SQL_CREATE_PENDING_WRITES = "CREATE TABLE " + TABLE_PENDING_WRITES +
+            "(" +
+            COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+            COLUMN_PENDING_PATH + " TEXT NOT NULL," +
+            COLUMN_PENDING_OP + " TEXT NOT NULL," +
+            COLUMN_PENDING_FIELDS + " TEXT NOT NULL," +
+            COLUMN_PENDING_CREATED_AT + " INTEGER NOT NULL" +
+            ")";
+    
+    // SQL Create Training Load Table
+    public static final String SQL_CREATE_TRAINING_LOAD = "CREATE TABLE " + TABLE_TRAINING_LOAD +
+            "(" +
+            COLUMN_ID + " INTEGER PRIMARY KEY," +
+            COLUMN_LOAD_FIRST_DAY + " INTEGER NOT NULL," +
+            COLUMN_LOAD_DAY + " INTEGER NOT NULL," +
+            COLUMN_LOAD_ACUTE + " REAL NOT NULL," +
+            COLUMN_LOAD_CHRONIC + " REAL NOT NULL," +
+            COLUMN_LOAD_WEEK + " TEXT NOT NULL" +
+            ")";
+    
+    // Coalescing looks up the newest pending write for a document
+    public static final String INDEX_PENDING_WRITES_PATH = "idx_pending_writes_path";
+    public static final String SQL_CREATE_PENDING_WRITES_PATH_INDEX = "CREATE INDEX IF NOT EXISTS " +
+            INDEX_PENDING_WRITES_PATH + " ON " + TABLE_PENDING_WRITES + "(" +
+            COLUMN_PENDING_PATH + ", " + COLUMN_ID + ")";
+    
+    // SQL Create Search Index. unicode61 folds case and diacritics for every script but keeps a
+    // Hangul compound as one token, hence the grams column; the prefix indexes keep 2- and
+    // 3-character typeahead queries off the full term list
+    public static final String SQL_CREATE_SEARCH_INDEX = "CREATE VIRTUAL TABLE " + TABLE_SEARCH_INDEX +
+            " USING fts4(" +
+            COLUMN_SEARCH_TITLE + ", " +
+            COLUMN_SEARCH_BODY + ", " +
+            COLUMN_SEARCH_GRAMS + ", " +
+            "tokenize=unicode61, prefix=\"2,3\")";
+    
+    // Range scans and history ordering use (date_millis, id); duration rides along so
+    // date + duration aggregates are answered from the index alone
+    public static final String INDEX_RECORDS_DATE_MILLIS = "idx_records_date_millis";
+    public static final String SQL_CREATE_RECORDS_DATE_INDEX = "CREATE INDEX IF NOT EXISTS " +
+            INDEX_RECORDS_DATE_MILLIS + " ON " + TABLE_RECORDS + "(" +
+            COLUMN_RECORD_DATE_MILLIS + ", " + COLUMN_ID + ", " + COLUMN_RECORD_DURATION + ")";
+    
+    // Category filters and per-category counts; (date_millis, id) keeps filtered history paging
+    // in index order
+    public static final String INDEX_RECORDS_CATEGORY = "idx_records_category";
+    public static final String SQL_CREATE_RECORDS_CATEGORY_INDEX = "CREATE INDEX IF NOT EXISTS " +
+            INDEX_RECORDS_CATEGORY + " ON " + TABLE_RECORDS + "(" +
+            COLUMN_RECORD_CATEGORY + ", " + COLUMN_RECORD_DATE_MILLIS + ", " + COLUMN_ID + ")";
+    
     // SQL Delete Statements
     public static final String SQL_DELETE_EXERCISES = "DROP TABLE IF EXISTS " + TABLE_EXERCISES;
     public static final String SQL_DELETE_RECORDS = "DROP TABLE IF EXISTS " + TABLE_RECORDS;
@@ -183,4 +304,9 @@ public final class DatabaseContract {
     public static final String SQL_DELETE_TRAINING_PROGRAMS = "DROP TABLE IF EXISTS " + TABLE_TRAINING_PROGRAMS;
     public static final String SQL_DELETE_PROGRAM_ENROLLMENTS = "DROP TABLE IF EXISTS " + TABLE_PROGRAM_ENROLLMENTS;
     public static final String SQL_DELETE_WORKOUT_SESSIONS = "DROP TABLE IF EXISTS " + TABLE_WORKOUT_SESSIONS;
+    public static final String SQL_DELETE_DAILY_STATS = "DROP TABLE IF EXISTS " + TABLE_DAILY_STATS;
+    public static final String SQL_DELETE_SEARCH_INDEX = "DROP TABLE IF EXISTS " + TABLE_SEARCH_INDEX;
+    public static final String SQL_DELETE_ACTIVITY_DAYS = "DROP TABLE IF EXISTS " + TABLE_ACTIVITY_DAYS;
+    public static final String SQL_DELETE_PENDING_WRITES = "DROP TABLE IF EXISTS " + TABLE_PENDING_WRITES;
+    public static final String SQL_DELETE_TRAINING_LOAD = "DROP TABLE IF EXISTS " + TABLE_TRAINING_LOAD;
 }
\ No newline at end of file
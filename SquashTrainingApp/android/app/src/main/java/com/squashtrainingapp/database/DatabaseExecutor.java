@@ -0,0 +1,76 @@
+package com.squashtrainingapp.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.squashtrainingapp.BuildConfig;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that own all database work. Reads share a small pool (WAL lets them run next to a
+ * write); writes go through a single thread so they apply in submission order. Long-running
+ * jobs such as exports get their own thread so they never hold up a screen's reads.
+ */
+public final class DatabaseExecutor {
+    // The framework keeps a handful of WAL reader connections; more threads would only queue on them
+    private static final int READ_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService READS = newPool("db-read", READ_THREADS);
+    private static final ExecutorService WRITES = newPool("db-write", 1);
+    private static final ExecutorService JOBS = newPool("db-job", 1);
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_THREAD = MAIN_HANDLER::post;
+
+    private DatabaseExecutor() {}
+
+    public static Executor reads() {
+        return READS;
+    }
+
+    public static Executor writes() {
+        return WRITES;
+    }
+
+    // Exports, imports and other bulk work; one at a time
+    public static Executor jobs() {
+        return JOBS;
+    }
+
+    // Delivers callbacks on the UI thread
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+
+    // Debug builds fail fast when database work reaches the UI thread; release builds let it through
+    public static void assertNotMainThread() {
+        if (BuildConfig.DEBUG && Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException(
+                    "Database accessed on the main thread; go through TrainingRepository instead");
+        }
+    }
+
+    private static ExecutorService newPool(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
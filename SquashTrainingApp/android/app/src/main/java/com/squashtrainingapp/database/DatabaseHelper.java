@@ -3,18 +3,77 @@ package com.squashtrainingapp.database;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+import com.squashtrainingapp.database.archive.RecordArchive;
+import com.squashtrainingapp.database.dao.DailyStatsDao;
 import com.squashtrainingapp.database.dao.ExerciseDao;
+import com.squashtrainingapp.database.dao.PendingWriteDao;
 import com.squashtrainingapp.database.dao.RecordDao;
+import com.squashtrainingapp.database.dao.SearchDao;
+import com.squashtrainingapp.database.dao.TrainingLoadDao;
+import com.squashtrainingapp.database.dao.TrainingProgramDao;
 import com.squashtrainingapp.database.dao.UserDao;
+import com.squashtrainingapp.database.dao.WorkoutSessionDao;
+import com.squashtrainingapp.database.migrations.MigrationRunner;
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.models.User;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     
+    private static final String TAG = "DatabaseHelper";
+    
     private static DatabaseHelper instance;
     
+    // Page cache for the primary connection, in KiB (negative values are KiB for SQLite)
+    private static final int CACHE_SIZE_KIB = 4096;
+    
+    // The database file and the files SQLite keeps beside it
+    private static final String[] DATABASE_FILE_SUFFIXES = { "", "-wal", "-shm", "-journal" };
+    // Live database files are renamed to this while a restore swaps a snapshot in
+    private static final String PREVIOUS_SUFFIX = ".previous";
+    
+    // Shared connection, opened once and kept for the life of the process
+    private SQLiteDatabase database;
+    
+    // Reads on the read pool hold this shared while they use the connection, and restoreFrom
+    // holds it exclusively while it closes and replaces the connection. Writes and jobs stay out
+    // of it: each runs on its own single thread, and a restore is a job that hands off to the
+    // writer, so neither thread has anything else running when it does. Take it before any
+    // synchronized method of this class, never inside one.
+    private final ReentrantReadWriteLock connectionGate = new ReentrantReadWriteLock();
+    
     // DAOs
     private ExerciseDao exerciseDao;
     private RecordDao recordDao;
     private UserDao userDao;
+    private TrainingProgramDao trainingProgramDao;
+    private WorkoutSessionDao workoutSessionDao;
+    private DailyStatsDao dailyStatsDao;
+    private SearchDao searchDao;
+    private PendingWriteDao pendingWriteDao;
+    private TrainingLoadDao trainingLoadDao;
+    
+    // Results of hot reads, dropped as DAOs write to the tables they came from
+    private final QueryCache queryCache = new QueryCache(QueryCache.DEFAULT_MAX_ROWS);
+    
+    // Records moved out of the records table by RecordDao.archiveBefore
+    private final RecordArchive recordArchive;
+    
+    private final DatabaseBackup backup;
+    
+    private final List<UserDao.OnUserChangedListener> userListeners = new CopyOnWriteArrayList<>();
+    private final List<OnRestoredListener> restoredListeners = new CopyOnWriteArrayList<>();
+    
+    // Told after restoreFrom has put a snapshot in place, on the writer thread that ran it, so
+    // holders of state derived from the old database can drop it before the next write
+    public interface OnRestoredListener {
+        void onRestored();
+    }
     
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
@@ -25,10 +84,48 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     private DatabaseHelper(Context context) {
         super(context, DatabaseContract.DATABASE_NAME, null, DatabaseContract.DATABASE_VERSION);
+        // WAL lets the framework serve reads from its small reader pool while a write is in progress
+        setWriteAheadLoggingEnabled(true);
+        recordArchive = new RecordArchive(new File(context.getFilesDir(), "archive"));
+        backup = new DatabaseBackup(this, new File(context.getFilesDir(), "backups"));
+    }
+    
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // WAL only needs fsync at checkpoints to stay durable across crashes
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        db.execSQL("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+    }
+    
+    // For TrainingRepository's reads; see connectionGate
+    void enterRead() {
+        connectionGate.readLock().lock();
+    }
+    
+    void exitRead() {
+        connectionGate.readLock().unlock();
+    }
+    
+    // Every DAO reads and writes through this connection. Nothing outside the helper may close it.
+    public synchronized SQLiteDatabase getDatabase() {
+        DatabaseExecutor.assertNotMainThread();
+        if (database == null || !database.isOpen()) {
+            database = getWritableDatabase();
+        }
+        return database;
     }
     
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createSchema(db);
+        
+        // Insert initial data
+        insertInitialData(db);
+    }
+    
+    // Build the current schema on an empty database
+    static void createSchema(SQLiteDatabase db) {
         // Create tables
         db.execSQL(DatabaseContract.SQL_CREATE_EXERCISES);
         db.execSQL(DatabaseContract.SQL_CREATE_RECORDS);
@@ -37,19 +134,29 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(DatabaseContract.SQL_CREATE_PROGRAM_ENROLLMENTS);
         db.execSQL(DatabaseContract.SQL_CREATE_WORKOUT_SESSIONS);
         
-        // Insert initial data
-        insertInitialData(db);
+        // Tables above are the baseline schema; replay migrations to reach the current version
+        MigrationRunner.migrate(db, MigrationRunner.BASELINE_VERSION, DatabaseContract.DATABASE_VERSION);
     }
     
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop existing tables
+        if (MigrationRunner.canMigrate(oldVersion)) {
+            MigrationRunner.migrate(db, recordArchive, oldVersion, newVersion);
+            return;
+        }
+        
+        // Schemas older than the baseline have no migration path: drop existing tables
         db.execSQL(DatabaseContract.SQL_DELETE_WORKOUT_SESSIONS);
         db.execSQL(DatabaseContract.SQL_DELETE_PROGRAM_ENROLLMENTS);
         db.execSQL(DatabaseContract.SQL_DELETE_TRAINING_PROGRAMS);
         db.execSQL(DatabaseContract.SQL_DELETE_EXERCISES);
         db.execSQL(DatabaseContract.SQL_DELETE_RECORDS);
         db.execSQL(DatabaseContract.SQL_DELETE_USER);
+        db.execSQL(DatabaseContract.SQL_DELETE_DAILY_STATS);
+        db.execSQL(DatabaseContract.SQL_DELETE_SEARCH_INDEX);
+        db.execSQL(DatabaseContract.SQL_DELETE_ACTIVITY_DAYS);
+        db.execSQL(DatabaseContract.SQL_DELETE_PENDING_WRITES);
+        db.execSQL(DatabaseContract.SQL_DELETE_TRAINING_LOAD);
         
         // Recreate tables
         onCreate(db);
@@ -65,35 +172,166 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         userDao.insertDefaultUser();
     }
     
-    // Get DAO instances
-    public ExerciseDao getExerciseDao() {
+    // Get DAO instances. Debug builds reject calls from the main thread; UI code goes through
+    // TrainingRepository.
+    public synchronized ExerciseDao getExerciseDao() {
+        DatabaseExecutor.assertNotMainThread();
         if (exerciseDao == null) {
-            exerciseDao = new ExerciseDao(getWritableDatabase());
+            exerciseDao = new ExerciseDao(getDatabase(), queryCache);
         }
         return exerciseDao;
     }
     
-    public RecordDao getRecordDao() {
+    public synchronized RecordDao getRecordDao() {
+        DatabaseExecutor.assertNotMainThread();
         if (recordDao == null) {
-            recordDao = new RecordDao(getWritableDatabase());
+            recordDao = new RecordDao(getDatabase(), queryCache, recordArchive);
         }
         return recordDao;
     }
     
-    public UserDao getUserDao() {
+    public synchronized UserDao getUserDao() {
+        DatabaseExecutor.assertNotMainThread();
         if (userDao == null) {
-            userDao = new UserDao(getWritableDatabase());
+            userDao = new UserDao(getDatabase(), queryCache);
         }
         return userDao;
     }
     
-    public void clearAllData() {
-        SQLiteDatabase db = getWritableDatabase();
+    public synchronized TrainingProgramDao getTrainingProgramDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (trainingProgramDao == null) {
+            trainingProgramDao = new TrainingProgramDao(getDatabase(), queryCache);
+        }
+        return trainingProgramDao;
+    }
+    
+    public synchronized WorkoutSessionDao getWorkoutSessionDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (workoutSessionDao == null) {
+            workoutSessionDao = new WorkoutSessionDao(getDatabase(), queryCache);
+        }
+        return workoutSessionDao;
+    }
+    
+    public synchronized DailyStatsDao getDailyStatsDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (dailyStatsDao == null) {
+            dailyStatsDao = new DailyStatsDao(getDatabase(), queryCache);
+        }
+        return dailyStatsDao;
+    }
+    
+    public synchronized SearchDao getSearchDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (searchDao == null) {
+            searchDao = new SearchDao(getDatabase());
+        }
+        return searchDao;
+    }
+    
+    public synchronized PendingWriteDao getPendingWriteDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (pendingWriteDao == null) {
+            pendingWriteDao = new PendingWriteDao(getDatabase());
+        }
+        return pendingWriteDao;
+    }
+    
+    public synchronized TrainingLoadDao getTrainingLoadDao() {
+        DatabaseExecutor.assertNotMainThread();
+        if (trainingLoadDao == null) {
+            trainingLoadDao = new TrainingLoadDao(getDatabase(), queryCache);
+        }
+        return trainingLoadDao;
+    }
+    
+    // Not tied to the connection, so safe to use from any thread (MemoryManager trims it)
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+    
+    public RecordArchive getRecordArchive() {
+        return recordArchive;
+    }
+    
+    public DatabaseBackup getBackup() {
+        return backup;
+    }
+    
+    public void addUserChangedListener(UserDao.OnUserChangedListener listener) {
+        userListeners.add(listener);
+    }
+    
+    public void removeUserChangedListener(UserDao.OnUserChangedListener listener) {
+        userListeners.remove(listener);
+    }
+    
+    public void addRestoredListener(OnRestoredListener listener) {
+        restoredListeners.add(listener);
+    }
+    
+    // Insert a record and credit it to the user in one transaction, then pass the updated user
+    // to listeners. Returns the record id, or -1 if nothing was saved.
+    public long saveWorkout(Record record) {
+        SQLiteDatabase db = getDatabase();
+        long id;
+        User user = null;
+        db.beginTransaction();
+        try {
+            id = getRecordDao().insert(record);
+            if (id != -1) {
+                user = getUserDao().applyStatsDelta(UserDao.StatsDelta.forRecord(record));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        
+        if (user != null) {
+            notifyUserChanged(user);
+        }
+        return id;
+    }
+    
+    // Insert a batch of records and credit them to the user in one transaction, so the rollup
+    // and the user totals are written once per batch. Records already saved are skipped; the
+    // result is how many were new. Call it from a repository write.
+    public int saveWorkouts(List<Record> records) {
+        List<Record> fresh = getRecordDao().withoutDuplicates(records);
+        if (fresh.isEmpty()) return 0;
+        
+        User user;
+        RecordDao.Inserter inserter = getRecordDao().newInserter();
+        try {
+            for (Record record : fresh) {
+                inserter.add(record);
+            }
+            user = getUserDao().applyStatsDelta(UserDao.StatsDelta.forRecords(fresh));
+            inserter.commit();
+        } finally {
+            inserter.close();
+        }
+        
+        notifyUserChanged(user);
+        return fresh.size();
+    }
+    
+    private void notifyUserChanged(User user) {
+        for (UserDao.OnUserChangedListener listener : userListeners) {
+            listener.onUserChanged(user);
+        }
+    }
+    
+    public synchronized void clearAllData() {
+        SQLiteDatabase db = getDatabase();
         db.beginTransaction();
         try {
             // Clear all tables
             db.delete(DatabaseContract.TABLE_EXERCISES, null, null);
             db.delete(DatabaseContract.TABLE_RECORDS, null, null);
+            db.delete(DatabaseContract.TABLE_DAILY_STATS, null, null);
+            db.delete(DatabaseContract.TABLE_TRAINING_LOAD, null, null);
             db.delete(DatabaseContract.TABLE_USER, null, null);
             
             // Re-seed initial data
@@ -104,9 +342,96 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.endTransaction();
         }
         
-        // Reset cached DAOs
+        recordArchive.clear();
+        queryCache.invalidateAll();
+        resetDaos();
+    }
+    
+    // Put a checked snapshot (see DatabaseBackup.stage) in place of the database file and the
+    // record archive. The file is reopened on next use, migrating it if it is older. Waits for
+    // reads already using the connection to finish, and holds new ones back until it is done.
+    void restoreFrom(File snapshotDatabase, File snapshotArchive) throws IOException {
+        connectionGate.writeLock().lock();
+        try {
+            swapIn(snapshotDatabase, snapshotArchive);
+        } finally {
+            connectionGate.writeLock().unlock();
+        }
+    }
+    
+    private synchronized void swapIn(File snapshotDatabase, File snapshotArchive) throws IOException {
+        File live = new File(getDatabase().getPath());
+        close();
+        database = null;
+        resetDaos();
+        queryCache.invalidateAll();
+        
+        // Both halves are moved aside before either is replaced, so a failure puts both back
+        RecordArchive.Replacement archive = recordArchive.replaceWith(snapshotArchive);
+        boolean swapped = false;
+        try {
+            renameDatabaseFiles(live, "", PREVIOUS_SUFFIX);
+            try {
+                if (!snapshotDatabase.renameTo(live)) {
+                    throw new IOException("Cannot replace " + live);
+                }
+                swapped = true;
+            } finally {
+                if (!swapped) {
+                    renameDatabaseFiles(live, PREVIOUS_SUFFIX, "");
+                }
+            }
+        } finally {
+            if (!swapped) {
+                recordArchive.abort(archive);
+            }
+        }
+        recordArchive.commit(archive);
+        for (String suffix : DATABASE_FILE_SUFFIXES) {
+            File previous = new File(live.getPath() + suffix + PREVIOUS_SUFFIX);
+            if (previous.exists() && !previous.delete()) {
+                Log.w(TAG, "Could not delete " + previous);
+            }
+        }
+        
+        // A snapshot taken while an archive run committed holds some rows in both places
+        getRecordDao().deleteArchivedFromTable();
+        // Writes queued before the snapshot was taken were sent since; replaying them would repeat
+        // their increments
+        getPendingWriteDao().deleteAll();
+        for (OnRestoredListener listener : restoredListeners) {
+            listener.onRestored();
+        }
+        notifyUserChanged(getUserDao().getUser());
+    }
+    
+    // Rename the database and the files beside it from one suffix to another, moving back the
+    // ones already renamed if one cannot be
+    private static void renameDatabaseFiles(File database, String from, String to) throws IOException {
+        for (int i = 0; i < DATABASE_FILE_SUFFIXES.length; i++) {
+            File source = new File(database.getPath() + DATABASE_FILE_SUFFIXES[i] + from);
+            if (!source.exists()) continue;
+            if (!source.renameTo(new File(database.getPath() + DATABASE_FILE_SUFFIXES[i] + to))) {
+                for (int j = 0; j < i; j++) {
+                    File renamed = new File(database.getPath() + DATABASE_FILE_SUFFIXES[j] + to);
+                    if (renamed.exists()) {
+                        renamed.renameTo(new File(database.getPath() + DATABASE_FILE_SUFFIXES[j] + from));
+                    }
+                }
+                throw new IOException("Cannot move " + source);
+            }
+        }
+    }
+    
+    private void resetDaos() {
         exerciseDao = null;
         recordDao = null;
         userDao = null;
+        trainingProgramDao = null;
+        workoutSessionDao = null;
+        dailyStatsDao = null;
+        searchDao = null;
+        pendingWriteDao = null;
+        trainingLoadDao = null;
     }
 }
\ No newline at end of file
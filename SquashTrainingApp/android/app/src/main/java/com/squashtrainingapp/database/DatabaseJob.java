@@ -0,0 +1,70 @@
+package com.squashtrainingapp.database;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle to a long-running job on {@link DatabaseExecutor#jobs()}, started through
+ * {@link TrainingRepository#startJob}. Cancelling is cooperative: the job checks in between
+ * rows and its result then fails with a {@link CancellationException}.
+ */
+public class DatabaseJob<T> {
+
+    public interface Work<T> {
+        T run(DatabaseHelper dbHelper, DatabaseJob<T> job) throws IOException;
+    }
+
+    // Called on the main thread
+    public interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final ProgressListener progressListener;
+    private CompletableFuture<T> result;
+
+    DatabaseJob(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    void setResult(CompletableFuture<T> result) {
+        this.result = result;
+    }
+
+    T execute(DatabaseHelper dbHelper, Work<T> work) {
+        throwIfCancelled();
+        try {
+            return work.run(dbHelper, this);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    public CompletableFuture<T> getResult() {
+        return result;
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled.get()) {
+            throw new CancellationException();
+        }
+    }
+
+    // For the job itself; forwards to the listener on the main thread
+    public void reportProgress(int done, int total) {
+        if (progressListener != null) {
+            DatabaseExecutor.mainThread().execute(() -> progressListener.onProgress(done, total));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.squashtrainingapp.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.LruCache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of hot read queries, kept until a write touches one of the tables they were read from.
+ * DAOs look results up through {@link #get} and report every write through {@link #invalidate}.
+ *
+ * Cached results are shared between callers and must be treated as read-only. The size cap is
+ * counted in rows (one per list element or map entry) rather than bytes.
+ */
+public class QueryCache {
+    public static final int DEFAULT_MAX_ROWS = 2000;
+
+    private static final QueryCache DISABLED = new QueryCache(0);
+    // Generation key bumped by invalidateAll, counted towards every query
+    private static final String ALL_TABLES = "*";
+
+    public interface Loader<T> {
+        T load();
+    }
+
+    private static final class Entry {
+        final String[] tables;
+        final Object value;
+        final int rows;
+
+        Entry(String[] tables, Object value) {
+            this.tables = tables;
+            this.value = value;
+            this.rows = 1 + (value instanceof Collection ? ((Collection<?>) value).size()
+                    : value instanceof Map ? ((Map<?, ?>) value).size() : 0);
+        }
+    }
+
+    // Null when caching is disabled
+    private final LruCache<String, Entry> entries;
+    // Bumped on every write to a table; a load only stores its result if none of its tables moved
+    private final Map<String, Long> generations = new HashMap<>();
+    // Tables written inside a still-open transaction on this thread. Readers on other connections
+    // keep seeing the old rows until it commits, so they are invalidated again afterwards.
+    private final ThreadLocal<Set<String>> uncommitted = new ThreadLocal<Set<String>>() {
+        @Override
+        protected Set<String> initialValue() {
+            return new HashSet<>();
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QueryCache(int maxRows) {
+        this.entries = maxRows > 0 ? new LruCache<String, Entry>(maxRows) {
+            @Override
+            protected int sizeOf(String key, Entry entry) {
+                return entry.rows;
+            }
+        } : null;
+    }
+
+    // Pass-through instance for DAOs created outside DatabaseHelper (migrations, seeding)
+    public static QueryCache disabled() {
+        return DISABLED;
+    }
+
+    // Return the cached result for this query, or load it. Null results are not cached.
+    @SuppressWarnings("unchecked")
+    public <T> T get(String[] tables, String query, Object[] args, Loader<T> loader) {
+        if (entries == null) {
+            return loader.load();
+        }
+
+        String key = Arrays.toString(tables) + query + Arrays.toString(args);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return (T) entry.value;
+        }
+
+        misses.incrementAndGet();
+        long generation = generationOf(tables);
+        T value = loader.load();
+        // This thread's open transaction may still roll back what the load just saw
+        if (value != null && !writesAny(uncommitted.get(), tables)) {
+            synchronized (this) {
+                if (generationOf(tables) == generation) {
+                    entries.put(key, new Entry(tables, value));
+                }
+            }
+        }
+        return value;
+    }
+
+    // Drop every result read from these tables. Call after each write, on the connection used.
+    public void invalidate(SQLiteDatabase db, String... tables) {
+        if (entries == null) return;
+
+        invalidateNow(Arrays.asList(tables));
+        Set<String> pending = uncommitted.get();
+        if (db.inTransaction()) {
+            pending.addAll(Arrays.asList(tables));
+        } else if (!pending.isEmpty()) {
+            flushCommitted();
+        }
+    }
+
+    // Invalidate again whatever this thread wrote inside transactions that have since committed.
+    // TrainingRepository calls this after every write.
+    public void flushCommitted() {
+        if (entries == null) return;
+
+        Set<String> pending = uncommitted.get();
+        if (pending.isEmpty()) return;
+        invalidateNow(pending);
+        pending.clear();
+    }
+
+    public void invalidateAll() {
+        if (entries == null) return;
+
+        synchronized (this) {
+            bump(ALL_TABLES);
+            entries.evictAll();
+        }
+    }
+
+    // Memory pressure hooks, mirroring MemoryManager.BitmapCache
+    public void trimToSize(int maxRows) {
+        if (entries != null) entries.trimToSize(maxRows);
+    }
+
+    public int maxSize() {
+        return entries != null ? entries.maxSize() : 0;
+    }
+
+    public int size() {
+        return entries != null ? entries.size() : 0;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return String.format(Locale.ROOT, "QueryCache[rows=%d/%d, hits=%d, misses=%d, hitRate=%d%%]",
+                size(), maxSize(), hitCount, total - hitCount,
+                total == 0 ? 0 : (int) (100 * hitCount / total));
+    }
+
+    private void invalidateNow(Collection<String> tables) {
+        synchronized (this) {
+            for (String table : tables) {
+                bump(table);
+            }
+            for (Map.Entry<String, Entry> cached : entries.snapshot().entrySet()) {
+                if (readsAny(cached.getValue(), tables)) {
+                    entries.remove(cached.getKey());
+                }
+            }
+        }
+    }
+
+    private void bump(String table) {
+        Long generation = generations.get(table);
+        generations.put(table, generation == null ? 1 : generation + 1);
+    }
+
+    // Generations only grow, so the sum changes whenever any of the tables is written
+    private synchronized long generationOf(String[] tables) {
+        long sum = 0;
+        for (String table : tables) {
+            Long generation = generations.get(table);
+            if (generation != null) sum += generation;
+        }
+        Long all = generations.get(ALL_TABLES);
+        return all == null ? sum : sum + all;
+    }
+
+    private static boolean writesAny(Set<String> written, String[] tables) {
+        for (String table : tables) {
+            if (written.contains(table)) return true;
+        }
+        return false;
+    }
+
+    private static boolean readsAny(Entry entry, Collection<String> tables) {
+        for (String table : entry.tables) {
+            if (tables.contains(table)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,390 @@
+package com.squashtrainingapp.database;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.squashtrainingapp.analytics.AnalyticsService;
+import com.squashtrainingapp.analytics.DailySeries;
+import com.squashtrainingapp.analytics.LocalAnalyticsEngine;
+import com.squashtrainingapp.analytics.StatsSnapshot;
+import com.squashtrainingapp.analytics.TrainingLoad;
+import com.squashtrainingapp.database.export.RecordExporter;
+import com.squashtrainingapp.database.export.RecordImporter;
+import com.squashtrainingapp.models.Exercise;
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.models.SearchResult;
+import com.squashtrainingapp.models.StreakIndex;
+import com.squashtrainingapp.models.TrainingProgram;
+import com.squashtrainingapp.models.User;
+import com.squashtrainingapp.models.WorkoutSession;
+import com.squashtrainingapp.utils.EpochDay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Asynchronous entry point to the local database. Every call runs on {@link DatabaseExecutor}
+ * and returns a future; use {@link #asLiveData} to observe a result from an Activity.
+ *
+ * Identical reads issued while one is still running share its future, so results handed out
+ * by read methods must be treated as read-only. Reads always observe every write submitted
+ * before them.
+ */
+public class TrainingRepository {
+    private static final String TAG = "TrainingRepository";
+    private static TrainingRepository instance;
+
+    // Local analytics are computed from these; a write to any of them drops the cached results
+    private static final String[] LOCAL_ANALYTICS_TABLES = {
+        DatabaseContract.TABLE_DAILY_STATS,
+        DatabaseContract.TABLE_ACTIVITY_DAYS,
+        DatabaseContract.TABLE_WORKOUT_SESSIONS,
+        DatabaseContract.TABLE_TRAINING_LOAD
+    };
+
+    private final DatabaseHelper dbHelper;
+    // Latest stored user, refreshed by every load and every committed stats change
+    private final MutableLiveData<User> user = new MutableLiveData<>();
+    // Day the user was last loaded on; its current streak counts back from that day
+    private volatile int userDay = Integer.MIN_VALUE;
+
+    // Reads still running, by query key
+    private final Map<String, CompletableFuture<?>> inFlight = new HashMap<>();
+    // Most recently submitted write; later reads wait for it
+    private CompletableFuture<?> lastWrite = CompletableFuture.completedFuture(null);
+
+    public interface Query<T> {
+        T run(DatabaseHelper dbHelper);
+    }
+
+    private TrainingRepository(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        dbHelper.addUserChangedListener(user::postValue);
+    }
+
+    public static synchronized TrainingRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TrainingRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Deliver a future's value on the main thread; failures are delivered as null
+    public static <T> LiveData<T> asLiveData(CompletableFuture<T> future) {
+        MutableLiveData<T> liveData = new MutableLiveData<>();
+        future.whenComplete((value, error) -> liveData.postValue(error == null ? value : null));
+        return liveData;
+    }
+
+    // User
+
+    public CompletableFuture<User> getUser() {
+        return read("user", db -> {
+            int today = EpochDay.today();
+            User stored = db.getUserDao().getUser();
+            userDay = today;
+            user.postValue(stored);
+            return stored;
+        });
+    }
+
+    // Follows the stored user without re-querying after each workout; loads it on first use
+    public LiveData<User> observeUser() {
+        if (user.getValue() == null) {
+            getUser();
+        } else {
+            refreshUserIfDayChanged();
+        }
+        return user;
+    }
+
+    // Writes only push the user when they change it, so screens call this on resume to move the
+    // current streak past midnight
+    public void refreshUserIfDayChanged() {
+        if (userDay != EpochDay.today()) {
+            getUser();
+        }
+    }
+
+    // Records
+
+    // Saves the record and credits the workout to the user, then recomputes the dashboard's
+    // analytics in the background
+    public CompletableFuture<Long> saveWorkout(Record record) {
+        CompletableFuture<Long> saved = write(db -> db.saveWorkout(record));
+        precomputeLocalAnalytics();
+        return saved;
+    }
+
+    public CompletableFuture<List<Record>> getRecordsPage(long beforeDateMillis, long beforeId,
+                                                          int pageSize, String exerciseType) {
+        String key = "records:page:" + beforeDateMillis + ":" + beforeId + ":" + pageSize + ":" + exerciseType;
+        return read(key, db -> db.getRecordDao()
+                .getRecordsPage(beforeDateMillis, beforeId, pageSize, exerciseType));
+    }
+
+    public CompletableFuture<List<Record>> getRecordsBetweenDates(long startTime, long endTime) {
+        return read("records:between:" + startTime + ":" + endTime,
+                db -> db.getRecordDao().getRecordsBetweenDates(startTime, endTime));
+    }
+
+    public CompletableFuture<Integer> deleteRecord(int id) {
+        return write(db -> db.getRecordDao().delete(id));
+    }
+
+    // Daily stats
+
+    // Per-day metrics across all categories, one row per active day
+    public CompletableFuture<DailySeries> getDailySeries(int startDay, int endDay) {
+        return read("daily:series:" + startDay + ":" + endDay,
+                db -> db.getDailyStatsDao().getDailySeries(startDay, endDay));
+    }
+
+    // Cards and chart series for the stats screen; switching back to a range reuses the cached snapshot
+    public CompletableFuture<StatsSnapshot> getStatsSnapshot(int startDay, int endDay) {
+        return read("daily:snapshot:" + startDay + ":" + endDay,
+                db -> db.getDailyStatsDao().getStatsSnapshot(startDay, endDay));
+    }
+
+    // Personal dashboard analytics for [startDay, today], computed on the device. The snapshot is
+    // cached until a record or session is written, and shared: treat it as read-only.
+    public CompletableFuture<AnalyticsService.AnalyticsData> getLocalAnalytics(int startDay, int today) {
+        return read("analytics:local:" + startDay + ":" + today,
+                db -> loadLocalAnalytics(db, startDay, today));
+    }
+
+    // Fill the cache for every dashboard period on the job thread, after the writes before it,
+    // so the dashboard opens on a warm cache whichever period it shows
+    public void precomputeLocalAnalytics() {
+        synchronized (inFlight) {
+            lastWrite.handleAsync((ignored, error) -> {
+                int today = EpochDay.today();
+                try {
+                    for (AnalyticsService.TimePeriod period : AnalyticsService.TimePeriod.values()) {
+                        loadLocalAnalytics(dbHelper, period.getStartDay(today), today);
+                    }
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not precompute analytics", e);
+                }
+                return null;
+            }, DatabaseExecutor.jobs());
+        }
+    }
+
+    private static AnalyticsService.AnalyticsData loadLocalAnalytics(DatabaseHelper db, int startDay, int today) {
+        return db.getQueryCache().get(LOCAL_ANALYTICS_TABLES, "localAnalytics", new Object[] { startDay, today },
+                () -> LocalAnalyticsEngine.compute(
+                        db.getDailyStatsDao().getStatsSnapshot(startDay, today),
+                        db.getDailyStatsDao().getStreakIndex(),
+                        db.getWorkoutSessionDao().getStatusCounts(EpochDay.toStartMillis(startDay),
+                                EpochDay.toStartMillis(today + 1)),
+                        db.getTrainingLoadDao().get(),
+                        startDay, today));
+    }
+
+    // Acute and chronic load, monotony and strain as of today; kept up to date on every record
+    // write, so this is a single-row read
+    public CompletableFuture<TrainingLoad> getTrainingLoad() {
+        return read("training:load", db -> db.getTrainingLoadDao().get().at(EpochDay.today()));
+    }
+
+    // Days with a workout, for current and best streaks
+    public CompletableFuture<StreakIndex> getStreakIndex() {
+        return read("daily:streaks", db -> db.getDailyStatsDao().getStreakIndex());
+    }
+
+    // Exercises
+
+    public CompletableFuture<List<Exercise>> getAllExercises() {
+        return read("exercises", db -> db.getExerciseDao().getAllExercises());
+    }
+
+    public CompletableFuture<Integer> insertExercises(List<Exercise> exercises) {
+        return write(db -> db.getExerciseDao().insertAll(exercises));
+    }
+
+    public CompletableFuture<Integer> setExerciseChecked(int id, boolean checked) {
+        return write(db -> db.getExerciseDao().updateCheckedStatus(id, checked));
+    }
+
+    // Training programs
+
+    // Seeds the default programs on first use, then returns every program
+    public CompletableFuture<List<TrainingProgram>> getAllPrograms() {
+        return write(db -> {
+            List<TrainingProgram> programs = db.getTrainingProgramDao().getAllPrograms();
+            if (programs.isEmpty()) {
+                db.getTrainingProgramDao().insertDefaultPrograms();
+                programs = db.getTrainingProgramDao().getAllPrograms();
+            }
+            return programs;
+        });
+    }
+
+    public CompletableFuture<List<TrainingProgram>> getProgramsByType(String type) {
+        return read("programs:type:" + type, db -> db.getTrainingProgramDao().getProgramsByType(type));
+    }
+
+    public CompletableFuture<TrainingProgram> getProgramById(long id) {
+        return read("programs:id:" + id, db -> db.getTrainingProgramDao().getProgramById(id));
+    }
+
+    // Workout sessions
+
+    public CompletableFuture<List<WorkoutSession>> getUpcomingSessions() {
+        return read("sessions:upcoming", db -> db.getWorkoutSessionDao().getUpcomingSessions());
+    }
+
+    public CompletableFuture<Long> insertSession(WorkoutSession session) {
+        return write(db -> db.getWorkoutSessionDao().insertSession(session));
+    }
+
+    // Search
+
+    // Ranked prefix search over record names and memos, exercises and programs
+    public CompletableFuture<List<SearchResult>> search(String query, int limit) {
+        return read("search:" + limit + ":" + query, db -> db.getSearchDao().search(query, limit));
+    }
+
+    // Export and import
+
+    // Stream the records between the two times into a file; the result is the row count
+    public DatabaseJob<Integer> exportRecords(File file, RecordExporter exporter, long startTime,
+                                              long endTime, DatabaseJob.ProgressListener progress) {
+        return startJob((db, job) -> exporter.export(db.getRecordDao(), file, startTime, endTime, job),
+                progress);
+    }
+
+    // Stream a CSV or NDJSON history file into the records table in batches
+    public DatabaseJob<RecordImporter.Result> importRecords(RecordImporter importer, RecordImporter.Source source,
+                                                            DatabaseJob.ProgressListener progress) {
+        // Batches are saved on the writer like any other write, so reads queued after one see it
+        return startJob((db, job) -> importer.importFrom(
+            batch -> write(helper -> helper.saveWorkouts(batch)).join(), source, job), progress);
+    }
+
+    // Backup
+
+    // Write a compressed snapshot of the database and the archive, keeping the newest few
+    public DatabaseJob<File> backupDatabase(DatabaseJob.ProgressListener progress) {
+        return startJob((db, job) -> {
+            File snapshot = db.getBackup().snapshot(job);
+            db.getBackup().prune(DatabaseBackup.DEFAULT_KEEP);
+            return snapshot;
+        }, progress);
+    }
+
+    public CompletableFuture<List<File>> listBackups() {
+        return read("backups", db -> db.getBackup().listSnapshots());
+    }
+
+    // Unpack and check the snapshot on the job thread, then swap it in on the writer thread.
+    // A snapshot that fails a check leaves the live data as it was.
+    public DatabaseJob<Void> restoreDatabase(File snapshot, DatabaseJob.ProgressListener progress) {
+        return startJob((db, job) -> {
+            DatabaseBackup.Staged staged = db.getBackup().stage(snapshot, job);
+            write(helper -> {
+                try {
+                    helper.getBackup().restore(staged);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                return null;
+            }).join();
+            return null;
+        }, progress);
+    }
+
+    // Maintenance
+
+    // Move records older than the cutoff into the yearly archive files; the result is the row count
+    public CompletableFuture<Integer> archiveRecordsBefore(long cutoffMillis) {
+        return write(db -> {
+            try {
+                return db.getRecordDao().archiveBefore(cutoffMillis);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    // Takes a snapshot first, so the wipe can be undone from the backups. The snapshot is taken
+    // on the writer itself: waiting there for a job could deadlock with a job waiting on a write.
+    public CompletableFuture<Void> clearAllData() {
+        return write(db -> {
+            // Clear even without a snapshot; the user asked for it
+            try {
+                db.getBackup().snapshot(new DatabaseJob<File>(null));
+                db.getBackup().prune(DatabaseBackup.DEFAULT_KEEP);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "No snapshot before clearing data", e);
+            }
+            db.clearAllData();
+            user.postValue(db.getUserDao().getUser());
+            return null;
+        });
+    }
+
+    // Run a read on the read pool, joining an identical read that is already running
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> read(String key, Query<T> query) {
+        synchronized (inFlight) {
+            CompletableFuture<T> pending = (CompletableFuture<T>) inFlight.get(key);
+            if (pending != null) {
+                return pending;
+            }
+
+            CompletableFuture<T> future = lastWrite.handleAsync((ignored, error) -> {
+                // A restore submitted after the write this read follows may run alongside it
+                dbHelper.enterRead();
+                try {
+                    return query.run(dbHelper);
+                } finally {
+                    dbHelper.exitRead();
+                }
+            }, DatabaseExecutor.reads());
+            inFlight.put(key, future);
+            future.whenComplete((value, error) -> {
+                synchronized (inFlight) {
+                    inFlight.remove(key, future);
+                }
+            });
+            return future;
+        }
+    }
+
+    // Run long work on the job thread, after every write submitted before it
+    public <T> DatabaseJob<T> startJob(DatabaseJob.Work<T> work, DatabaseJob.ProgressListener progress) {
+        DatabaseJob<T> job = new DatabaseJob<>(progress);
+        synchronized (inFlight) {
+            job.setResult(lastWrite.handleAsync(
+                    (ignored, error) -> job.execute(dbHelper, work), DatabaseExecutor.jobs()));
+        }
+        return job;
+    }
+
+    // Run a write on the single writer thread, after every write submitted before it
+    public <T> CompletableFuture<T> write(Query<T> query) {
+        synchronized (inFlight) {
+            CompletableFuture<T> future = lastWrite.handleAsync((ignored, error) -> {
+                try {
+                    return query.run(dbHelper);
+                } finally {
+                    // Its transactions have ended; drop results read while they were open
+                    dbHelper.getQueryCache().flushCommitted();
+                }
+            }, DatabaseExecutor.writes());
+            lastWrite = future;
+            // Reads started before this write may miss it, so later callers must not join them
+            inFlight.clear();
+            return future;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.squashtrainingapp.database.archive;
+
+import android.database.AbstractCursor;
+
+import com.squashtrainingapp.database.mapping.RecordRowMapper;
+import com.squashtrainingapp.models.Record;
+
+import java.util.List;
+
+/**
+ * Archived rows as a cursor over {@link RecordRowMapper#FULL_PROJECTION}, oldest first, so they
+ * can be streamed alongside records table cursors. Only the year under the cursor is decoded.
+ */
+class ArchiveCursor extends AbstractCursor {
+    // Positions in RecordRowMapper.FULL_PROJECTION
+    private static final int ID = 0;
+    private static final int EXERCISE = 1;
+    private static final int SETS = 2;
+    private static final int REPS = 3;
+    private static final int DURATION = 4;
+    private static final int INTENSITY = 5;
+    private static final int CONDITION = 6;
+    private static final int FATIGUE = 7;
+    private static final int MEMO = 8;
+    private static final int DATE_MILLIS = 9;
+    private static final int CATEGORY = 10;
+    private static final int EPOCH_DAY = 11;
+
+    private final RecordArchive archive;
+    private final List<Integer> years;
+    // Cursor position of each year's first row
+    private final int[] yearStarts;
+    private final int count;
+    private final long startTime;
+    private final long endTime;
+
+    private int loadedYear = -1;
+    private List<Record> rows;
+    private Record current;
+
+    ArchiveCursor(RecordArchive archive, List<Integer> years, List<Integer> counts,
+                  long startTime, long endTime) {
+        this.archive = archive;
+        this.years = years;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.yearStarts = new int[years.size()];
+        int total = 0;
+        for (int i = 0; i < years.size(); i++) {
+            yearStarts[i] = total;
+            total += counts.get(i);
+        }
+        this.count = total;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return RecordRowMapper.FULL_PROJECTION;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        int index = years.size() - 1;
+        while (index > 0 && yearStarts[index] > newPosition) {
+            index--;
+        }
+        if (index != loadedYear) {
+            rows = archive.readBetween(years.get(index), startTime, endTime);
+            loadedYear = index;
+        }
+        int offset = newPosition - yearStarts[index];
+        if (offset >= rows.size()) {
+            return false;
+        }
+        current = rows.get(offset);
+        return true;
+    }
+
+    @Override
+    public String getString(int column) {
+        switch (column) {
+            case EXERCISE: return current.getExerciseName();
+            case MEMO: return current.getMemo();
+            // Stored in the file, or classified from the name for files older than that
+            case CATEGORY: return current.getExerciseType();
+            default: return isNull(column) ? null : Long.toString(getLong(column));
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        switch (column) {
+            case ID: return current.getId();
+            case SETS: return current.getSets();
+            case REPS: return current.getReps();
+            case DURATION: return current.getDuration();
+            case INTENSITY: return current.getIntensity();
+            case CONDITION: return current.getCondition();
+            case FATIGUE: return current.getFatigue();
+            case DATE_MILLIS: return current.getDateMillis();
+            case EPOCH_DAY: return current.getEpochDay();
+            default: return Long.parseLong(getString(column));
+        }
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        switch (column) {
+            case EXERCISE: return current.getExerciseName() == null;
+            case MEMO: return current.getMemo() == null;
+            default: return false;
+        }
+    }
+
+    @Override
+    public int getType(int column) {
+        switch (column) {
+            case EXERCISE:
+            case MEMO:
+                return isNull(column) ? FIELD_TYPE_NULL : FIELD_TYPE_STRING;
+            case CATEGORY:
+                return FIELD_TYPE_STRING;
+            default:
+                return FIELD_TYPE_INTEGER;
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        rows = null;
+        current = null;
+    }
+}
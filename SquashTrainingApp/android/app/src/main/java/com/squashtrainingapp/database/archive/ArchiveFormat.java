@@ -0,0 +1,311 @@
+package com.squashtrainingapp.database.archive;
+
+import com.squashtrainingapp.models.Record;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary layout of one year's archive file. Rows are sorted by (dateMillis, id) and stored
+ * column by column inside a gzip stream:
+ *
+ *   header   magic "SQRA", version, year, row count, first and last dateMillis
+ *   dates    first value, then deltas (unsigned varlong; rows are sorted)
+ *   ids      zigzag deltas
+ *   names    dictionary of distinct exercise names, then one index per row (0 = null)
+ *   category the same for the category each row is counted under in daily_stats (version 2)
+ *   numbers  duration, sets, reps, intensity, condition, fatigue, one zigzag column each
+ *   days     epoch day each row is counted under, zigzag deltas (version 3)
+ *   memos    per row 0 for null, else UTF-8 length + 1 followed by the bytes
+ *
+ * Sorted timestamps and ids delta-encode to a few bytes and names repeat heavily, so rows
+ * cost a small fraction of their SQLite size even before compression.
+ *
+ * Version 1 files have no category column and versions 1 and 2 no day column; their rows come
+ * back without them and are classified from the name or dated in the current time zone. Files
+ * are always written in the current version.
+ */
+final class ArchiveFormat {
+    private static final int MAGIC = 0x53515241;
+    private static final int VERSION = 3;
+    private static final int FIRST_VERSION_WITH_CATEGORY = 2;
+    private static final int FIRST_VERSION_WITH_DAY = 3;
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    static final class Header {
+        final int version;
+        final int year;
+        final int count;
+        final long firstDate;
+        final long lastDate;
+
+        Header(int version, int year, int count, long firstDate, long lastDate) {
+            this.version = version;
+            this.year = year;
+            this.count = count;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+        }
+
+        boolean hasCategories() {
+            return version >= FIRST_VERSION_WITH_CATEGORY;
+        }
+
+        boolean hasEpochDays() {
+            return version >= FIRST_VERSION_WITH_DAY;
+        }
+
+        boolean isCurrent() {
+            return version == VERSION;
+        }
+    }
+
+    private ArchiveFormat() {}
+
+    // Rows must already be sorted oldest first
+    static void write(File file, int year, List<Record> rows) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            int count = rows.size();
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeVarLong(out, year);
+            writeVarLong(out, count);
+            out.writeLong(count == 0 ? 0 : rows.get(0).getDateMillis());
+            out.writeLong(count == 0 ? 0 : rows.get(count - 1).getDateMillis());
+
+            long previous = 0;
+            for (Record row : rows) {
+                long date = row.getDateMillis();
+                writeVarLong(out, date - previous);
+                previous = date;
+            }
+            previous = 0;
+            for (Record row : rows) {
+                writeSigned(out, row.getId() - previous);
+                previous = row.getId();
+            }
+
+            List<String> names = new ArrayList<>(count);
+            List<String> categories = new ArrayList<>(count);
+            for (Record row : rows) {
+                names.add(row.getExerciseName());
+                categories.add(row.getExerciseType());
+            }
+            writeDictionaryColumn(out, names);
+            writeDictionaryColumn(out, categories);
+
+            for (Record row : rows) writeSigned(out, row.getDuration());
+            for (Record row : rows) writeSigned(out, row.getSets());
+            for (Record row : rows) writeSigned(out, row.getReps());
+            for (Record row : rows) writeSigned(out, row.getIntensity());
+            for (Record row : rows) writeSigned(out, row.getCondition());
+            for (Record row : rows) writeSigned(out, row.getFatigue());
+
+            previous = 0;
+            for (Record row : rows) {
+                writeSigned(out, row.getEpochDay() - previous);
+                previous = row.getEpochDay();
+            }
+
+            for (Record row : rows) {
+                if (row.getMemo() == null) {
+                    writeVarLong(out, 0);
+                } else {
+                    byte[] bytes = row.getMemo().getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, bytes.length + 1);
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    static Header readHeader(File file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            return readHeader(in);
+        }
+    }
+
+    // Only the date column, for counting rows in a range without decoding the rest
+    static long[] readDates(File file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            return readDates(in, readHeader(in).count);
+        }
+    }
+
+    // Only the id column, skipping the dates before it
+    static int[] readIds(File file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            int count = readHeader(in).count;
+            readDates(in, count);
+            int[] ids = new int[count];
+            long id = 0;
+            for (int i = 0; i < count; i++) {
+                id += readSigned(in);
+                ids[i] = (int) id;
+            }
+            return ids;
+        }
+    }
+
+    // Every row, oldest first
+    static List<Record> read(File file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            Header header = readHeader(in);
+            int count = header.count;
+            long[] dates = readDates(in, count);
+
+            List<Record> rows = new ArrayList<>(count);
+            long id = 0;
+            for (int i = 0; i < count; i++) {
+                Record row = new Record();
+                id += readSigned(in);
+                row.setId((int) id);
+                row.setDateMillis(dates[i]);
+                rows.add(row);
+            }
+
+            String[] names = readDictionary(in);
+            for (Record row : rows) row.setExerciseName(names[(int) readVarLong(in)]);
+            if (header.hasCategories()) {
+                String[] categories = readDictionary(in);
+                for (Record row : rows) row.setExerciseType(categories[(int) readVarLong(in)]);
+            }
+
+            for (Record row : rows) row.setDuration((int) readSigned(in));
+            for (Record row : rows) row.setSets((int) readSigned(in));
+            for (Record row : rows) row.setReps((int) readSigned(in));
+            for (Record row : rows) row.setIntensity((int) readSigned(in));
+            for (Record row : rows) row.setCondition((int) readSigned(in));
+            for (Record row : rows) row.setFatigue((int) readSigned(in));
+
+            if (header.hasEpochDays()) {
+                long day = 0;
+                for (Record row : rows) {
+                    day += readSigned(in);
+                    row.setEpochDay((int) day);
+                }
+            }
+
+            for (Record row : rows) {
+                int length = (int) readVarLong(in);
+                row.setMemo(length == 0 ? null : readString(in, length - 1));
+            }
+            return rows;
+        }
+    }
+
+    private static DataInputStream open(File file) throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+        return new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a record archive");
+        }
+        int version = in.readUnsignedByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported archive version " + version);
+        }
+        int year = (int) readVarLong(in);
+        int count = (int) readVarLong(in);
+        return new Header(version, year, count, in.readLong(), in.readLong());
+    }
+
+    private static long[] readDates(DataInputStream in, int count) throws IOException {
+        long[] dates = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarLong(in);
+            dates[i] = previous;
+        }
+        return dates;
+    }
+
+    // Distinct non-null values, then one index per row (0 = null)
+    private static void writeDictionaryColumn(DataOutputStream out, List<String> values) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (String value : values) {
+            if (value != null && !indexes.containsKey(value)) {
+                indexes.put(value, dictionary.size() + 1);
+                dictionary.add(value);
+            }
+        }
+        writeVarLong(out, dictionary.size());
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+        for (String value : values) {
+            writeVarLong(out, value == null ? 0 : indexes.get(value));
+        }
+    }
+
+    // A dictionary as written by writeDictionaryColumn, with null at index 0
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        int size = (int) readVarLong(in);
+        String[] dictionary = new String[size + 1];
+        for (int i = 1; i <= size; i++) {
+            dictionary[i] = readString(in, (int) readVarLong(in));
+        }
+        return dictionary;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Unsigned LEB128
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new EOFException("Malformed varint");
+    }
+
+    private static void writeSigned(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSigned(DataInputStream in) throws IOException {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
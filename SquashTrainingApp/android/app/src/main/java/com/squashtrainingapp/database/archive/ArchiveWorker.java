@@ -0,0 +1,66 @@
+package com.squashtrainingapp.database.archive;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.squashtrainingapp.database.TrainingRepository;
+
+import java.util.Calendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weekly background job that moves records older than {@link #MAX_HOT_AGE_DAYS} out of the
+ * records table and into the yearly archive files.
+ */
+public class ArchiveWorker extends Worker {
+    private static final String TAG = "ArchiveWorker";
+    private static final String WORK_NAME = "record-archive";
+
+    // Records stay in the table for a year; older ones are rarely viewed
+    public static final int MAX_HOT_AGE_DAYS = 365;
+
+    public ArchiveWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Safe to call on every start; an already scheduled job is kept
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ArchiveWorker.class, 7, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Calendar cutoff = Calendar.getInstance();
+        cutoff.add(Calendar.DAY_OF_YEAR, -MAX_HOT_AGE_DAYS);
+        try {
+            int moved = TrainingRepository.getInstance(getApplicationContext())
+                    .archiveRecordsBefore(cutoff.getTimeInMillis())
+                    .get();
+            Log.d(TAG, "Archived " + moved + " records");
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Archiving failed", e.getCause());
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.squashtrainingapp.database.archive;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import com.squashtrainingapp.models.Record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Cold storage for records moved out of the records table, one {@link ArchiveFormat} file per
+ * local calendar year. RecordDao merges these rows into its all-time queries; the daily_stats
+ * rollup keeps counting them, so nothing here feeds the totals.
+ *
+ * Files are replaced whole through a temporary file and a rename, so a reader never sees a
+ * half-written year. Changes are made in two steps, prepare and commit, so the rename can be
+ * the last thing before the database transaction that goes with it succeeds.
+ *
+ * The last few decoded years are kept in memory, so paging through old history decodes each
+ * year once. Their rows are shared with callers and must not be modified.
+ */
+public class RecordArchive {
+    private static final String TAG = "RecordArchive";
+    private static final String FILE_PREFIX = "records-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Beside the archive directory, holding the replaced files until a replacement is committed
+    private static final String PREVIOUS_SUFFIX = "-previous";
+    // A year is at most a few thousand rows
+    private static final int DECODED_YEARS = 3;
+
+    // Same order as the records queries: date, then id, newest first
+    public static final Comparator<Record> NEWEST_FIRST = new Comparator<Record>() {
+        @Override
+        public int compare(Record a, Record b) {
+            int byDate = Long.compare(b.getDateMillis(), a.getDateMillis());
+            return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+        }
+    };
+
+    private static final Comparator<Record> OLDEST_FIRST = Collections.reverseOrder(NEWEST_FIRST);
+
+    private final File directory;
+    // Header of every archived year, read on first use
+    private NavigableMap<Integer, ArchiveFormat.Header> years;
+    // Most recently read years, least recently used first; the lists are unmodifiable
+    private final Map<Integer, List<Record>> decoded =
+        new LinkedHashMap<Integer, List<Record>>(DECODED_YEARS + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Record>> eldest) {
+                return size() > DECODED_YEARS;
+            }
+        };
+    // Year holding each archived id, built from the id columns on the first removal
+    private Map<Integer, Integer> yearById;
+
+    // A row taken out of its year's file but not yet committed
+    public static final class Removal {
+        final int year;
+        // Null when the row was the year's last; the file is deleted instead
+        final File prepared;
+        private final Record record;
+
+        Removal(int year, File prepared, Record record) {
+            this.year = year;
+            this.prepared = prepared;
+            this.record = record;
+        }
+
+        public Record getRecord() {
+            return record;
+        }
+    }
+
+    // The live archive, moved aside by replaceWith() until the replacement is committed
+    public static final class Replacement {
+        final File previous;
+
+        Replacement(File previous) {
+            this.previous = previous;
+        }
+    }
+
+    public RecordArchive(File directory) {
+        this.directory = directory;
+    }
+
+    // Local calendar year a timestamp falls in
+    public static int yearOf(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR);
+    }
+
+    // Start of January 1st of the year, local time
+    public static long startOfYear(int year) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    public synchronized boolean isEmpty() {
+        return years().isEmpty();
+    }
+
+    public synchronized int count() {
+        int count = 0;
+        for (ArchiveFormat.Header header : years().values()) {
+            count += header.count;
+        }
+        return count;
+    }
+
+    // Rows with startTime <= dateMillis <= endTime; only the date column is decoded
+    public synchronized int countBetween(long startTime, long endTime) {
+        int count = 0;
+        for (ArchiveFormat.Header header : years().values()) {
+            if (header.lastDate < startTime || header.firstDate > endTime) continue;
+            if (header.firstDate >= startTime && header.lastDate <= endTime) {
+                count += header.count;
+                continue;
+            }
+            for (long date : readDates(header.year)) {
+                if (date >= startTime && date <= endTime) count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized List<Record> getAllRecords() {
+        return getRecordsBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // Rows with startTime <= dateMillis <= endTime, newest first
+    public synchronized List<Record> getRecordsBetween(long startTime, long endTime) {
+        List<Record> result = new ArrayList<>();
+        for (ArchiveFormat.Header header : years().descendingMap().values()) {
+            if (header.lastDate < startTime || header.firstDate > endTime) continue;
+            List<Record> rows = read(header.year);
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                long date = rows.get(i).getDateMillis();
+                if (date >= startTime && date <= endTime) result.add(rows.get(i));
+            }
+        }
+        return result;
+    }
+
+    // Same keyset contract as RecordDao.getRecordsPage
+    public synchronized List<Record> getRecordsPage(long beforeDateMillis, long beforeId, int pageSize,
+                                                    String exerciseType) {
+        List<Record> page = new ArrayList<>();
+        for (ArchiveFormat.Header header : years().descendingMap().values()) {
+            if (page.size() >= pageSize) break;
+            if (header.firstDate > beforeDateMillis) continue;
+            List<Record> rows = read(header.year);
+            for (int i = rows.size() - 1; i >= 0 && page.size() < pageSize; i--) {
+                Record row = rows.get(i);
+                long date = row.getDateMillis();
+                if (date > beforeDateMillis || (date == beforeDateMillis && row.getId() >= beforeId)) continue;
+                if (exerciseType != null && !exerciseType.equals(row.getExerciseType())) continue;
+                page.add(row);
+            }
+        }
+        return page;
+    }
+
+    // Cursor over FULL_PROJECTION, oldest first, decoding one year at a time
+    public synchronized Cursor openBetween(long startTime, long endTime) {
+        List<Integer> matching = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (ArchiveFormat.Header header : years().values()) {
+            if (header.lastDate < startTime || header.firstDate > endTime) continue;
+            matching.add(header.year);
+            counts.add(countBetween(Math.max(startTime, header.firstDate), Math.min(endTime, header.lastDate)));
+        }
+        return new ArchiveCursor(this, matching, counts, startTime, endTime);
+    }
+
+    // First half of deleting a row: write its year without it beside the live file. Returns
+    // null if no year holds that id. Pass the result to commit() once the row is gone from the
+    // rollup, or to abort().
+    public synchronized Removal prepareRemoval(int id) throws IOException {
+        Integer year = yearById().get(id);
+        if (year == null) return null;
+
+        List<Record> rows = new ArrayList<>(read(year));
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).getId() != id) continue;
+            Record removed = rows.remove(i);
+            return new Removal(year, rows.isEmpty() ? null : writeTemp(year, rows), removed);
+        }
+        return null;
+    }
+
+    public synchronized void commit(Removal removal) throws IOException {
+        if (removal.prepared != null) {
+            commit(removal.year, removal.prepared);
+        } else {
+            File file = fileFor(removal.year);
+            if (!file.delete()) {
+                throw new IOException("Cannot delete " + file);
+            }
+            years().remove(removal.year);
+            decoded.remove(removal.year);
+        }
+        yearById.remove(removal.record.getId());
+    }
+
+    public void abort(Removal removal) {
+        if (removal.prepared != null) {
+            abort(removal.prepared);
+        }
+    }
+
+    // First half of archiving a year: merge the rows with what the year already holds and write
+    // the result beside the live file. Pass the returned file to commit() once the rows are gone
+    // from the database, or to abort().
+    public synchronized File prepare(int year, List<Record> rows) throws IOException {
+        Map<Integer, Record> byId = new HashMap<>();
+        if (years().containsKey(year)) {
+            for (Record row : read(year)) {
+                byId.put(row.getId(), row);
+            }
+        }
+        // A row archived before a failed commit may still be in the table; keep one copy
+        for (Record row : rows) {
+            byId.put(row.getId(), row);
+        }
+        List<Record> merged = new ArrayList<>(byId.values());
+        Collections.sort(merged, OLDEST_FIRST);
+        return writeTemp(year, merged);
+    }
+
+    public synchronized void commit(int year, File prepared) throws IOException {
+        File target = fileFor(year);
+        if (!prepared.renameTo(target)) {
+            throw new IOException("Cannot replace " + target);
+        }
+        years().put(year, ArchiveFormat.readHeader(target));
+        decoded.remove(year);
+        if (yearById != null) {
+            indexIds(year);
+        }
+    }
+
+    public void abort(File prepared) {
+        if (prepared.exists() && !prepared.delete()) {
+            Log.w(TAG, "Could not delete " + prepared);
+        }
+    }
+
+    // Store a category in every file written before archives kept one, classifying each row's
+    // name with the given rules; files that have categories are left alone. Returns how many
+    // files were rewritten.
+    public synchronized int labelCategories(Function<String, String> classifier) throws IOException {
+        int labelled = 0;
+        for (ArchiveFormat.Header header : new ArrayList<>(years().values())) {
+            if (header.hasCategories()) continue;
+            // Decoded afresh: cached rows are shared and must not be modified
+            List<Record> rows = ArchiveFormat.read(fileFor(header.year));
+            for (Record row : rows) {
+                row.setExerciseType(classifier.apply(row.getExerciseName()));
+            }
+            commit(header.year, writeTemp(header.year, rows));
+            labelled++;
+        }
+        return labelled;
+    }
+
+    // Rewrite every file in an older format in the current one. Rows take what the old format
+    // lacked from the name and the current time zone. Returns how many files were rewritten.
+    public synchronized int upgradeFiles() throws IOException {
+        int upgraded = 0;
+        for (ArchiveFormat.Header header : new ArrayList<>(years().values())) {
+            if (header.isCurrent()) continue;
+            commit(header.year, writeTemp(header.year, ArchiveFormat.read(fileFor(header.year))));
+            upgraded++;
+        }
+        return upgraded;
+    }
+
+    // Yearly files currently in the archive, for backups
+    public synchronized List<File> files() {
+        List<File> files = new ArrayList<>();
+        for (Integer year : years().keySet()) {
+            files.add(fileFor(year));
+        }
+        return files;
+    }
+
+    // Decode a whole archive file, throwing if any part of it is unreadable
+    public static void verify(File file) throws IOException {
+        ArchiveFormat.read(file);
+    }
+
+    // First half of replacing every archived year with the files in another directory, e.g. a
+    // restored snapshot: the live directory is moved aside and the new files moved in. Pass the
+    // result to commit() once the database matches them, or to abort() to put the live files
+    // back. Leaves the live files in place if it throws.
+    public synchronized Replacement replaceWith(File source) throws IOException {
+        Replacement replacement = new Replacement(new File(directory.getPath() + PREVIOUS_SUFFIX));
+        deleteDirectory(replacement.previous);
+        if (directory.exists() && !directory.renameTo(replacement.previous)) {
+            throw new IOException("Cannot move " + directory + " aside");
+        }
+        resetCaches();
+
+        boolean moved = false;
+        try {
+            if (!directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            File[] files = source.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    File target = new File(directory, file.getName());
+                    if (!file.renameTo(target)) {
+                        throw new IOException("Cannot move " + file + " to " + target);
+                    }
+                }
+            }
+            moved = true;
+            return replacement;
+        } finally {
+            if (!moved) {
+                abort(replacement);
+            }
+        }
+    }
+
+    public synchronized void commit(Replacement replacement) {
+        deleteDirectory(replacement.previous);
+    }
+
+    public synchronized void abort(Replacement replacement) {
+        deleteDirectory(directory);
+        if (replacement.previous.exists() && !replacement.previous.renameTo(directory)) {
+            Log.e(TAG, "Could not move " + replacement.previous + " back");
+        }
+        resetCaches();
+    }
+
+    // Drop every archived year, e.g. when the user clears all data
+    public synchronized void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(FILE_PREFIX) && !file.delete()) {
+                    Log.w(TAG, "Could not delete " + file);
+                }
+            }
+        }
+        resetCaches();
+    }
+
+    private void resetCaches() {
+        years = null;
+        decoded.clear();
+        yearById = null;
+    }
+
+    // The archive directories hold only flat files
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    Log.w(TAG, "Could not delete " + file);
+                }
+            }
+        }
+        if (dir.exists() && !dir.delete()) {
+            Log.w(TAG, "Could not delete " + dir);
+        }
+    }
+
+    // For ArchiveCursor
+    synchronized List<Record> readBetween(int year, long startTime, long endTime) {
+        List<Record> rows = read(year);
+        List<Record> result = new ArrayList<>(rows.size());
+        for (Record row : rows) {
+            long date = row.getDateMillis();
+            if (date >= startTime && date <= endTime) result.add(row);
+        }
+        return result;
+    }
+
+    private File writeTemp(int year, List<Record> rows) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File temp = new File(directory, FILE_PREFIX + year + FILE_SUFFIX + TEMP_SUFFIX);
+        ArchiveFormat.write(temp, year, rows);
+        return temp;
+    }
+
+    private List<Record> read(int year) {
+        List<Record> rows = decoded.get(year);
+        if (rows != null) return rows;
+        try {
+            rows = Collections.unmodifiableList(ArchiveFormat.read(fileFor(year)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decoded.put(year, rows);
+        return rows;
+    }
+
+    private Map<Integer, Integer> yearById() {
+        if (yearById != null) return yearById;
+
+        yearById = new HashMap<>();
+        for (Integer year : years().keySet()) {
+            indexIds(year);
+        }
+        return yearById;
+    }
+
+    private void indexIds(int year) {
+        try {
+            for (int id : ArchiveFormat.readIds(fileFor(year))) {
+                yearById.put(id, year);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long[] readDates(int year) {
+        try {
+            return ArchiveFormat.readDates(fileFor(year));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File fileFor(int year) {
+        return new File(directory, FILE_PREFIX + year + FILE_SUFFIX);
+    }
+
+    private NavigableMap<Integer, ArchiveFormat.Header> years() {
+        if (years != null) return years;
+
+        years = new TreeMap<>();
+        File[] files = directory.listFiles();
+        if (files == null) return years;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(FILE_PREFIX)) continue;
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Left behind by an archive run that never committed
+                abort(file);
+                continue;
+            }
+            try {
+                ArchiveFormat.Header header = ArchiveFormat.readHeader(file);
+                years.put(header.year, header);
+            } catch (IOException e) {
+                Log.e(TAG, "Skipping unreadable archive " + name, e);
+            }
+        }
+        return years;
+    }
+}
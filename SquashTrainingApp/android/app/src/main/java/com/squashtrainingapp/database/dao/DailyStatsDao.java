@@ -0,0 +1,233 @@
+package com.squashtrainingapp.database.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.analytics.DailySeries;
+import com.squashtrainingapp.analytics.StatsEngine;
+import com.squashtrainingapp.analytics.StatsSnapshot;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.models.DailyStats;
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.models.StreakIndex;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DailyStatsDao {
+    
+    private static final String[] DAILY_TABLES = { DatabaseContract.TABLE_DAILY_STATS };
+    // activity_days follows daily_stats through triggers, so rollup writes invalidate it too
+    static final String[] ACTIVITY_TABLES = { DatabaseContract.TABLE_DAILY_STATS, DatabaseContract.TABLE_ACTIVITY_DAYS };
+    
+    private SQLiteDatabase database;
+    private QueryCache queryCache;
+    
+    public DailyStatsDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public DailyStatsDao(SQLiteDatabase database, QueryCache queryCache) {
+        this.database = database;
+        this.queryCache = queryCache;
+    }
+    
+    // Add (sign = 1) or remove (sign = -1) one record's contribution. Callers run this in the
+    // same transaction as the records write.
+    public void applyRecord(Record record, int sign) {
+        Accumulator accumulator = newAccumulator();
+        accumulator.add(record, sign);
+        accumulator.apply();
+    }
+    
+    // Collect deltas for many records and write each touched (day, category) row once
+    public Accumulator newAccumulator() {
+        return new Accumulator();
+    }
+    
+    public class Accumulator {
+        private final Map<String, DailyStats> deltas = new HashMap<>();
+        
+        private Accumulator() {}
+        
+        public void add(Record record, int sign) {
+            int day = record.getEpochDay();
+            String category = record.getExerciseType();
+            String key = day + "|" + category;
+            
+            DailyStats delta = deltas.get(key);
+            if (delta == null) {
+                delta = new DailyStats(day, category, 0, 0, 0, 0, 0, 0);
+                deltas.put(key, delta);
+            }
+            delta.setSessions(delta.getSessions() + sign);
+            delta.setMinutes(delta.getMinutes() + sign * record.getDuration());
+            delta.setSets(delta.getSets() + sign * record.getSets());
+            delta.setReps(delta.getReps() + sign * record.getReps());
+            delta.setIntensitySum(delta.getIntensitySum() + sign * record.getIntensity());
+            delta.setFatigueSum(delta.getFatigueSum() + sign * record.getFatigue());
+        }
+        
+        public void apply() {
+            if (deltas.isEmpty()) return;
+            
+            SQLiteStatement ensureRow = database.compileStatement(
+                "INSERT OR IGNORE INTO " + DatabaseContract.TABLE_DAILY_STATS + " (" +
+                DatabaseContract.COLUMN_DAILY_DAY + ", " + DatabaseContract.COLUMN_DAILY_CATEGORY +
+                ") VALUES (?, ?)");
+            SQLiteStatement addDelta = database.compileStatement(
+                "UPDATE " + DatabaseContract.TABLE_DAILY_STATS + " SET " +
+                DatabaseContract.COLUMN_DAILY_SESSIONS + " = " + DatabaseContract.COLUMN_DAILY_SESSIONS + " + ?, " +
+                DatabaseContract.COLUMN_DAILY_MINUTES + " = " + DatabaseContract.COLUMN_DAILY_MINUTES + " + ?, " +
+                DatabaseContract.COLUMN_DAILY_SETS + " = " + DatabaseContract.COLUMN_DAILY_SETS + " + ?, " +
+                DatabaseContract.COLUMN_DAILY_REPS + " = " + DatabaseContract.COLUMN_DAILY_REPS + " + ?, " +
+                DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + " = " + DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + " + ?, " +
+                DatabaseContract.COLUMN_DAILY_FATIGUE_SUM + " = " + DatabaseContract.COLUMN_DAILY_FATIGUE_SUM + " + ? " +
+                "WHERE " + DatabaseContract.COLUMN_DAILY_DAY + " = ? AND " + DatabaseContract.COLUMN_DAILY_CATEGORY + " = ?");
+            
+            database.beginTransaction();
+            try {
+                for (DailyStats delta : deltas.values()) {
+                    ensureRow.bindLong(1, delta.getEpochDay());
+                    ensureRow.bindString(2, delta.getCategory());
+                    ensureRow.executeInsert();
+                    
+                    addDelta.bindLong(1, delta.getSessions());
+                    addDelta.bindLong(2, delta.getMinutes());
+                    addDelta.bindLong(3, delta.getSets());
+                    addDelta.bindLong(4, delta.getReps());
+                    addDelta.bindLong(5, delta.getIntensitySum());
+                    addDelta.bindLong(6, delta.getFatigueSum());
+                    addDelta.bindLong(7, delta.getEpochDay());
+                    addDelta.bindString(8, delta.getCategory());
+                    addDelta.executeUpdateDelete();
+                    
+                    // Days whose last record was deleted should not linger as empty rows
+                    if (delta.getSessions() < 0) {
+                        database.delete(DatabaseContract.TABLE_DAILY_STATS,
+                            DatabaseContract.COLUMN_DAILY_DAY + " = ? AND " +
+                            DatabaseContract.COLUMN_DAILY_CATEGORY + " = ? AND " +
+                            DatabaseContract.COLUMN_DAILY_SESSIONS + " <= 0",
+                            new String[] { String.valueOf(delta.getEpochDay()), delta.getCategory() });
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                ensureRow.close();
+                addDelta.close();
+                database.endTransaction();
+                queryCache.invalidate(database, DAILY_TABLES);
+            }
+            deltas.clear();
+        }
+    }
+    
+    // Per-day totals across all categories, oldest day first
+    public DailySeries getDailySeries(int startDay, int endDay) {
+        return queryCache.get(DAILY_TABLES, "getDailySeries", new Object[] { startDay, endDay },
+            () -> loadDailySeries(startDay, endDay));
+    }
+    
+    private DailySeries loadDailySeries(int startDay, int endDay) {
+        // Rows of one day are adjacent through the (day, category) key and merge as they append
+        Cursor cursor = database.rawQuery(
+            "SELECT " + DatabaseContract.COLUMN_DAILY_DAY + ", " +
+            DatabaseContract.COLUMN_DAILY_SESSIONS + ", " +
+            DatabaseContract.COLUMN_DAILY_MINUTES + ", " +
+            DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + ", " +
+            DatabaseContract.COLUMN_DAILY_FATIGUE_SUM +
+            " FROM " + DatabaseContract.TABLE_DAILY_STATS +
+            " WHERE " + DatabaseContract.COLUMN_DAILY_DAY + " BETWEEN ? AND ?" +
+            " ORDER BY " + DatabaseContract.COLUMN_DAILY_DAY + " ASC",
+            new String[] { String.valueOf(startDay), String.valueOf(endDay) });
+        
+        DailySeries series = new DailySeries();
+        try {
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(1) <= 0) continue;
+                series.append(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2), cursor.getInt(3), cursor.getInt(4));
+            }
+        } finally {
+            cursor.close();
+        }
+        // Shared through the cache
+        return series.freeze();
+    }
+    
+    // Every stats screen card and chart series for the range, computed in one pass over its rows
+    public StatsSnapshot getStatsSnapshot(int startDay, int endDay) {
+        return queryCache.get(DAILY_TABLES, "getStatsSnapshot", new Object[] { startDay, endDay },
+            () -> loadStatsSnapshot(startDay, endDay));
+    }
+    
+    private StatsSnapshot loadStatsSnapshot(int startDay, int endDay) {
+        Cursor cursor = database.rawQuery(
+            "SELECT " + DatabaseContract.COLUMN_DAILY_DAY + ", " +
+            DatabaseContract.COLUMN_DAILY_CATEGORY + ", " +
+            DatabaseContract.COLUMN_DAILY_SESSIONS + ", " +
+            DatabaseContract.COLUMN_DAILY_MINUTES + ", " +
+            DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + ", " +
+            DatabaseContract.COLUMN_DAILY_FATIGUE_SUM +
+            " FROM " + DatabaseContract.TABLE_DAILY_STATS +
+            " WHERE " + DatabaseContract.COLUMN_DAILY_DAY + " BETWEEN ? AND ?" +
+            " ORDER BY " + DatabaseContract.COLUMN_DAILY_DAY + " ASC",
+            new String[] { String.valueOf(startDay), String.valueOf(endDay) });
+        
+        StatsEngine engine = new StatsEngine(startDay, endDay);
+        try {
+            while (cursor.moveToNext()) {
+                engine.add(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), cursor.getInt(3),
+                    cursor.getInt(4), cursor.getInt(5));
+            }
+        } finally {
+            cursor.close();
+        }
+        return engine.build();
+    }
+    
+    // Total minutes over every day in the rollup
+    public int getTotalMinutes() {
+        return queryCache.get(DAILY_TABLES, "getTotalMinutes", null, this::loadTotalMinutes);
+    }
+    
+    private int loadTotalMinutes() {
+        Cursor cursor = database.rawQuery(
+            "SELECT TOTAL(" + DatabaseContract.COLUMN_DAILY_MINUTES + ") FROM " +
+            DatabaseContract.TABLE_DAILY_STATS, null);
+        int total = 0;
+        if (cursor.moveToFirst()) {
+            total = cursor.getInt(0);
+        }
+        cursor.close();
+        return total;
+    }
+    
+    // Bitmap of every day with a workout; the one source for current and best streaks
+    public StreakIndex getStreakIndex() {
+        return queryCache.get(ACTIVITY_TABLES, "getStreakIndex", null, this::loadStreakIndex);
+    }
+    
+    private StreakIndex loadStreakIndex() {
+        Cursor cursor = database.rawQuery(
+            "SELECT " + DatabaseContract.COLUMN_ACTIVITY_WORD + ", " + DatabaseContract.COLUMN_ACTIVITY_BITS +
+            " FROM " + DatabaseContract.TABLE_ACTIVITY_DAYS +
+            " ORDER BY " + DatabaseContract.COLUMN_ACTIVITY_WORD + " ASC", null);
+        try {
+            if (!cursor.moveToLast()) {
+                return StreakIndex.EMPTY;
+            }
+            int lastWord = cursor.getInt(0);
+            cursor.moveToFirst();
+            int firstWord = cursor.getInt(0);
+            
+            // Words with no active day have no row and stay zero
+            long[] words = new long[lastWord - firstWord + 1];
+            do {
+                words[cursor.getInt(0) - firstWord] = cursor.getLong(1);
+            } while (cursor.moveToNext());
+            return new StreakIndex(firstWord, words);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.squashtrainingapp.database.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+// Shared helpers for DAOs
+final class DaoUtils {
+    
+    private DaoUtils() {}
+    
+    // SQLiteStatement.bindString rejects null, so fall back to an explicit NULL binding
+    static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+    
+    // First column of the first row as a long, or null when there is no row or the value is NULL
+    static Long queryLong(SQLiteDatabase database, String sql, String... args) {
+        Cursor cursor = database.rawQuery(sql, args);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
\ No newline at end of file
@@ -3,17 +3,29 @@ package com.squashtrainingapp.database.dao;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import com.squashtrainingapp.models.Exercise;
 import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.database.mapping.ExerciseRowMapper;
+import com.squashtrainingapp.database.mapping.RowMapper;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ExerciseDao {
     
+    private static final String[] EXERCISE_TABLES = { DatabaseContract.TABLE_EXERCISES };
+    
     private SQLiteDatabase database;
+    private QueryCache queryCache;
     
     public ExerciseDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public ExerciseDao(SQLiteDatabase database, QueryCache queryCache) {
         this.database = database;
+        this.queryCache = queryCache;
     }
     
     // Insert exercise
@@ -24,36 +36,87 @@ public class ExerciseDao {
         values.put(DatabaseContract.COLUMN_EXERCISE_DESCRIPTION, exercise.getDescription());
         values.put(DatabaseContract.COLUMN_EXERCISE_CHECKED, exercise.isChecked() ? 1 : 0);
         
-        return database.insert(DatabaseContract.TABLE_EXERCISES, null, values);
+        database.beginTransaction();
+        long id;
+        try {
+            id = database.insert(DatabaseContract.TABLE_EXERCISES, null, values);
+            if (id != -1) {
+                SearchDao.addGrams(database, id, DatabaseContract.SEARCH_SOURCE_EXERCISE,
+                    exercise.getName(), exercise.getDescription(), exercise.getCategory());
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        queryCache.invalidate(database, EXERCISE_TABLES);
+        return id;
     }
     
-    // Get all exercises
-    public List<Exercise> getAllExercises() {
-        List<Exercise> exercises = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + DatabaseContract.TABLE_EXERCISES;
-        
-        Cursor cursor = database.rawQuery(selectQuery, null);
+    // Insert many exercises in one transaction through a single compiled statement
+    public int insertAll(List<Exercise> exercises) {
+        String sql = "INSERT INTO " + DatabaseContract.TABLE_EXERCISES + " (" +
+                DatabaseContract.COLUMN_EXERCISE_NAME + ", " +
+                DatabaseContract.COLUMN_EXERCISE_CATEGORY + ", " +
+                DatabaseContract.COLUMN_EXERCISE_DESCRIPTION + ", " +
+                DatabaseContract.COLUMN_EXERCISE_CHECKED +
+                ") VALUES (?, ?, ?, ?)";
         
-        if (cursor.moveToFirst()) {
-            do {
-                Exercise exercise = cursorToExercise(cursor);
-                exercises.add(exercise);
-            } while (cursor.moveToNext());
+        database.beginTransaction();
+        SQLiteStatement statement = database.compileStatement(sql);
+        SearchDao.GramWriter grams = new SearchDao.GramWriter(database);
+        try {
+            for (Exercise exercise : exercises) {
+                statement.clearBindings();
+                DaoUtils.bindString(statement, 1, exercise.getName());
+                DaoUtils.bindString(statement, 2, exercise.getCategory());
+                DaoUtils.bindString(statement, 3, exercise.getDescription());
+                statement.bindLong(4, exercise.isChecked() ? 1 : 0);
+                exercise.setId((int) statement.executeInsert());
+                grams.add(exercise.getId(), DatabaseContract.SEARCH_SOURCE_EXERCISE,
+                    exercise.getName(), exercise.getDescription(), exercise.getCategory());
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            statement.close();
+            grams.close();
+            database.endTransaction();
+            queryCache.invalidate(database, EXERCISE_TABLES);
         }
+        return exercises.size();
+    }
+    
+    // Get all exercises
+    public List<Exercise> getAllExercises() {
+        return queryCache.get(EXERCISE_TABLES, "getAllExercises", null, this::loadAllExercises);
+    }
+    
+    private List<Exercise> loadAllExercises() {
+        Cursor cursor = database.query(
+            DatabaseContract.TABLE_EXERCISES,
+            ExerciseRowMapper.FULL_PROJECTION,
+            null,
+            null,
+            null,
+            null,
+            null
+        );
         
-        cursor.close();
-        return exercises;
+        return RowMapper.mapAll(cursor, new ExerciseRowMapper(cursor));
     }
     
     // Get exercises by category
     public List<Exercise> getExercisesByCategory(String category) {
-        List<Exercise> exercises = new ArrayList<>();
+        return queryCache.get(EXERCISE_TABLES, "getExercisesByCategory", new Object[] { category },
+            () -> loadExercisesByCategory(category));
+    }
+    
+    private List<Exercise> loadExercisesByCategory(String category) {
         String selection = DatabaseContract.COLUMN_EXERCISE_CATEGORY + " = ?";
         String[] selectionArgs = { category };
         
         Cursor cursor = database.query(
             DatabaseContract.TABLE_EXERCISES,
-            null,
+            ExerciseRowMapper.FULL_PROJECTION,
             selection,
             selectionArgs,
             null,
@@ -61,15 +124,7 @@ public class ExerciseDao {
             null
         );
         
-        if (cursor.moveToFirst()) {
-            do {
-                Exercise exercise = cursorToExercise(cursor);
-                exercises.add(exercise);
-            } while (cursor.moveToNext());
-        }
-        
-        cursor.close();
-        return exercises;
+        return RowMapper.mapAll(cursor, new ExerciseRowMapper(cursor));
     }
     
     // Update exercise checked status
@@ -77,21 +132,25 @@ public class ExerciseDao {
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_EXERCISE_CHECKED, isChecked ? 1 : 0);
         
-        return database.update(
+        int rowsAffected = database.update(
             DatabaseContract.TABLE_EXERCISES,
             values,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[] { String.valueOf(id) }
         );
+        queryCache.invalidate(database, EXERCISE_TABLES);
+        return rowsAffected;
     }
     
     // Delete exercise
     public int delete(int id) {
-        return database.delete(
+        int rowsDeleted = database.delete(
             DatabaseContract.TABLE_EXERCISES,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[] { String.valueOf(id) }
         );
+        queryCache.invalidate(database, EXERCISE_TABLES);
+        return rowsDeleted;
     }
     
     // Insert default exercises
@@ -105,20 +164,10 @@ public class ExerciseDao {
             {"Serves & Returns", "Match Play", "Practice different serves and return options"}
         };
         
+        List<Exercise> exercises = new ArrayList<>();
         for (String[] data : defaultExercises) {
-            Exercise exercise = new Exercise(data[0], data[1], data[2]);
-            insert(exercise);
+            exercises.add(new Exercise(data[0], data[1], data[2]));
         }
-    }
-    
-    // Helper method to convert cursor to exercise
-    private Exercise cursorToExercise(Cursor cursor) {
-        Exercise exercise = new Exercise();
-        exercise.setId(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_ID)));
-        exercise.setName(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_NAME)));
-        exercise.setCategory(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_CATEGORY)));
-        exercise.setDescription(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_DESCRIPTION)));
-        exercise.setChecked(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_CHECKED)) == 1);
-        return exercise;
+        insertAll(exercises);
     }
 }
\ No newline at end of file
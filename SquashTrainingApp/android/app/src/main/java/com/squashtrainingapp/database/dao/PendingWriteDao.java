@@ -0,0 +1,108 @@
+package com.squashtrainingapp.database.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.PendingWrite;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PendingWriteDao {
+    
+    private static final String[] PROJECTION = {
+        DatabaseContract.COLUMN_ID,
+        DatabaseContract.COLUMN_PENDING_PATH,
+        DatabaseContract.COLUMN_PENDING_OP,
+        DatabaseContract.COLUMN_PENDING_FIELDS,
+        DatabaseContract.COLUMN_PENDING_CREATED_AT
+    };
+    
+    private SQLiteDatabase database;
+    
+    public PendingWriteDao(SQLiteDatabase database) {
+        this.database = database;
+    }
+    
+    public long insert(PendingWrite write) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseContract.COLUMN_PENDING_PATH, write.getPath());
+        values.put(DatabaseContract.COLUMN_PENDING_OP, write.getOp());
+        values.put(DatabaseContract.COLUMN_PENDING_FIELDS, write.getFields());
+        values.put(DatabaseContract.COLUMN_PENDING_CREATED_AT, write.getCreatedAt());
+        
+        long id = database.insert(DatabaseContract.TABLE_PENDING_WRITES, null, values);
+        write.setId(id);
+        return id;
+    }
+    
+    // Replace the op and fields of a row after another mutation was folded into it
+    public int update(PendingWrite write) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseContract.COLUMN_PENDING_OP, write.getOp());
+        values.put(DatabaseContract.COLUMN_PENDING_FIELDS, write.getFields());
+        
+        return database.update(DatabaseContract.TABLE_PENDING_WRITES, values,
+            DatabaseContract.COLUMN_ID + " = ?", new String[]{String.valueOf(write.getId())});
+    }
+    
+    // Newest row for the document, or null
+    public PendingWrite getLatest(String path) {
+        Cursor cursor = database.query(DatabaseContract.TABLE_PENDING_WRITES, PROJECTION,
+            DatabaseContract.COLUMN_PENDING_PATH + " = ?", new String[]{path},
+            null, null, DatabaseContract.COLUMN_ID + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? cursorToWrite(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+    
+    // Oldest rows, in the order they were made
+    public List<PendingWrite> getOldest(int limit) {
+        List<PendingWrite> writes = new ArrayList<>();
+        Cursor cursor = database.query(DatabaseContract.TABLE_PENDING_WRITES, PROJECTION,
+            null, null, null, null, DatabaseContract.COLUMN_ID + " ASC", String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                writes.add(cursorToWrite(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return writes;
+    }
+    
+    public int getCount() {
+        Long count = DaoUtils.queryLong(database,
+            "SELECT COUNT(*) FROM " + DatabaseContract.TABLE_PENDING_WRITES);
+        return count == null ? 0 : count.intValue();
+    }
+    
+    public void delete(List<PendingWrite> writes) {
+        database.beginTransaction();
+        try {
+            for (PendingWrite write : writes) {
+                database.delete(DatabaseContract.TABLE_PENDING_WRITES,
+                    DatabaseContract.COLUMN_ID + " = ?", new String[]{String.valueOf(write.getId())});
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+    
+    public void deleteAll() {
+        database.delete(DatabaseContract.TABLE_PENDING_WRITES, null, null);
+    }
+    
+    private PendingWrite cursorToWrite(Cursor cursor) {
+        PendingWrite write = new PendingWrite();
+        write.setId(cursor.getLong(0));
+        write.setPath(cursor.getString(1));
+        write.setOp(cursor.getString(2));
+        write.setFields(cursor.getString(3));
+        write.setCreatedAt(cursor.getLong(4));
+        return write;
+    }
+}
@@ -2,24 +2,71 @@ package com.squashtrainingapp.database.dao;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MergeCursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.analytics.TrainingLoad;
 import com.squashtrainingapp.models.Record;
 import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.database.archive.RecordArchive;
+import com.squashtrainingapp.database.mapping.RecordRowMapper;
+import com.squashtrainingapp.database.mapping.RowMapper;
+import com.squashtrainingapp.utils.EpochDay;
+import com.squashtrainingapp.utils.ExerciseClassifier;
+import com.squashtrainingapp.utils.Timestamps;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
 
 public class RecordDao {
     
+    private static final String SQL_OLDEST_BEFORE = "SELECT MIN(" + DatabaseContract.COLUMN_RECORD_DATE_MILLIS +
+        ") FROM " + DatabaseContract.TABLE_RECORDS + " WHERE " + DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " < ?";
+    
+    // Archived rows stay searchable: their index entries are written back after the table delete
+    // drops them, and removed when the row leaves the archive
+    private static final String SQL_INDEX_ARCHIVED = "INSERT INTO " + DatabaseContract.TABLE_SEARCH_INDEX +
+        " (docid, " + DatabaseContract.COLUMN_SEARCH_TITLE + ", " + DatabaseContract.COLUMN_SEARCH_BODY + ", " +
+        DatabaseContract.COLUMN_SEARCH_GRAMS + ") VALUES (?, ?, ?, ?)";
+    private static final String SQL_UNINDEX_ARCHIVED = "DELETE FROM " + DatabaseContract.TABLE_SEARCH_INDEX +
+        " WHERE docid = ?";
+    
+    // The date text column holds UTC, as SQLite writes for CURRENT_TIMESTAMP; only date_millis is read back
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    
     private SQLiteDatabase database;
+    private DailyStatsDao dailyStatsDao;
+    private TrainingLoadDao trainingLoadDao;
+    // Year-old rows moved out of the table; null when this DAO only sees the table
+    private RecordArchive archive;
     
     public RecordDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled(), null);
+    }
+    
+    // Nothing read from records is cached; the cache is for the rollup and training load this DAO
+    // maintains
+    public RecordDao(SQLiteDatabase database, QueryCache queryCache, RecordArchive archive) {
         this.database = database;
+        this.dailyStatsDao = new DailyStatsDao(database, queryCache);
+        this.trainingLoadDao = new TrainingLoadDao(database, queryCache);
+        this.archive = archive;
     }
     
-    // Insert record
+    // Insert record and fold it into the daily_stats rollup and the training load in the same
+    // transaction
     public long insert(Record record) {
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_RECORD_EXERCISE, record.getExerciseName());
+        values.put(DatabaseContract.COLUMN_RECORD_CATEGORY, record.getExerciseType());
         values.put(DatabaseContract.COLUMN_RECORD_SETS, record.getSets());
         values.put(DatabaseContract.COLUMN_RECORD_REPS, record.getReps());
         values.put(DatabaseContract.COLUMN_RECORD_DURATION, record.getDuration());
@@ -27,85 +74,283 @@ public class RecordDao {
         values.put(DatabaseContract.COLUMN_RECORD_CONDITION, record.getCondition());
         values.put(DatabaseContract.COLUMN_RECORD_FATIGUE, record.getFatigue());
         values.put(DatabaseContract.COLUMN_RECORD_MEMO, record.getMemo());
+        values.put(DatabaseContract.COLUMN_RECORD_DATE, Timestamps.format(record.getDateMillis(), UTC));
+        values.put(DatabaseContract.COLUMN_RECORD_DATE_MILLIS, record.getDateMillis());
+        values.put(DatabaseContract.COLUMN_RECORD_EPOCH_DAY, record.getEpochDay());
         
-        return database.insert(DatabaseContract.TABLE_RECORDS, null, values);
+        database.beginTransaction();
+        try {
+            long id = database.insert(DatabaseContract.TABLE_RECORDS, null, values);
+            if (id != -1) {
+                SearchDao.addGrams(database, id, DatabaseContract.SEARCH_SOURCE_RECORD,
+                    record.getExerciseName(), record.getMemo());
+                dailyStatsDao.applyRecord(record, 1);
+                trainingLoadDao.applyRecord(record, 1);
+            }
+            database.setTransactionSuccessful();
+            return id;
+        } finally {
+            database.endTransaction();
+        }
     }
     
-    // Get all records
-    public List<Record> getAllRecords() {
-        List<Record> records = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + DatabaseContract.TABLE_RECORDS + 
-                           " ORDER BY " + DatabaseContract.COLUMN_RECORD_DATE + " DESC";
-        
-        Cursor cursor = database.rawQuery(selectQuery, null);
+    // Insert many records in one transaction through a single compiled statement
+    public int insertAll(List<Record> records) {
+        Inserter inserter = newInserter();
+        try {
+            for (Record record : records) {
+                inserter.add(record);
+            }
+            inserter.commit();
+        } finally {
+            inserter.close();
+        }
+        return records.size();
+    }
+    
+    // The records not already saved, table or archive, nor earlier in the list. A workout counts
+    // as saved when one with the same time, exercise and duration exists, so re-importing an
+    // export adds nothing.
+    public List<Record> withoutDuplicates(List<Record> records) {
+        if (records.isEmpty()) return records;
         
-        if (cursor.moveToFirst()) {
-            do {
-                Record record = cursorToRecord(cursor);
-                records.add(record);
-            } while (cursor.moveToNext());
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (Record record : records) {
+            first = Math.min(first, record.getDateMillis());
+            last = Math.max(last, record.getDateMillis());
+        }
+        Set<String> saved = new HashSet<>();
+        for (Record record : getRecordSummariesBetweenDates(first, last)) {
+            saved.add(duplicateKey(record));
         }
         
-        cursor.close();
-        return records;
+        List<Record> fresh = new ArrayList<>(records.size());
+        for (Record record : records) {
+            if (saved.add(duplicateKey(record))) {
+                fresh.add(record);
+            }
+        }
+        return fresh;
     }
     
-    // Get records by date range
-    public List<Record> getRecordsByDateRange(String startDate, String endDate) {
-        List<Record> records = new ArrayList<>();
-        String selection = DatabaseContract.COLUMN_RECORD_DATE + " BETWEEN ? AND ?";
-        String[] selectionArgs = { startDate, endDate };
+    private static String duplicateKey(Record record) {
+        return record.getDateMillis() + "|" + record.getDuration() + "|" + record.getExerciseName();
+    }
+    
+    // Open a streaming insert handle. Callers must commit() and then close() it; closing an
+    // uncommitted handle rolls back everything added through it.
+    public Inserter newInserter() {
+        return new Inserter(database, dailyStatsDao.newAccumulator(), trainingLoadDao);
+    }
+    
+    public static class Inserter implements java.io.Closeable {
+        private static final String SQL_INSERT = "INSERT INTO " + DatabaseContract.TABLE_RECORDS + " (" +
+                DatabaseContract.COLUMN_RECORD_EXERCISE + ", " +
+                DatabaseContract.COLUMN_RECORD_SETS + ", " +
+                DatabaseContract.COLUMN_RECORD_REPS + ", " +
+                DatabaseContract.COLUMN_RECORD_DURATION + ", " +
+                DatabaseContract.COLUMN_RECORD_INTENSITY + ", " +
+                DatabaseContract.COLUMN_RECORD_CONDITION + ", " +
+                DatabaseContract.COLUMN_RECORD_FATIGUE + ", " +
+                DatabaseContract.COLUMN_RECORD_MEMO + ", " +
+                DatabaseContract.COLUMN_RECORD_DATE + ", " +
+                DatabaseContract.COLUMN_RECORD_DATE_MILLIS + ", " +
+                DatabaseContract.COLUMN_RECORD_CATEGORY + ", " +
+                DatabaseContract.COLUMN_RECORD_EPOCH_DAY +
+                ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        private final SQLiteDatabase database;
+        private final SQLiteStatement statement;
+        // Rollup deltas are collected per (day, category) and written once at commit
+        private final DailyStatsDao.Accumulator dailyStats;
+        // Working copy of the training load, saved once at commit
+        private final TrainingLoadDao trainingLoadDao;
+        private final TrainingLoad trainingLoad;
+        private final SearchDao.GramWriter grams;
+        private int count;
+        private boolean closed;
+        
+        Inserter(SQLiteDatabase database, DailyStatsDao.Accumulator dailyStats, TrainingLoadDao trainingLoadDao) {
+            this.database = database;
+            this.dailyStats = dailyStats;
+            this.trainingLoadDao = trainingLoadDao;
+            this.statement = database.compileStatement(SQL_INSERT);
+            this.grams = new SearchDao.GramWriter(database);
+            try {
+                this.trainingLoad = trainingLoadDao.get().copy();
+                // Last, so that if anything here throws no transaction is left open on the
+                // shared connection for later writes to nest in
+                database.beginTransaction();
+            } catch (RuntimeException e) {
+                statement.close();
+                grams.close();
+                throw e;
+            }
+        }
+        
+        public long add(Record record) {
+            long dateMillis = record.getDateMillis();
+            statement.clearBindings();
+            DaoUtils.bindString(statement, 1, record.getExerciseName());
+            statement.bindLong(2, record.getSets());
+            statement.bindLong(3, record.getReps());
+            statement.bindLong(4, record.getDuration());
+            statement.bindLong(5, record.getIntensity());
+            statement.bindLong(6, record.getCondition());
+            statement.bindLong(7, record.getFatigue());
+            DaoUtils.bindString(statement, 8, record.getMemo());
+            statement.bindString(9, Timestamps.format(dateMillis, UTC));
+            statement.bindLong(10, dateMillis);
+            statement.bindString(11, record.getExerciseType());
+            statement.bindLong(12, record.getEpochDay());
+            
+            long id = statement.executeInsert();
+            record.setId((int) id);
+            grams.add(id, DatabaseContract.SEARCH_SOURCE_RECORD, record.getExerciseName(), record.getMemo());
+            dailyStats.add(record, 1);
+            trainingLoad.add(record, 1);
+            count++;
+            return id;
+        }
+        
+        public int getCount() {
+            return count;
+        }
         
+        public void commit() {
+            dailyStats.apply();
+            trainingLoadDao.save(trainingLoad);
+            database.setTransactionSuccessful();
+        }
+        
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            statement.close();
+            grams.close();
+            database.endTransaction();
+        }
+    }
+    
+    // Get all records
+    public List<Record> getAllRecords() {
         Cursor cursor = database.query(
             DatabaseContract.TABLE_RECORDS,
+            RecordRowMapper.FULL_PROJECTION,
+            null,
             null,
-            selection,
-            selectionArgs,
             null,
             null,
-            DatabaseContract.COLUMN_RECORD_DATE + " DESC"
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " DESC, " + DatabaseContract.COLUMN_ID + " DESC"
         );
         
-        if (cursor.moveToFirst()) {
-            do {
-                Record record = cursorToRecord(cursor);
-                records.add(record);
-            } while (cursor.moveToNext());
+        List<Record> records = RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+        return hasArchive() ? mergeNewestFirst(records, archive.getAllRecords(), Integer.MAX_VALUE) : records;
+    }
+    
+    // Get one page of history, newest first, seeking past the (dateMillis, id) of the last row
+    // already shown. Pass Long.MAX_VALUE for both to fetch the first page; exerciseType may be null.
+    public List<Record> getRecordsPage(long beforeDateMillis, long beforeId, int pageSize, String exerciseType) {
+        StringBuilder selection = new StringBuilder()
+            .append(DatabaseContract.COLUMN_RECORD_DATE_MILLIS).append(" <= ? AND (")
+            .append(DatabaseContract.COLUMN_RECORD_DATE_MILLIS).append(" < ? OR ")
+            .append(DatabaseContract.COLUMN_ID).append(" < ?)");
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(String.valueOf(beforeDateMillis));
+        selectionArgs.add(String.valueOf(beforeDateMillis));
+        selectionArgs.add(String.valueOf(beforeId));
+        
+        if (exerciseType != null) {
+            if (!ExerciseClassifier.isCategory(exerciseType)) {
+                throw new IllegalArgumentException("Unknown exercise type: " + exerciseType);
+            }
+            selection.append(" AND ").append(DatabaseContract.COLUMN_RECORD_CATEGORY).append(" = ?");
+            selectionArgs.add(exerciseType);
         }
         
-        cursor.close();
-        return records;
+        Cursor cursor = database.query(
+            DatabaseContract.TABLE_RECORDS,
+            RecordRowMapper.FULL_PROJECTION,
+            selection.toString(),
+            selectionArgs.toArray(new String[0]),
+            null,
+            null,
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " DESC, " + DatabaseContract.COLUMN_ID + " DESC",
+            String.valueOf(pageSize)
+        );
+        
+        List<Record> page = RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+        if (!hasArchive()) {
+            return page;
+        }
+        // Each source returns its own first pageSize rows; the page is the newest of both
+        return mergeNewestFirst(page,
+            archive.getRecordsPage(beforeDateMillis, beforeId, pageSize, exerciseType), pageSize);
+    }
+    
+    // Get records by date range ("yyyy-MM-dd" or "yyyy-MM-dd HH:mm:ss", local time, inclusive)
+    public List<Record> getRecordsByDateRange(String startDate, String endDate) {
+        return getRecordsBetweenDates(parseRangeBound(startDate, false), parseRangeBound(endDate, true));
     }
     
     // Get records between dates (using timestamp)
     public List<Record> getRecordsBetweenDates(long startTime, long endTime) {
-        List<Record> records = new ArrayList<>();
-        // Convert timestamps to date strings for comparison
-        String startDate = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(new java.util.Date(startTime));
-        String endDate = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(new java.util.Date(endTime));
-        
-        String selection = DatabaseContract.COLUMN_RECORD_DATE + " BETWEEN ? AND ?";
-        String[] selectionArgs = { startDate, endDate };
+        return queryBetweenDates(RecordRowMapper.FULL_PROJECTION, startTime, endTime);
+    }
+    
+    // Lightweight variant for the stats screens: only id, exercise name, duration and date are set
+    public List<Record> getRecordSummariesBetweenDates(long startTime, long endTime) {
+        return queryBetweenDates(RecordRowMapper.SUMMARY_PROJECTION, startTime, endTime);
+    }
+    
+    private List<Record> queryBetweenDates(String[] projection, long startTime, long endTime) {
+        String selection = DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " BETWEEN ? AND ?";
+        String[] selectionArgs = { String.valueOf(startTime), String.valueOf(endTime) };
         
         Cursor cursor = database.query(
             DatabaseContract.TABLE_RECORDS,
-            null,
+            projection,
             selection,
             selectionArgs,
             null,
             null,
-            DatabaseContract.COLUMN_RECORD_DATE + " DESC"
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " DESC, " + DatabaseContract.COLUMN_ID + " DESC"
         );
         
-        if (cursor.moveToFirst()) {
-            do {
-                Record record = cursorToRecord(cursor);
-                records.add(record);
-            } while (cursor.moveToNext());
+        List<Record> records = RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+        if (!hasArchive()) {
+            return records;
         }
-        
-        cursor.close();
-        return records;
+        return mergeNewestFirst(records, archive.getRecordsBetween(startTime, endTime), Integer.MAX_VALUE);
+    }
+    
+    // Records between the two times, oldest first, as an open cursor over FULL_PROJECTION for
+    // callers that stream rows instead of holding them. The caller closes it. Archived rows come
+    // first: archiving only moves rows older than anything it leaves behind, so the order holds
+    // unless older history was imported after the last archive run.
+    public Cursor openRecordsBetweenDates(long startTime, long endTime) {
+        Cursor hot = database.query(
+            DatabaseContract.TABLE_RECORDS,
+            RecordRowMapper.FULL_PROJECTION,
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " BETWEEN ? AND ?",
+            new String[] { String.valueOf(startTime), String.valueOf(endTime) },
+            null,
+            null,
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " ASC, " + DatabaseContract.COLUMN_ID + " ASC"
+        );
+        if (!hasArchive()) {
+            return hot;
+        }
+        return new MergeCursor(new Cursor[] { archive.openBetween(startTime, endTime), hot });
+    }
+    
+    public int getRecordsCountBetweenDates(long startTime, long endTime) {
+        int count = (int) DatabaseUtils.queryNumEntries(database, DatabaseContract.TABLE_RECORDS,
+            DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " BETWEEN ? AND ?",
+            new String[] { String.valueOf(startTime), String.valueOf(endTime) });
+        return hasArchive() ? count + archive.countBetween(startTime, endTime) : count;
     }
     
     // Get records count
@@ -119,46 +364,193 @@ public class RecordDao {
         }
         
         cursor.close();
-        return count;
+        return hasArchive() ? count + archive.count() : count;
     }
     
-    // Delete record
+    // Delete record and take it back out of the daily_stats rollup and the training load. An
+    // archived record's year file is rewritten like an archive run: prepared inside the
+    // transaction and renamed into place just before it succeeds.
     public int delete(int id) {
-        return database.delete(
-            DatabaseContract.TABLE_RECORDS,
-            DatabaseContract.COLUMN_ID + " = ?",
-            new String[] { String.valueOf(id) }
-        );
+        String[] selectionArgs = { String.valueOf(id) };
+        
+        RecordArchive.Removal removal = null;
+        database.beginTransaction();
+        try {
+            Cursor cursor = database.query(
+                DatabaseContract.TABLE_RECORDS,
+                RecordRowMapper.FULL_PROJECTION,
+                DatabaseContract.COLUMN_ID + " = ?",
+                selectionArgs,
+                null,
+                null,
+                null
+            );
+            List<Record> existing = RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+            
+            int rowsDeleted = database.delete(
+                DatabaseContract.TABLE_RECORDS,
+                DatabaseContract.COLUMN_ID + " = ?",
+                selectionArgs
+            );
+            if (rowsDeleted > 0 && !existing.isEmpty()) {
+                dailyStatsDao.applyRecord(existing.get(0), -1);
+                trainingLoadDao.applyRecord(existing.get(0), -1);
+            } else if (hasArchive()) {
+                removal = archive.prepareRemoval(id);
+                if (removal != null) {
+                    dailyStatsDao.applyRecord(removal.getRecord(), -1);
+                    trainingLoadDao.applyRecord(removal.getRecord(), -1);
+                    database.execSQL(SQL_UNINDEX_ARCHIVED, new Object[] { searchDocid(id) });
+                    archive.commit(removal);
+                    removal = null;
+                    rowsDeleted = 1;
+                }
+            }
+            database.setTransactionSuccessful();
+            return rowsDeleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            database.endTransaction();
+            if (removal != null) {
+                archive.abort(removal);
+            }
+        }
     }
     
-    // Get statistics
-    public int getTotalDuration() {
-        String sumQuery = "SELECT SUM(" + DatabaseContract.COLUMN_RECORD_DURATION + ") FROM " + 
-                         DatabaseContract.TABLE_RECORDS;
-        Cursor cursor = database.rawQuery(sumQuery, null);
-        int total = 0;
+    // Move every row older than the cutoff into the archive, one year per transaction, and return
+    // how many moved. The rollup keeps counting them, so totals and streaks are unchanged, and
+    // they stay in the search index.
+    public int archiveBefore(long cutoffMillis) throws IOException {
+        if (archive == null) return 0;
         
-        if (cursor.moveToFirst()) {
-            total = cursor.getInt(0);
+        int moved = 0;
+        Long oldest;
+        while ((oldest = DaoUtils.queryLong(database, SQL_OLDEST_BEFORE, String.valueOf(cutoffMillis))) != null) {
+            int year = RecordArchive.yearOf(oldest);
+            long end = Math.min(RecordArchive.startOfYear(year + 1), cutoffMillis);
+            String[] range = { String.valueOf(oldest), String.valueOf(end) };
+            String selection = DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " >= ? AND " +
+                DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " < ?";
+            
+            File prepared = null;
+            database.beginTransaction();
+            try {
+                Cursor cursor = database.query(
+                    DatabaseContract.TABLE_RECORDS,
+                    RecordRowMapper.FULL_PROJECTION,
+                    selection,
+                    range,
+                    null,
+                    null,
+                    DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " ASC, " + DatabaseContract.COLUMN_ID + " ASC"
+                );
+                List<Record> rows = RowMapper.mapAll(cursor, new RecordRowMapper(cursor));
+                prepared = archive.prepare(year, rows);
+                
+                // Plain delete: the rows leave the table but not the rollup. The delete trigger
+                // drops their search entries, so put them back.
+                database.delete(DatabaseContract.TABLE_RECORDS, selection, range);
+                indexArchived(rows);
+                archive.commit(year, prepared);
+                prepared = null;
+                database.setTransactionSuccessful();
+                moved += rows.size();
+            } finally {
+                database.endTransaction();
+                if (prepared != null) {
+                    archive.abort(prepared);
+                }
+            }
         }
+        return moved;
+    }
+    
+    private void indexArchived(List<Record> rows) {
+        SQLiteStatement statement = database.compileStatement(SQL_INDEX_ARCHIVED);
+        try {
+            for (Record row : rows) {
+                statement.clearBindings();
+                statement.bindLong(1, searchDocid(row.getId()));
+                DaoUtils.bindString(statement, 2, row.getExerciseName());
+                statement.bindString(3, row.getMemo() != null ? row.getMemo() : "");
+                DaoUtils.bindString(statement, 4, SearchDao.hangulBigrams(row.getExerciseName(), row.getMemo()));
+                statement.executeInsert();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+    
+    // Same docid the records triggers use
+    private static long searchDocid(int id) {
+        return SearchDao.docid(id, DatabaseContract.SEARCH_SOURCE_RECORD);
+    }
+    
+    // Delete table rows the archive also holds, e.g. after restoring a snapshot taken while an
+    // archive run was committing. The rollup counts each of them once already, so it is left alone;
+    // their search entries are put back after the delete trigger drops them.
+    public int deleteArchivedFromTable() {
+        if (!hasArchive()) return 0;
         
-        cursor.close();
-        return total;
-    }
-    
-    // Helper method to convert cursor to record
-    private Record cursorToRecord(Cursor cursor) {
-        Record record = new Record();
-        record.setId(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_ID)));
-        record.setExerciseName(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_EXERCISE)));
-        record.setSets(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_SETS)));
-        record.setReps(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_REPS)));
-        record.setDuration(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DURATION)));
-        record.setIntensity(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_INTENSITY)));
-        record.setCondition(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_CONDITION)));
-        record.setFatigue(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_FATIGUE)));
-        record.setMemo(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_MEMO)));
-        record.setDate(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DATE)));
-        return record;
+        List<Record> deleted = new ArrayList<>();
+        database.beginTransaction();
+        SQLiteStatement statement = database.compileStatement("DELETE FROM " + DatabaseContract.TABLE_RECORDS +
+            " WHERE " + DatabaseContract.COLUMN_ID + " = ?");
+        try {
+            for (Record record : archive.getAllRecords()) {
+                statement.bindLong(1, record.getId());
+                if (statement.executeUpdateDelete() > 0) {
+                    deleted.add(record);
+                }
+            }
+            indexArchived(deleted);
+            database.setTransactionSuccessful();
+            return deleted.size();
+        } finally {
+            statement.close();
+            database.endTransaction();
+        }
+    }
+    
+    // Get statistics (served from the daily_stats rollup)
+    public int getTotalDuration() {
+        return dailyStatsDao.getTotalMinutes();
+    }
+    
+    private boolean hasArchive() {
+        return archive != null && !archive.isEmpty();
+    }
+    
+    // Merge two newest-first lists into one, keeping at most limit rows. A row being archived is
+    // briefly in both places, between the archive file's rename and the commit; keep one copy.
+    private static List<Record> mergeNewestFirst(List<Record> hot, List<Record> archived, int limit) {
+        if (archived.isEmpty()) {
+            return hot.size() > limit ? hot.subList(0, limit) : hot;
+        }
+        List<Record> all = new ArrayList<>(hot.size() + archived.size());
+        all.addAll(hot);
+        all.addAll(archived);
+        Collections.sort(all, RecordArchive.NEWEST_FIRST);
+        
+        List<Record> merged = new ArrayList<>(Math.min(all.size(), limit));
+        for (Record record : all) {
+            if (merged.size() == limit) break;
+            if (!merged.isEmpty() && merged.get(merged.size() - 1).getId() == record.getId()) continue;
+            merged.add(record);
+        }
+        return merged;
+    }
+    
+    // Convert a local date string to epoch millis; date-only upper bounds cover the whole day
+    private long parseRangeBound(String date, boolean endOfDay) {
+        long millis = Timestamps.parseLocal(date);
+        if (millis == Timestamps.INVALID) {
+            throw new IllegalArgumentException("Invalid date: " + date);
+        }
+        if (date.trim().length() > 10 || !endOfDay) {
+            return millis;
+        }
+        return EpochDay.toStartMillis(EpochDay.fromMillis(millis) + 1) - 1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.squashtrainingapp.database.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.SearchResult;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SearchDao {
+    
+    // Ranking happens in Java, so only the newest matches are scored. Keeps very common
+    // prefixes ("dr*") bounded on large histories.
+    private static final int MAX_CANDIDATES = 2000;
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double BODY_WEIGHT = 1.0;
+    // Hits inside a Hangul compound count like body hits
+    private static final double GRAMS_WEIGHT = 1.0;
+    
+    private SQLiteDatabase database;
+    
+    public SearchDao(SQLiteDatabase database) {
+        this.database = database;
+    }
+    
+    // Search records, exercises and programs; every word of the query must match, each as a
+    // prefix, and Hangul words also inside compounds. Best matches first.
+    public List<SearchResult> search(String query, int limit) {
+        String match = buildMatchQuery(query);
+        if (match == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        
+        List<Candidate> ranked = rankCandidates(match);
+        if (ranked.size() > limit) {
+            ranked = ranked.subList(0, limit);
+        }
+        return loadResults(match, ranked);
+    }
+    
+    // Turn free text into an FTS query: each letter/digit run becomes a quoted prefix term, which
+    // also neutralises FTS operators typed by the user. Single characters match exactly, since
+    // a one-character prefix would expand to most of the index. A word with Hangul may instead
+    // match its bigrams as a phrase in the grams column, so "드라이브" finds "백핸드드라이브".
+    static String buildMatchQuery(String query) {
+        if (query == null) return null;
+        
+        StringBuilder match = new StringBuilder();
+        for (String token : query.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(token);
+            if (token.codePointCount(0, token.length()) > 1) {
+                match.append('*');
+            }
+            match.append('"');
+            
+            String grams = hangulBigrams(token);
+            if (grams != null) {
+                match.append(" OR ").append(DatabaseContract.COLUMN_SEARCH_GRAMS)
+                    .append(":\"").append(grams).append('"');
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+    
+    // Every pair of adjacent Hangul syllables in the texts, in order and space-separated; null
+    // when there are none
+    static String hangulBigrams(String... texts) {
+        StringBuilder grams = null;
+        for (String text : texts) {
+            if (text == null) continue;
+            for (int i = 1; i < text.length(); i++) {
+                if (!isHangulSyllable(text.charAt(i - 1)) || !isHangulSyllable(text.charAt(i))) continue;
+                if (grams == null) {
+                    grams = new StringBuilder();
+                } else {
+                    grams.append(' ');
+                }
+                grams.append(text, i - 1, i + 1);
+            }
+        }
+        return grams == null ? null : grams.toString();
+    }
+    
+    private static boolean isHangulSyllable(char c) {
+        return c >= '\uAC00' && c <= '\uD7A3';
+    }
+    
+    static long docid(long id, int source) {
+        return id * DatabaseContract.SEARCH_SOURCE_SLOTS + source;
+    }
+    
+    // Fills the grams column of index rows the insert and update triggers just wrote, which
+    // cannot compute bigrams themselves. Text without Hangul needs no grams, so the statement
+    // is only compiled once some text does.
+    static class GramWriter implements Closeable {
+        private final SQLiteDatabase database;
+        private SQLiteStatement statement;
+        
+        GramWriter(SQLiteDatabase database) {
+            this.database = database;
+        }
+        
+        // After an insert: the new index row has no grams yet
+        void add(long id, int source, String... texts) {
+            String grams = hangulBigrams(texts);
+            if (grams != null) {
+                write(docid(id, source), grams);
+            }
+        }
+        
+        // After an update: the row may have had grams for its old text
+        void replace(long id, int source, String... texts) {
+            write(docid(id, source), hangulBigrams(texts));
+        }
+        
+        private void write(long docid, String grams) {
+            if (statement == null) {
+                statement = database.compileStatement("UPDATE " + DatabaseContract.TABLE_SEARCH_INDEX +
+                    " SET " + DatabaseContract.COLUMN_SEARCH_GRAMS + " = ? WHERE docid = ?");
+            }
+            DaoUtils.bindString(statement, 1, grams);
+            statement.bindLong(2, docid);
+            statement.executeUpdateDelete();
+        }
+        
+        @Override
+        public void close() {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+    
+    // One-off GramWriter.add, for single-row inserts
+    static void addGrams(SQLiteDatabase database, long id, int source, String... texts) {
+        if (hangulBigrams(texts) == null) return;
+        GramWriter writer = new GramWriter(database);
+        try {
+            writer.add(id, source, texts);
+        } finally {
+            writer.close();
+        }
+    }
+    
+    private static class Candidate {
+        final long docid;
+        final double score;
+        
+        Candidate(long docid, double score) {
+            this.docid = docid;
+            this.score = score;
+        }
+    }
+    
+    // Best first, newest first among equal scores
+    private List<Candidate> rankCandidates(String match) {
+        Cursor cursor = database.rawQuery(
+            "SELECT docid, matchinfo(" + DatabaseContract.TABLE_SEARCH_INDEX + ", 'pcx') FROM " +
+            DatabaseContract.TABLE_SEARCH_INDEX +
+            " WHERE " + DatabaseContract.TABLE_SEARCH_INDEX + " MATCH ?" +
+            " ORDER BY docid DESC LIMIT " + MAX_CANDIDATES,
+            new String[] { match });
+        
+        List<Candidate> candidates = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                candidates.add(new Candidate(cursor.getLong(0), score(cursor.getBlob(1))));
+            }
+        } finally {
+            cursor.close();
+        }
+        
+        // Candidates arrive newest first and the sort is stable
+        Collections.sort(candidates, (a, b) -> Double.compare(b.score, a.score));
+        return candidates;
+    }
+    
+    // matchinfo 'pcx': phrase count, column count, then per phrase and column the hits in this
+    // row, the hits in all rows and the rows with a hit. Rarer terms and title hits weigh more.
+    private static double score(byte[] matchinfo) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 2 + 3 * (phrase * columns + column);
+                int rowHits = info.get(base);
+                int allHits = info.get(base + 1);
+                if (rowHits > 0) {
+                    double weight = column == 0 ? TITLE_WEIGHT : column == 1 ? BODY_WEIGHT : GRAMS_WEIGHT;
+                    score += weight * rowHits / allHits;
+                }
+            }
+        }
+        return score;
+    }
+    
+    private List<SearchResult> loadResults(String match, List<Candidate> ranked) {
+        List<SearchResult> results = new ArrayList<>(ranked.size());
+        if (ranked.isEmpty()) {
+            return results;
+        }
+        
+        StringBuilder ids = new StringBuilder();
+        for (Candidate candidate : ranked) {
+            if (ids.length() > 0) ids.append(',');
+            ids.append(candidate.docid);
+        }
+        
+        // Snippets of title and body only; the grams column is not for display
+        Cursor cursor = database.rawQuery(
+            "SELECT docid, " + DatabaseContract.COLUMN_SEARCH_TITLE + ", " +
+            "snippet(" + DatabaseContract.TABLE_SEARCH_INDEX + ", '[', ']', '…', 0, 10), " +
+            "snippet(" + DatabaseContract.TABLE_SEARCH_INDEX + ", '[', ']', '…', 1, 10) FROM " +
+            DatabaseContract.TABLE_SEARCH_INDEX +
+            " WHERE " + DatabaseContract.TABLE_SEARCH_INDEX + " MATCH ? AND docid IN (" + ids + ")",
+            new String[] { match });
+        
+        Map<Long, String[]> rows = new HashMap<>();
+        try {
+            while (cursor.moveToNext()) {
+                String titleSnippet = cursor.getString(2);
+                String bodySnippet = cursor.getString(3);
+                // The body unless only the title has a highlighted hit
+                boolean titleOnly = hasHit(titleSnippet) && !hasHit(bodySnippet);
+                rows.put(cursor.getLong(0), new String[] { cursor.getString(1), titleOnly ? titleSnippet : bodySnippet });
+            }
+        } finally {
+            cursor.close();
+        }
+        
+        for (Candidate candidate : ranked) {
+            String[] row = rows.get(candidate.docid);
+            if (row == null) continue;
+            results.add(new SearchResult(
+                sourceOf(candidate.docid),
+                candidate.docid / DatabaseContract.SEARCH_SOURCE_SLOTS,
+                row[0],
+                row[1],
+                candidate.score
+            ));
+        }
+        return results;
+    }
+    
+    private static boolean hasHit(String snippet) {
+        return snippet != null && snippet.indexOf('[') >= 0;
+    }
+    
+    private static SearchResult.Source sourceOf(long docid) {
+        switch ((int) (docid % DatabaseContract.SEARCH_SOURCE_SLOTS)) {
+            case DatabaseContract.SEARCH_SOURCE_RECORD:
+                return SearchResult.Source.RECORD;
+            case DatabaseContract.SEARCH_SOURCE_EXERCISE:
+                return SearchResult.Source.EXERCISE;
+            case DatabaseContract.SEARCH_SOURCE_PROGRAM:
+                return SearchResult.Source.PROGRAM;
+            default:
+                throw new IllegalStateException("Unknown search source for docid " + docid);
+        }
+    }
+}
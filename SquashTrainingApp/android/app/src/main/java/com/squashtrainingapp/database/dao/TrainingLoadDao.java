@@ -0,0 +1,92 @@
+package com.squashtrainingapp.database.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.analytics.TrainingLoad;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.models.Record;
+
+public class TrainingLoadDao {
+    
+    private static final String[] LOAD_TABLES = { DatabaseContract.TABLE_TRAINING_LOAD };
+    // The table holds one row
+    private static final long ROW_ID = 1;
+    
+    private SQLiteDatabase database;
+    private QueryCache queryCache;
+    
+    public TrainingLoadDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public TrainingLoadDao(SQLiteDatabase database, QueryCache queryCache) {
+        this.database = database;
+        this.queryCache = queryCache;
+    }
+    
+    // Stored model, as of the day of its latest record; empty before the first record. Shared
+    // through the cache, so copy it (or use at()) before changing it.
+    public TrainingLoad get() {
+        return queryCache.get(LOAD_TABLES, "getTrainingLoad", null, this::load);
+    }
+    
+    // Add (sign = 1) or remove (sign = -1) one record's load. Callers run this in the same
+    // transaction as the records write.
+    public void applyRecord(Record record, int sign) {
+        TrainingLoad trainingLoad = get().copy();
+        trainingLoad.add(record, sign);
+        save(trainingLoad);
+    }
+    
+    public void save(TrainingLoad trainingLoad) {
+        if (trainingLoad.isEmpty()) {
+            database.delete(DatabaseContract.TABLE_TRAINING_LOAD, null, null);
+        } else {
+            StringBuilder week = new StringBuilder();
+            for (int load : trainingLoad.weekSlots()) {
+                if (week.length() > 0) week.append(',');
+                week.append(load);
+            }
+            
+            ContentValues values = new ContentValues();
+            values.put(DatabaseContract.COLUMN_ID, ROW_ID);
+            values.put(DatabaseContract.COLUMN_LOAD_FIRST_DAY, trainingLoad.getFirstDay());
+            values.put(DatabaseContract.COLUMN_LOAD_DAY, trainingLoad.getDay());
+            values.put(DatabaseContract.COLUMN_LOAD_ACUTE, trainingLoad.getAcuteState());
+            values.put(DatabaseContract.COLUMN_LOAD_CHRONIC, trainingLoad.getChronicState());
+            values.put(DatabaseContract.COLUMN_LOAD_WEEK, week.toString());
+            database.insertWithOnConflict(DatabaseContract.TABLE_TRAINING_LOAD, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        queryCache.invalidate(database, LOAD_TABLES);
+    }
+    
+    private TrainingLoad load() {
+        Cursor cursor = database.query(DatabaseContract.TABLE_TRAINING_LOAD,
+            new String[] {
+                DatabaseContract.COLUMN_LOAD_FIRST_DAY,
+                DatabaseContract.COLUMN_LOAD_DAY,
+                DatabaseContract.COLUMN_LOAD_ACUTE,
+                DatabaseContract.COLUMN_LOAD_CHRONIC,
+                DatabaseContract.COLUMN_LOAD_WEEK
+            },
+            DatabaseContract.COLUMN_ID + " = ?", new String[]{String.valueOf(ROW_ID)},
+            null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return new TrainingLoad();
+            }
+            String[] loads = cursor.getString(4).split(",");
+            int[] week = new int[loads.length];
+            for (int i = 0; i < loads.length; i++) {
+                week[i] = Integer.parseInt(loads[i]);
+            }
+            return new TrainingLoad(cursor.getInt(0), cursor.getInt(1),
+                cursor.getDouble(2), cursor.getDouble(3), week);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.squashtrainingapp.database.dao;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import com.squashtrainingapp.database.DatabaseContract;
 import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.database.mapping.RowMapper;
+import com.squashtrainingapp.database.mapping.TrainingProgramRowMapper;
 import com.squashtrainingapp.models.TrainingProgram;
 import java.util.ArrayList;
 import java.util.Date;
@@ -12,20 +16,37 @@ import java.util.List;
 
 public class TrainingProgramDao {
     
+    private static final String[] PROGRAM_TABLES = { DatabaseContract.TABLE_TRAINING_PROGRAMS };
+    
     private DatabaseHelper dbHelper;
     private SQLiteDatabase database;
+    private QueryCache queryCache;
     
     public TrainingProgramDao(DatabaseHelper dbHelper) {
         this.dbHelper = dbHelper;
+        this.queryCache = dbHelper.getQueryCache();
     }
     
     public TrainingProgramDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public TrainingProgramDao(SQLiteDatabase database, QueryCache queryCache) {
         this.database = database;
+        this.queryCache = queryCache;
+    }
+    
+    // The helper owns the shared connection; DAOs never close it
+    private SQLiteDatabase getDb() {
+        if (database != null) {
+            return database;
+        }
+        return dbHelper.getDatabase();
     }
     
     // Insert a new training program
     public long insert(TrainingProgram program) {
-        SQLiteDatabase db = database != null ? database : dbHelper.getWritableDatabase();
+        SQLiteDatabase db = getDb();
         
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_PROGRAM_NAME, program.getName());
@@ -35,23 +56,73 @@ public class TrainingProgramDao {
         values.put(DatabaseContract.COLUMN_PROGRAM_TYPE, program.getType());
         values.put(DatabaseContract.COLUMN_PROGRAM_IMAGE_URL, program.getImageUrl());
         
-        long id = db.insert(DatabaseContract.TABLE_TRAINING_PROGRAMS, null, values);
-        
-        if (database == null) {
-            db.close();
+        db.beginTransaction();
+        long id;
+        try {
+            id = db.insert(DatabaseContract.TABLE_TRAINING_PROGRAMS, null, values);
+            if (id != -1) {
+                SearchDao.addGrams(db, id, DatabaseContract.SEARCH_SOURCE_PROGRAM,
+                    program.getName(), program.getDescription(), program.getType());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
+        queryCache.invalidate(db, PROGRAM_TABLES);
         
         return id;
     }
     
+    // Insert many programs in one transaction through a single compiled statement
+    public int insertAll(List<TrainingProgram> programs) {
+        SQLiteDatabase db = getDb();
+        String sql = "INSERT INTO " + DatabaseContract.TABLE_TRAINING_PROGRAMS + " (" +
+                DatabaseContract.COLUMN_PROGRAM_NAME + ", " +
+                DatabaseContract.COLUMN_PROGRAM_DESCRIPTION + ", " +
+                DatabaseContract.COLUMN_PROGRAM_DURATION_WEEKS + ", " +
+                DatabaseContract.COLUMN_PROGRAM_DIFFICULTY + ", " +
+                DatabaseContract.COLUMN_PROGRAM_TYPE + ", " +
+                DatabaseContract.COLUMN_PROGRAM_IMAGE_URL +
+                ") VALUES (?, ?, ?, ?, ?, ?)";
+        
+        db.beginTransaction();
+        SQLiteStatement statement = db.compileStatement(sql);
+        SearchDao.GramWriter grams = new SearchDao.GramWriter(db);
+        try {
+            for (TrainingProgram program : programs) {
+                statement.clearBindings();
+                DaoUtils.bindString(statement, 1, program.getName());
+                DaoUtils.bindString(statement, 2, program.getDescription());
+                statement.bindLong(3, program.getDurationWeeks());
+                DaoUtils.bindString(statement, 4, program.getDifficulty());
+                DaoUtils.bindString(statement, 5, program.getType());
+                DaoUtils.bindString(statement, 6, program.getImageUrl());
+                program.setId(statement.executeInsert());
+                grams.add(program.getId(), DatabaseContract.SEARCH_SOURCE_PROGRAM,
+                    program.getName(), program.getDescription(), program.getType());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            statement.close();
+            grams.close();
+            db.endTransaction();
+            queryCache.invalidate(db, PROGRAM_TABLES);
+        }
+        
+        return programs.size();
+    }
+    
     // Get all training programs
     public List<TrainingProgram> getAllPrograms() {
-        List<TrainingProgram> programs = new ArrayList<>();
-        SQLiteDatabase db = database != null ? database : dbHelper.getReadableDatabase();
+        return queryCache.get(PROGRAM_TABLES, "getAllPrograms", null, this::loadAllPrograms);
+    }
+    
+    private List<TrainingProgram> loadAllPrograms() {
+        SQLiteDatabase db = getDb();
         
         Cursor cursor = db.query(
             DatabaseContract.TABLE_TRAINING_PROGRAMS,
-            null,
+            TrainingProgramRowMapper.FULL_PROJECTION,
             null,
             null,
             null,
@@ -59,27 +130,21 @@ public class TrainingProgramDao {
             DatabaseContract.COLUMN_PROGRAM_NAME + " ASC"
         );
         
-        while (cursor.moveToNext()) {
-            TrainingProgram program = cursorToProgram(cursor);
-            programs.add(program);
-        }
-        
-        cursor.close();
-        if (database == null) {
-            db.close();
-        }
-        
-        return programs;
+        return RowMapper.mapAll(cursor, new TrainingProgramRowMapper(cursor));
     }
     
     // Get programs by type
     public List<TrainingProgram> getProgramsByType(String type) {
-        List<TrainingProgram> programs = new ArrayList<>();
-        SQLiteDatabase db = database != null ? database : dbHelper.getReadableDatabase();
+        return queryCache.get(PROGRAM_TABLES, "getProgramsByType", new Object[] { type },
+            () -> loadProgramsByType(type));
+    }
+    
+    private List<TrainingProgram> loadProgramsByType(String type) {
+        SQLiteDatabase db = getDb();
         
         Cursor cursor = db.query(
             DatabaseContract.TABLE_TRAINING_PROGRAMS,
-            null,
+            TrainingProgramRowMapper.FULL_PROJECTION,
             DatabaseContract.COLUMN_PROGRAM_TYPE + " = ?",
             new String[]{type},
             null,
@@ -87,27 +152,21 @@ public class TrainingProgramDao {
             DatabaseContract.COLUMN_PROGRAM_NAME + " ASC"
         );
         
-        while (cursor.moveToNext()) {
-            TrainingProgram program = cursorToProgram(cursor);
-            programs.add(program);
-        }
-        
-        cursor.close();
-        if (database == null) {
-            db.close();
-        }
-        
-        return programs;
+        return RowMapper.mapAll(cursor, new TrainingProgramRowMapper(cursor));
     }
     
     // Get programs by difficulty
     public List<TrainingProgram> getProgramsByDifficulty(String difficulty) {
-        List<TrainingProgram> programs = new ArrayList<>();
-        SQLiteDatabase db = database != null ? database : dbHelper.getReadableDatabase();
+        return queryCache.get(PROGRAM_TABLES, "getProgramsByDifficulty", new Object[] { difficulty },
+            () -> loadProgramsByDifficulty(difficulty));
+    }
+    
+    private List<TrainingProgram> loadProgramsByDifficulty(String difficulty) {
+        SQLiteDatabase db = getDb();
         
         Cursor cursor = db.query(
             DatabaseContract.TABLE_TRAINING_PROGRAMS,
-            null,
+            TrainingProgramRowMapper.FULL_PROJECTION,
             DatabaseContract.COLUMN_PROGRAM_DIFFICULTY + " = ?",
             new String[]{difficulty},
             null,
@@ -115,26 +174,21 @@ public class TrainingProgramDao {
             DatabaseContract.COLUMN_PROGRAM_NAME + " ASC"
         );
         
-        while (cursor.moveToNext()) {
-            TrainingProgram program = cursorToProgram(cursor);
-            programs.add(program);
-        }
-        
-        cursor.close();
-        if (database == null) {
-            db.close();
-        }
-        
-        return programs;
+        return RowMapper.mapAll(cursor, new TrainingProgramRowMapper(cursor));
     }
     
     // Get program by ID
     public TrainingProgram getProgramById(long id) {
-        SQLiteDatabase db = database != null ? database : dbHelper.getReadableDatabase();
+        return queryCache.get(PROGRAM_TABLES, "getProgramById", new Object[] { id },
+            () -> loadProgramById(id));
+    }
+    
+    private TrainingProgram loadProgramById(long id) {
+        SQLiteDatabase db = getDb();
         
         Cursor cursor = db.query(
             DatabaseContract.TABLE_TRAINING_PROGRAMS,
-            null,
+            TrainingProgramRowMapper.FULL_PROJECTION,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[]{String.valueOf(id)},
             null,
@@ -144,20 +198,16 @@ public class TrainingProgramDao {
         
         TrainingProgram program = null;
         if (cursor.moveToFirst()) {
-            program = cursorToProgram(cursor);
+            program = new TrainingProgramRowMapper(cursor).mapRow(cursor);
         }
         
         cursor.close();
-        if (database == null) {
-            db.close();
-        }
-        
         return program;
     }
     
     // Update program
     public int update(TrainingProgram program) {
-        SQLiteDatabase db = database != null ? database : dbHelper.getWritableDatabase();
+        SQLiteDatabase db = getDb();
         
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_PROGRAM_NAME, program.getName());
@@ -168,58 +218,50 @@ public class TrainingProgramDao {
         values.put(DatabaseContract.COLUMN_PROGRAM_IMAGE_URL, program.getImageUrl());
         values.put(DatabaseContract.COLUMN_PROGRAM_UPDATED_AT, new Date().getTime());
         
-        int rowsAffected = db.update(
-            DatabaseContract.TABLE_TRAINING_PROGRAMS,
-            values,
-            DatabaseContract.COLUMN_ID + " = ?",
-            new String[]{String.valueOf(program.getId())}
-        );
-        
-        if (database == null) {
-            db.close();
+        int rowsAffected;
+        db.beginTransaction();
+        SearchDao.GramWriter grams = new SearchDao.GramWriter(db);
+        try {
+            rowsAffected = db.update(
+                DatabaseContract.TABLE_TRAINING_PROGRAMS,
+                values,
+                DatabaseContract.COLUMN_ID + " = ?",
+                new String[]{String.valueOf(program.getId())}
+            );
+            if (rowsAffected > 0) {
+                grams.replace(program.getId(), DatabaseContract.SEARCH_SOURCE_PROGRAM,
+                    program.getName(), program.getDescription(), program.getType());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            grams.close();
+            db.endTransaction();
         }
+        queryCache.invalidate(db, PROGRAM_TABLES);
         
         return rowsAffected;
     }
     
     // Delete program
     public int delete(long id) {
-        SQLiteDatabase db = database != null ? database : dbHelper.getWritableDatabase();
+        SQLiteDatabase db = getDb();
         
         int rowsDeleted = db.delete(
             DatabaseContract.TABLE_TRAINING_PROGRAMS,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[]{String.valueOf(id)}
         );
-        
-        if (database == null) {
-            db.close();
-        }
+        queryCache.invalidate(db, PROGRAM_TABLES);
         
         return rowsDeleted;
     }
     
-    // Convert cursor to TrainingProgram object
-    private TrainingProgram cursorToProgram(Cursor cursor) {
-        TrainingProgram program = new TrainingProgram();
-        
-        program.setId(cursor.getLong(cursor.getColumnIndex(DatabaseContract.COLUMN_ID)));
-        program.setName(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_NAME)));
-        program.setDescription(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DESCRIPTION)));
-        program.setDurationWeeks(cursor.getInt(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DURATION_WEEKS)));
-        program.setDifficulty(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DIFFICULTY)));
-        program.setType(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_TYPE)));
-        program.setImageUrl(cursor.getString(cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_IMAGE_URL)));
-        
-        return program;
-    }
-    
     // Insert default training programs
     public void insertDefaultPrograms() {
-        SQLiteDatabase db = database != null ? database : dbHelper.getWritableDatabase();
+        List<TrainingProgram> programs = new ArrayList<>();
         
         // 4-Week Focus Programs
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Power Development",
             "Intensive 4-week program to build explosive power for your shots",
             4,
@@ -227,7 +269,7 @@ public class TrainingProgramDao {
             "Focus"
         ));
         
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Speed & Agility",
             "Improve your court movement and reaction time in 4 weeks",
             4,
@@ -235,7 +277,7 @@ public class TrainingProgramDao {
             "Focus"
         ));
         
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Endurance Builder",
             "Build stamina to outlast your opponents in long matches",
             4,
@@ -244,7 +286,7 @@ public class TrainingProgramDao {
         ));
         
         // 12-Week Master Programs
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Complete Player",
             "Comprehensive 12-week program covering all aspects of squash",
             12,
@@ -252,7 +294,7 @@ public class TrainingProgramDao {
             "Master"
         ));
         
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Competition Prep",
             "Get tournament-ready with this intensive 12-week program",
             12,
@@ -261,7 +303,7 @@ public class TrainingProgramDao {
         ));
         
         // Season Programs
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Pre-Season Conditioning",
             "Get in shape before the competitive season starts",
             8,
@@ -269,7 +311,7 @@ public class TrainingProgramDao {
             "Season"
         ));
         
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "In-Season Maintenance",
             "Maintain peak performance throughout the season",
             16,
@@ -277,12 +319,14 @@ public class TrainingProgramDao {
             "Season"
         ));
         
-        insert(new TrainingProgram(
+        programs.add(new TrainingProgram(
             "Off-Season Recovery",
             "Active recovery and skill development in the off-season",
             6,
             "Beginner",
             "Season"
         ));
+        
+        insertAll(programs);
     }
 }
\ No newline at end of file
@@ -3,15 +3,84 @@ package com.squashtrainingapp.database.dao;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.models.Record;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.QueryCache;
+import com.squashtrainingapp.utils.EpochDay;
+import java.util.List;
 
 public class UserDao {
     
+    // Told about the stored user after every stats change, once the change has committed
+    public interface OnUserChangedListener {
+        void onUserChanged(User user);
+    }
+    
+    // Increments for the user's running totals, applied in one UPDATE by applyStatsDelta. The
+    // streak is not a total: it is read from the activity bitmap the rollup maintains.
+    public static class StatsDelta {
+        private final int sessions;
+        private final float hours;
+        private final int calories;
+        private final int experience;
+        
+        public StatsDelta(int sessions, float hours, int calories, int experience) {
+            this.sessions = sessions;
+            this.hours = hours;
+            this.calories = calories;
+            this.experience = experience;
+        }
+        
+        // Same credit as User.addSession
+        public static StatsDelta forWorkout(int duration) {
+            return new StatsDelta(1, duration / 60.0f, duration * User.CALORIES_PER_MINUTE, User.XP_PER_SESSION);
+        }
+        
+        public static StatsDelta forRecord(Record record) {
+            return forWorkout(record.getDuration());
+        }
+        
+        // Combined credit for a batch of workouts
+        public static StatsDelta forRecords(List<Record> records) {
+            long minutes = 0;
+            for (Record record : records) {
+                minutes += record.getDuration();
+            }
+            return new StatsDelta(records.size(), minutes / 60.0f, (int) (minutes * User.CALORIES_PER_MINUTE),
+                records.size() * User.XP_PER_SESSION);
+        }
+    }
+    
+    private static final String SQL_APPLY_STATS_DELTA = "UPDATE " + DatabaseContract.TABLE_USER + " SET " +
+        DatabaseContract.COLUMN_USER_SESSIONS + " = " + DatabaseContract.COLUMN_USER_SESSIONS + " + ?, " +
+        DatabaseContract.COLUMN_USER_HOURS + " = " + DatabaseContract.COLUMN_USER_HOURS + " + ?, " +
+        DatabaseContract.COLUMN_USER_CALORIES + " = " + DatabaseContract.COLUMN_USER_CALORIES + " + ?, " +
+        // SET expressions all read the old row, so level and experience see the same value
+        DatabaseContract.COLUMN_USER_LEVEL + " = " + DatabaseContract.COLUMN_USER_LEVEL +
+            " + (" + DatabaseContract.COLUMN_USER_EXP + " + ?) / " + User.XP_PER_LEVEL + ", " +
+        DatabaseContract.COLUMN_USER_EXP + " = (" + DatabaseContract.COLUMN_USER_EXP + " + ?) % " + User.XP_PER_LEVEL + " " +
+        "WHERE " + DatabaseContract.COLUMN_ID + " = 1";
+    
+    private static final String[] USER_TABLES = { DatabaseContract.TABLE_USER };
+    // The loaded user carries the streak from the activity bitmap
+    private static final String[] USER_READ_TABLES = {
+        DatabaseContract.TABLE_USER, DatabaseContract.TABLE_DAILY_STATS, DatabaseContract.TABLE_ACTIVITY_DAYS
+    };
+    
     private SQLiteDatabase database;
+    private QueryCache queryCache;
+    private DailyStatsDao dailyStatsDao;
     
     public UserDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public UserDao(SQLiteDatabase database, QueryCache queryCache) {
         this.database = database;
+        this.queryCache = queryCache;
+        this.dailyStatsDao = new DailyStatsDao(database, queryCache);
     }
     
     // Insert user
@@ -26,11 +95,17 @@ public class UserDao {
         values.put(DatabaseContract.COLUMN_USER_HOURS, user.getTotalHours());
         values.put(DatabaseContract.COLUMN_USER_STREAK, user.getCurrentStreak());
         
-        return database.insert(DatabaseContract.TABLE_USER, null, values);
+        long id = database.insert(DatabaseContract.TABLE_USER, null, values);
+        queryCache.invalidate(database, USER_TABLES);
+        return id;
     }
     
-    // Get user (always returns user with id = 1)
+    // Get user (always returns user with id = 1). Keyed by day so the streak ages at midnight.
     public User getUser() {
+        return queryCache.get(USER_READ_TABLES, "getUser", new Object[] { EpochDay.today() }, this::loadUser);
+    }
+    
+    private User loadUser() {
         User user = null;
         Cursor cursor = database.query(
             DatabaseContract.TABLE_USER,
@@ -52,6 +127,8 @@ public class UserDao {
             user = createDefaultUser();
         }
         
+        // The stored column only mirrors the last value written; the bitmap is the source
+        user.setCurrentStreak(dailyStatsDao.getStreakIndex().currentStreak(EpochDay.today()));
         return user;
     }
     
@@ -66,19 +143,42 @@ public class UserDao {
         values.put(DatabaseContract.COLUMN_USER_HOURS, user.getTotalHours());
         values.put(DatabaseContract.COLUMN_USER_STREAK, user.getCurrentStreak());
         
-        return database.update(
+        int rowsAffected = database.update(
             DatabaseContract.TABLE_USER,
             values,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[] { "1" }
         );
+        queryCache.invalidate(database, USER_TABLES);
+        return rowsAffected;
     }
     
     // Update user stats after workout
-    public void updateAfterWorkout(int duration) {
-        User user = getUser();
-        user.addSession(duration);
-        update(user);
+    public User updateAfterWorkout(int duration) {
+        return applyStatsDelta(StatsDelta.forWorkout(duration));
+    }
+    
+    // Add the delta to the stored totals in a single UPDATE, so concurrent saves cannot lose
+    // each other's increments. Returns the updated user.
+    public User applyStatsDelta(StatsDelta delta) {
+        SQLiteStatement statement = database.compileStatement(SQL_APPLY_STATS_DELTA);
+        try {
+            statement.bindLong(1, delta.sessions);
+            statement.bindDouble(2, delta.hours);
+            statement.bindLong(3, delta.calories);
+            statement.bindLong(4, delta.experience);
+            statement.bindLong(5, delta.experience);
+            
+            // The user row is missing after clearAllData; seed the default one and credit that
+            if (statement.executeUpdateDelete() == 0) {
+                insert(createDefaultUser());
+                statement.executeUpdateDelete();
+            }
+        } finally {
+            statement.close();
+        }
+        queryCache.invalidate(database, USER_TABLES);
+        return loadUser();
     }
     
     // Insert default user
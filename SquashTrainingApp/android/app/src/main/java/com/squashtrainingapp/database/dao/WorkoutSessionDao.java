@@ -5,31 +5,45 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import com.squashtrainingapp.database.DatabaseContract;
 import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.QueryCache;
 import com.squashtrainingapp.models.WorkoutSession;
-import java.text.SimpleDateFormat;
+import com.squashtrainingapp.utils.Timestamps;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 public class WorkoutSessionDao {
+    // updated_at keeps the UTC text of its CURRENT_TIMESTAMP default; scheduled_date is epoch millis
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    
+    // Session reads are not cached themselves, but local analytics derived from them are
+    private static final String[] SESSION_TABLES = { DatabaseContract.TABLE_WORKOUT_SESSIONS };
+    
     private SQLiteDatabase database;
     private DatabaseHelper dbHelper;
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+    private QueryCache queryCache;
     
     public WorkoutSessionDao(DatabaseHelper dbHelper) {
         this.dbHelper = dbHelper;
+        this.queryCache = dbHelper.getQueryCache();
     }
     
     public WorkoutSessionDao(SQLiteDatabase database) {
+        this(database, QueryCache.disabled());
+    }
+    
+    public WorkoutSessionDao(SQLiteDatabase database, QueryCache queryCache) {
         this.database = database;
+        this.queryCache = queryCache;
     }
     
     private SQLiteDatabase getDb() {
         if (database != null) {
             return database;
         }
-        return dbHelper.getWritableDatabase();
+        return dbHelper.getDatabase();
     }
     
     // Insert new workout session
@@ -37,12 +51,13 @@ public class WorkoutSessionDao {
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_SESSION_PROGRAM_ID, session.getProgramId());
         values.put(DatabaseContract.COLUMN_SESSION_NAME, session.getSessionName());
-        values.put(DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE, dateFormat.format(session.getScheduledDate()));
+        values.put(DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE, session.getScheduledDate());
         values.put(DatabaseContract.COLUMN_SESSION_DURATION_MINUTES, session.getDurationMinutes());
         values.put(DatabaseContract.COLUMN_SESSION_STATUS, session.getStatus());
         values.put(DatabaseContract.COLUMN_SESSION_NOTES, session.getNotes());
         
         long id = getDb().insert(DatabaseContract.TABLE_WORKOUT_SESSIONS, null, values);
+        queryCache.invalidate(getDb(), SESSION_TABLES);
         session.setId(id);
         return id;
     }
@@ -70,14 +85,14 @@ public class WorkoutSessionDao {
     // Get upcoming sessions
     public List<WorkoutSession> getUpcomingSessions() {
         List<WorkoutSession> sessions = new ArrayList<>();
-        String currentDate = dateFormat.format(new Date());
+        String now = String.valueOf(System.currentTimeMillis());
         
         Cursor cursor = getDb().query(
             DatabaseContract.TABLE_WORKOUT_SESSIONS,
             null,
             DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE + " >= ? AND " + 
             DatabaseContract.COLUMN_SESSION_STATUS + " = ?",
-            new String[]{currentDate, "scheduled"},
+            new String[]{now, "scheduled"},
             null,
             null,
             DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE + " ASC"
@@ -111,27 +126,49 @@ public class WorkoutSessionDao {
         return sessions;
     }
     
+    // Sessions per status among those scheduled in [startMillis, endMillis)
+    public Map<String, Integer> getStatusCounts(long startMillis, long endMillis) {
+        Cursor cursor = getDb().rawQuery(
+            "SELECT " + DatabaseContract.COLUMN_SESSION_STATUS + ", COUNT(*) FROM " +
+            DatabaseContract.TABLE_WORKOUT_SESSIONS +
+            " WHERE " + DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE + " >= ? AND " +
+            DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE + " < ?" +
+            " GROUP BY " + DatabaseContract.COLUMN_SESSION_STATUS,
+            new String[]{String.valueOf(startMillis), String.valueOf(endMillis)});
+        
+        Map<String, Integer> counts = new HashMap<>();
+        while (cursor.moveToNext()) {
+            counts.put(cursor.getString(0), cursor.getInt(1));
+        }
+        cursor.close();
+        return counts;
+    }
+    
     // Update session status
     public int updateSessionStatus(long sessionId, String status) {
         ContentValues values = new ContentValues();
         values.put(DatabaseContract.COLUMN_SESSION_STATUS, status);
-        values.put(DatabaseContract.COLUMN_SESSION_UPDATED_AT, dateFormat.format(new Date()));
+        values.put(DatabaseContract.COLUMN_SESSION_UPDATED_AT, Timestamps.format(System.currentTimeMillis(), UTC));
         
-        return getDb().update(
+        int updated = getDb().update(
             DatabaseContract.TABLE_WORKOUT_SESSIONS,
             values,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[]{String.valueOf(sessionId)}
         );
+        queryCache.invalidate(getDb(), SESSION_TABLES);
+        return updated;
     }
     
     // Delete session
     public int deleteSession(long sessionId) {
-        return getDb().delete(
+        int deleted = getDb().delete(
             DatabaseContract.TABLE_WORKOUT_SESSIONS,
             DatabaseContract.COLUMN_ID + " = ?",
             new String[]{String.valueOf(sessionId)}
         );
+        queryCache.invalidate(getDb(), SESSION_TABLES);
+        return deleted;
     }
     
     // Convert cursor to WorkoutSession
@@ -152,14 +189,7 @@ public class WorkoutSessionDao {
         if (durationIndex != -1) session.setDurationMinutes(cursor.getInt(durationIndex));
         if (statusIndex != -1) session.setStatus(cursor.getString(statusIndex));
         if (notesIndex != -1) session.setNotes(cursor.getString(notesIndex));
-        
-        if (dateIndex != -1) {
-            try {
-                session.setScheduledDate(dateFormat.parse(cursor.getString(dateIndex)));
-            } catch (Exception e) {
-                session.setScheduledDate(new Date());
-            }
-        }
+        if (dateIndex != -1) session.setScheduledDate(cursor.getLong(dateIndex));
         
         return session;
     }
@@ -0,0 +1,249 @@
+package com.squashtrainingapp.database.export;
+
+import android.database.Cursor;
+
+import com.squashtrainingapp.database.DatabaseJob;
+import com.squashtrainingapp.database.dao.RecordDao;
+import com.squashtrainingapp.database.mapping.RecordRowMapper;
+import com.squashtrainingapp.models.Record;
+
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams records from a cursor to a file as CSV or newline-delimited JSON, optionally
+ * gzipped. Rows are written as they are read, so memory use stays flat however many records
+ * are exported.
+ */
+public class RecordExporter {
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Rows between progress reports and cancellation checks
+    private static final int PROGRESS_STEP = 500;
+
+    private static final String CSV_HEADER =
+        "Date,Exercise,Duration (min),Sets,Reps,Intensity,Condition,Fatigue,Category,Calories,Memo\n";
+
+    private final Format format;
+    private final boolean gzip;
+
+    // Reused for every row instead of a Date and a formatter call per row
+    private final Calendar calendar = Calendar.getInstance();
+
+    public RecordExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    // File name for this format, e.g. "workout_data_20240101.csv.gz"
+    public String fileName(String baseName) {
+        return baseName + "." + format.extension + (gzip ? ".gz" : "");
+    }
+
+    // Write every record between the two times to the file and return how many were written.
+    // A cancelled job leaves no partial file behind.
+    public int export(RecordDao recordDao, File file, long startTime, long endTime,
+                      DatabaseJob<?> job) throws IOException {
+        int total = recordDao.getRecordsCountBetweenDates(startTime, endTime);
+        job.reportProgress(0, total);
+
+        boolean complete = false;
+        Cursor cursor = recordDao.openRecordsBetweenDates(startTime, endTime);
+        try (Writer writer = openWriter(file)) {
+            RecordRowMapper mapper = new RecordRowMapper(cursor);
+            Summary summary = new Summary();
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+            }
+
+            while (cursor.moveToNext()) {
+                Record record = mapper.mapRow(cursor);
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, record);
+                } else {
+                    writeJsonRow(writer, record);
+                }
+                summary.add(record);
+
+                if (summary.count % PROGRESS_STEP == 0) {
+                    job.throwIfCancelled();
+                    job.reportProgress(summary.count, total);
+                }
+            }
+
+            if (format == Format.CSV) {
+                writeCsvSummary(writer, summary);
+            }
+            job.throwIfCancelled();
+            job.reportProgress(summary.count, total);
+            complete = true;
+            return summary.count;
+        } finally {
+            cursor.close();
+            if (!complete) {
+                file.delete();
+            }
+        }
+    }
+
+    private Writer openWriter(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private void writeCsvRow(Writer writer, Record record) throws IOException {
+        writeDate(writer, record.getDateMillis(), ' ');
+        writer.write(',');
+        writeCsvField(writer, record.getExerciseName());
+        writer.write(',');
+        writer.write(Integer.toString(record.getDuration()));
+        writer.write(',');
+        writer.write(Integer.toString(record.getSets()));
+        writer.write(',');
+        writer.write(Integer.toString(record.getReps()));
+        writer.write(',');
+        writer.write(Integer.toString(record.getIntensity()));
+        writer.write(',');
+        writer.write(Integer.toString(record.getCondition()));
+        writer.write(',');
+        writer.write(Integer.toString(record.getFatigue()));
+        writer.write(',');
+        writeCsvField(writer, record.getExerciseType());
+        writer.write(',');
+        writer.write(Integer.toString(record.getEstimatedCalories()));
+        writer.write(',');
+        writeQuotedField(writer, record.getMemo());
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // Free text is always quoted so carriage returns and leading quotes survive the round trip;
+    // a missing value stays an empty field
+    private static void writeQuotedField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeCsvSummary(Writer writer, Summary summary) throws IOException {
+        writer.write("\n\nSummary\n");
+        writer.write("Total Workouts," + summary.count + "\n");
+        writer.write("Total Duration," + summary.totalDuration + " min\n");
+        writer.write("Average Duration," + summary.averageDuration() + " min\n");
+        writer.write("Date Range," + summary.dateRange() + "\n");
+    }
+
+    private void writeJsonRow(Writer writer, Record record) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(Integer.toString(record.getId()));
+        writer.write(",\"date\":\"");
+        writeDate(writer, record.getDateMillis(), 'T');
+        writer.write("\",\"dateMillis\":");
+        writer.write(Long.toString(record.getDateMillis()));
+        writer.write(",\"exercise\":");
+        writer.write(JSONObject.quote(record.getExerciseName()));
+        writer.write(",\"category\":");
+        writer.write(JSONObject.quote(record.getExerciseType()));
+        writer.write(",\"durationMin\":");
+        writer.write(Integer.toString(record.getDuration()));
+        writer.write(",\"sets\":");
+        writer.write(Integer.toString(record.getSets()));
+        writer.write(",\"reps\":");
+        writer.write(Integer.toString(record.getReps()));
+        writer.write(",\"intensity\":");
+        writer.write(Integer.toString(record.getIntensity()));
+        writer.write(",\"condition\":");
+        writer.write(Integer.toString(record.getCondition()));
+        writer.write(",\"fatigue\":");
+        writer.write(Integer.toString(record.getFatigue()));
+        writer.write(",\"calories\":");
+        writer.write(Integer.toString(record.getEstimatedCalories()));
+        writer.write(",\"memo\":");
+        writer.write(record.getMemo() != null ? JSONObject.quote(record.getMemo()) : "null");
+        writer.write("}\n");
+    }
+
+    // Local time as yyyy-MM-dd HH:mm, with the given separator between date and time
+    private void writeDate(Writer writer, long millis, char separator) throws IOException {
+        calendar.setTimeInMillis(millis);
+        writer.write(Integer.toString(calendar.get(Calendar.YEAR)));
+        writer.write('-');
+        writeTwoDigits(writer, calendar.get(Calendar.MONTH) + 1);
+        writer.write('-');
+        writeTwoDigits(writer, calendar.get(Calendar.DAY_OF_MONTH));
+        writer.write(separator);
+        writeTwoDigits(writer, calendar.get(Calendar.HOUR_OF_DAY));
+        writer.write(':');
+        writeTwoDigits(writer, calendar.get(Calendar.MINUTE));
+    }
+
+    private static void writeTwoDigits(Writer writer, int value) throws IOException {
+        writer.write('0' + value / 10);
+        writer.write('0' + value % 10);
+    }
+
+    // Running totals for the CSV footer
+    private static class Summary {
+        int count;
+        long totalDuration;
+        long minDate = Long.MAX_VALUE;
+        long maxDate = Long.MIN_VALUE;
+
+        void add(Record record) {
+            count++;
+            totalDuration += record.getDuration();
+            long timestamp = record.getDateMillis();
+            if (timestamp < minDate) minDate = timestamp;
+            if (timestamp > maxDate) maxDate = timestamp;
+        }
+
+        long averageDuration() {
+            return count == 0 ? 0 : totalDuration / count;
+        }
+
+        String dateRange() {
+            if (count == 0) return "No data";
+            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+            return sdf.format(new Date(minDate)) + " - " + sdf.format(new Date(maxDate));
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.squashtrainingapp.database.export;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.DatabaseJob;
+import com.squashtrainingapp.models.Record;
+import com.squashtrainingapp.utils.Timestamps;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams workout history into the records table from CSV (the layout {@link RecordExporter}
+ * writes) or newline-delimited JSON, plain or gzipped. Rows are validated and handed to a
+ * {@link BatchWriter}, normally {@link DatabaseHelper#saveWorkouts} on the repository's writer,
+ * in batches, so memory is bounded by the batch size rather than the file
+ * size. Rows already saved are counted as duplicates, so importing the same file twice adds
+ * nothing. Cancelling keeps the batches already saved.
+ */
+public class RecordImporter {
+    private static final String TAG = "RecordImporter";
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longer rows are skipped as malformed rather than buffered
+    private static final int MAX_ROW_CHARS = 16 * 1024;
+    // Row errors kept for the result; later ones are only counted
+    private static final int MAX_ERRORS = 20;
+    private static final int MAX_DURATION_MINUTES = 24 * 60;
+    private static final int MAX_RATING = 10;
+
+    // CSV columns, matched against the header by name
+    private static final String[] CSV_COLUMNS = {
+        "Date", "Exercise", "Duration (min)", "Sets", "Reps", "Intensity", "Condition", "Fatigue", "Memo"
+    };
+    private static final int COL_DATE = 0;
+    private static final int COL_EXERCISE = 1;
+    private static final int COL_DURATION = 2;
+    private static final int COL_SETS = 3;
+    private static final int COL_REPS = 4;
+    private static final int COL_INTENSITY = 5;
+    private static final int COL_CONDITION = 6;
+    private static final int COL_FATIGUE = 7;
+    private static final int COL_MEMO = 8;
+
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    // Saves one batch and returns how many of its rows were new
+    public interface BatchWriter {
+        int save(List<Record> batch);
+    }
+
+    public static class Result {
+        private final int imported;
+        private final int skipped;
+        private final int duplicates;
+        private final List<String> errors;
+        private final long elapsedMillis;
+
+        Result(int imported, int skipped, int duplicates, List<String> errors, long elapsedMillis) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.duplicates = duplicates;
+            this.errors = Collections.unmodifiableList(errors);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getImported() { return imported; }
+        public int getSkipped() { return skipped; }
+
+        // Valid rows left out because the same workout was already saved
+        public int getDuplicates() { return duplicates; }
+
+        // The first few rejected rows, as "row N: reason"
+        public List<String> getErrors() { return errors; }
+
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public int getRowsPerSecond() {
+            return elapsedMillis == 0 ? imported : (int) (imported * 1000L / elapsedMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "Imported " + imported + " rows (" + skipped + " skipped, " + duplicates +
+                " duplicates) in " + elapsedMillis +
+                " ms, " + getRowsPerSecond() + " rows/s";
+        }
+    }
+
+    private final int batchSize;
+
+    // Per-import state; an importer runs one import at a time
+    private final TimeZone timeZone = TimeZone.getDefault();
+    private final StringBuilder field = new StringBuilder();
+    private List<Record> batch;
+    private List<String> errors;
+    private int imported;
+    private int skipped;
+    private int duplicates;
+    private int row;
+    private boolean rowTooLong;
+
+    public RecordImporter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public RecordImporter(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Result importFrom(BatchWriter writer, Source source, DatabaseJob<?> job) throws IOException {
+        long started = SystemClock.elapsedRealtime();
+        batch = new ArrayList<>(batchSize);
+        errors = new ArrayList<>();
+        imported = 0;
+        skipped = 0;
+        duplicates = 0;
+        row = 0;
+
+        try (BufferedReader reader = openReader(source.open())) {
+            // Newline-delimited JSON starts with an object; anything else is read as CSV
+            reader.mark(1);
+            int first = reader.read();
+            reader.reset();
+            if (first == '{') {
+                readJson(writer, reader, job);
+            } else {
+                readCsv(writer, reader, job);
+            }
+            flush(writer, job);
+        }
+
+        Result result = new Result(imported, skipped, duplicates, errors, SystemClock.elapsedRealtime() - started);
+        Log.i(TAG, result.toString());
+        return result;
+    }
+
+    private static BufferedReader openReader(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, BUFFER_SIZE);
+        in.mark(2);
+        boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+
+        InputStream data = gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(data, StandardCharsets.UTF_8), BUFFER_SIZE);
+        reader.mark(1);
+        // Skip a byte order mark
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return reader;
+    }
+
+    // CSV
+
+    private void readCsv(BatchWriter writer, BufferedReader reader, DatabaseJob<?> job) throws IOException {
+        List<String> fields = new ArrayList<>();
+        // Without a header the exporter's column order is assumed
+        int[] columns = { 0, 1, 2, 3, 4, 5, 6, 7, 10 };
+        boolean first = true;
+
+        while (readCsvRow(reader, fields)) {
+            row++;
+            // RecordExporter writes its summary after a blank line
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) break;
+
+            if (first) {
+                first = false;
+                if ("Date".equalsIgnoreCase(fields.get(0).trim())) {
+                    columns = mapHeader(fields);
+                    if (columns == null) {
+                        throw new IOException("CSV header needs Date, Exercise and Duration (min) columns");
+                    }
+                    continue;
+                }
+            }
+
+            if (rowTooLong) {
+                reject("row is longer than " + MAX_ROW_CHARS + " characters");
+                continue;
+            }
+            try {
+                Record record = new Record();
+                long dateMillis = parseDate(column(fields, columns[COL_DATE]));
+                if (dateMillis < 0) {
+                    reject("unreadable date");
+                    continue;
+                }
+                record.setDateMillis(dateMillis);
+                record.setExerciseName(column(fields, columns[COL_EXERCISE]).trim());
+                record.setDuration(parseInt(column(fields, columns[COL_DURATION])));
+                record.setSets(parseInt(column(fields, columns[COL_SETS])));
+                record.setReps(parseInt(column(fields, columns[COL_REPS])));
+                record.setIntensity(parseInt(column(fields, columns[COL_INTENSITY])));
+                record.setCondition(parseInt(column(fields, columns[COL_CONDITION])));
+                record.setFatigue(parseInt(column(fields, columns[COL_FATIGUE])));
+                String memo = column(fields, columns[COL_MEMO]);
+                record.setMemo(memo.isEmpty() ? null : memo);
+                accept(writer, record, job);
+            } catch (NumberFormatException e) {
+                reject("not a number: " + e.getMessage());
+            }
+        }
+    }
+
+    // Column index per CSV_COLUMNS entry, -1 when absent; null when a required column is missing
+    private static int[] mapHeader(List<String> header) {
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < header.size(); j++) {
+                if (CSV_COLUMNS[i].equalsIgnoreCase(header.get(j).trim())) {
+                    columns[i] = j;
+                    break;
+                }
+            }
+        }
+        boolean complete = columns[COL_DATE] != -1 && columns[COL_EXERCISE] != -1 && columns[COL_DURATION] != -1;
+        return complete ? columns : null;
+    }
+
+    private static String column(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : "";
+    }
+
+    // Read one CSV row into fields. Quoted fields may contain commas, doubled quotes and line
+    // breaks. Returns false at the end of input.
+    private boolean readCsvRow(BufferedReader reader, List<String> fields) throws IOException {
+        fields.clear();
+        field.setLength(0);
+        rowTooLong = false;
+
+        boolean quoted = false;
+        boolean any = false;
+        int length = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (++length > MAX_ROW_CHARS) {
+                rowTooLong = true;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        appendToField('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    appendToField(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                appendToField(c);
+            }
+        }
+        if (!any) return false;
+
+        fields.add(field.toString());
+        return true;
+    }
+
+    private void appendToField(int c) {
+        if (!rowTooLong) {
+            field.append((char) c);
+        }
+    }
+
+    // NDJSON
+
+    private void readJson(BatchWriter writer, BufferedReader reader, DatabaseJob<?> job) throws IOException {
+        while (readLine(reader)) {
+            row++;
+            if (rowTooLong) {
+                reject("row is longer than " + MAX_ROW_CHARS + " characters");
+                continue;
+            }
+            String line = field.toString().trim();
+            if (line.isEmpty()) continue;
+
+            try {
+                JSONObject json = new JSONObject(line);
+                Record record = new Record();
+                long dateMillis = json.optLong("dateMillis", -1);
+                if (dateMillis < 0) {
+                    dateMillis = parseDate(json.optString("date"));
+                }
+                if (dateMillis < 0) {
+                    reject("unreadable date");
+                    continue;
+                }
+                record.setDateMillis(dateMillis);
+                record.setExerciseName(json.optString("exercise").trim());
+                record.setDuration(json.optInt("durationMin"));
+                record.setSets(json.optInt("sets"));
+                record.setReps(json.optInt("reps"));
+                record.setIntensity(json.optInt("intensity"));
+                record.setCondition(json.optInt("condition"));
+                record.setFatigue(json.optInt("fatigue"));
+                record.setMemo(json.isNull("memo") ? null : json.optString("memo"));
+                accept(writer, record, job);
+            } catch (JSONException e) {
+                reject("malformed JSON");
+            }
+        }
+    }
+
+    // Read one line into field. Returns false at the end of input.
+    private boolean readLine(BufferedReader reader) throws IOException {
+        field.setLength(0);
+        rowTooLong = false;
+
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (c == '\n') break;
+            if (field.length() >= MAX_ROW_CHARS) {
+                rowTooLong = true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        return any;
+    }
+
+    // Rows
+
+    private void accept(BatchWriter writer, Record record, DatabaseJob<?> job) {
+        String problem = validate(record);
+        if (problem != null) {
+            reject(problem);
+            return;
+        }
+        batch.add(record);
+        if (batch.size() >= batchSize) {
+            flush(writer, job);
+        }
+    }
+
+    private static String validate(Record record) {
+        if (TextUtils.isEmpty(record.getExerciseName())) return "missing exercise";
+        if (record.getDuration() < 0 || record.getDuration() > MAX_DURATION_MINUTES) return "duration out of range";
+        if (record.getSets() < 0 || record.getReps() < 0) return "negative sets or reps";
+        if (!isRating(record.getIntensity()) || !isRating(record.getCondition()) || !isRating(record.getFatigue())) {
+            return "rating out of range";
+        }
+        return null;
+    }
+
+    private static boolean isRating(int value) {
+        return value >= 0 && value <= MAX_RATING;
+    }
+
+    private void reject(String problem) {
+        skipped++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("row " + row + ": " + problem);
+        }
+    }
+
+    private void flush(BatchWriter writer, DatabaseJob<?> job) {
+        job.throwIfCancelled();
+        if (batch.isEmpty()) return;
+        int saved = writer.save(batch);
+        imported += saved;
+        duplicates += batch.size() - saved;
+        batch.clear();
+        job.reportProgress(imported, 0);
+    }
+
+    // Parsing
+
+    private static int parseInt(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? 0 : Integer.parseInt(trimmed);
+    }
+
+    // Local "yyyy-MM-dd HH:mm[:ss]" (or with a T separator) to epoch millis; -1 if unreadable
+    private long parseDate(String value) {
+        long millis = Timestamps.parse(value, timeZone);
+        return millis == Timestamps.INVALID ? -1 : millis;
+    }
+}
@@ -0,0 +1,44 @@
+package com.squashtrainingapp.database.mapping;
+
+import android.database.Cursor;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.Exercise;
+
+/**
+ * Maps exercises rows.
+ */
+public class ExerciseRowMapper implements RowMapper<Exercise> {
+
+    public static final String[] FULL_PROJECTION = {
+        DatabaseContract.COLUMN_ID,
+        DatabaseContract.COLUMN_EXERCISE_NAME,
+        DatabaseContract.COLUMN_EXERCISE_CATEGORY,
+        DatabaseContract.COLUMN_EXERCISE_DESCRIPTION,
+        DatabaseContract.COLUMN_EXERCISE_CHECKED
+    };
+
+    private final int idIndex;
+    private final int nameIndex;
+    private final int categoryIndex;
+    private final int descriptionIndex;
+    private final int checkedIndex;
+
+    public ExerciseRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_ID);
+        nameIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_NAME);
+        categoryIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_CATEGORY);
+        descriptionIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_DESCRIPTION);
+        checkedIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_EXERCISE_CHECKED);
+    }
+
+    @Override
+    public Exercise mapRow(Cursor cursor) {
+        Exercise exercise = new Exercise();
+        if (idIndex != -1) exercise.setId(cursor.getInt(idIndex));
+        if (nameIndex != -1) exercise.setName(cursor.getString(nameIndex));
+        if (categoryIndex != -1) exercise.setCategory(cursor.getString(categoryIndex));
+        if (descriptionIndex != -1) exercise.setDescription(cursor.getString(descriptionIndex));
+        if (checkedIndex != -1) exercise.setChecked(cursor.getInt(checkedIndex) == 1);
+        return exercise;
+    }
+}
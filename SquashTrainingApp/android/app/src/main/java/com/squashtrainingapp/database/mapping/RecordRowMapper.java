@@ -0,0 +1,86 @@
+package com.squashtrainingapp.database.mapping;
+
+import android.database.Cursor;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.Record;
+
+/**
+ * Maps records rows. Columns missing from the projection are left at their defaults.
+ */
+public class RecordRowMapper implements RowMapper<Record> {
+
+    // Every column the Record model carries. The legacy date text is left out: date_millis is
+    // the typed date, so rows decode without parsing or allocating date strings.
+    public static final String[] FULL_PROJECTION = {
+        DatabaseContract.COLUMN_ID,
+        DatabaseContract.COLUMN_RECORD_EXERCISE,
+        DatabaseContract.COLUMN_RECORD_SETS,
+        DatabaseContract.COLUMN_RECORD_REPS,
+        DatabaseContract.COLUMN_RECORD_DURATION,
+        DatabaseContract.COLUMN_RECORD_INTENSITY,
+        DatabaseContract.COLUMN_RECORD_CONDITION,
+        DatabaseContract.COLUMN_RECORD_FATIGUE,
+        DatabaseContract.COLUMN_RECORD_MEMO,
+        DatabaseContract.COLUMN_RECORD_DATE_MILLIS,
+        DatabaseContract.COLUMN_RECORD_CATEGORY,
+        DatabaseContract.COLUMN_RECORD_EPOCH_DAY
+    };
+
+    // Lightweight rows for the stats screens: when, how long and what
+    public static final String[] SUMMARY_PROJECTION = {
+        DatabaseContract.COLUMN_ID,
+        DatabaseContract.COLUMN_RECORD_EXERCISE,
+        DatabaseContract.COLUMN_RECORD_DURATION,
+        DatabaseContract.COLUMN_RECORD_DATE_MILLIS,
+        DatabaseContract.COLUMN_RECORD_CATEGORY,
+        DatabaseContract.COLUMN_RECORD_EPOCH_DAY
+    };
+
+    private final int idIndex;
+    private final int exerciseIndex;
+    private final int setsIndex;
+    private final int repsIndex;
+    private final int durationIndex;
+    private final int intensityIndex;
+    private final int conditionIndex;
+    private final int fatigueIndex;
+    private final int memoIndex;
+    private final int dateMillisIndex;
+    private final int categoryIndex;
+    private final int epochDayIndex;
+
+    public RecordRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_ID);
+        exerciseIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_EXERCISE);
+        setsIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_SETS);
+        repsIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_REPS);
+        durationIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DURATION);
+        intensityIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_INTENSITY);
+        conditionIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_CONDITION);
+        fatigueIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_FATIGUE);
+        memoIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_MEMO);
+        dateMillisIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_DATE_MILLIS);
+        categoryIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_CATEGORY);
+        epochDayIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_RECORD_EPOCH_DAY);
+    }
+
+    @Override
+    public Record mapRow(Cursor cursor) {
+        Record record = new Record();
+        if (idIndex != -1) record.setId(cursor.getInt(idIndex));
+        if (exerciseIndex != -1) record.setExerciseName(cursor.getString(exerciseIndex));
+        if (setsIndex != -1) record.setSets(cursor.getInt(setsIndex));
+        if (repsIndex != -1) record.setReps(cursor.getInt(repsIndex));
+        if (durationIndex != -1) record.setDuration(cursor.getInt(durationIndex));
+        if (intensityIndex != -1) record.setIntensity(cursor.getInt(intensityIndex));
+        if (conditionIndex != -1) record.setCondition(cursor.getInt(conditionIndex));
+        if (fatigueIndex != -1) record.setFatigue(cursor.getInt(fatigueIndex));
+        if (memoIndex != -1) record.setMemo(cursor.getString(memoIndex));
+        if (dateMillisIndex != -1) record.setDateMillis(cursor.getLong(dateMillisIndex));
+        // Setting the name clears the category, so the stored one goes after it
+        if (categoryIndex != -1) record.setExerciseType(cursor.getString(categoryIndex));
+        // Likewise the date clears the day
+        if (epochDayIndex != -1) record.setEpochDay(cursor.getInt(epochDayIndex));
+        return record;
+    }
+}
@@ -0,0 +1,28 @@
+package com.squashtrainingapp.database.mapping;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the current cursor row into a model. Implementations resolve their column
+ * indexes once, when they are created for a cursor, and reuse them for every row.
+ */
+public interface RowMapper<T> {
+
+    T mapRow(Cursor cursor);
+
+    // Map every row and close the cursor
+    static <T> List<T> mapAll(Cursor cursor, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>(Math.max(cursor.getCount(), 0));
+        try {
+            while (cursor.moveToNext()) {
+                rows.add(mapper.mapRow(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,52 @@
+package com.squashtrainingapp.database.mapping;
+
+import android.database.Cursor;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.TrainingProgram;
+
+/**
+ * Maps training_programs rows.
+ */
+public class TrainingProgramRowMapper implements RowMapper<TrainingProgram> {
+
+    public static final String[] FULL_PROJECTION = {
+        DatabaseContract.COLUMN_ID,
+        DatabaseContract.COLUMN_PROGRAM_NAME,
+        DatabaseContract.COLUMN_PROGRAM_DESCRIPTION,
+        DatabaseContract.COLUMN_PROGRAM_DURATION_WEEKS,
+        DatabaseContract.COLUMN_PROGRAM_DIFFICULTY,
+        DatabaseContract.COLUMN_PROGRAM_TYPE,
+        DatabaseContract.COLUMN_PROGRAM_IMAGE_URL
+    };
+
+    private final int idIndex;
+    private final int nameIndex;
+    private final int descriptionIndex;
+    private final int durationWeeksIndex;
+    private final int difficultyIndex;
+    private final int typeIndex;
+    private final int imageUrlIndex;
+
+    public TrainingProgramRowMapper(Cursor cursor) {
+        idIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_ID);
+        nameIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_NAME);
+        descriptionIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DESCRIPTION);
+        durationWeeksIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DURATION_WEEKS);
+        difficultyIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_DIFFICULTY);
+        typeIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_TYPE);
+        imageUrlIndex = cursor.getColumnIndex(DatabaseContract.COLUMN_PROGRAM_IMAGE_URL);
+    }
+
+    @Override
+    public TrainingProgram mapRow(Cursor cursor) {
+        TrainingProgram program = new TrainingProgram();
+        if (idIndex != -1) program.setId(cursor.getLong(idIndex));
+        if (nameIndex != -1) program.setName(cursor.getString(nameIndex));
+        if (descriptionIndex != -1) program.setDescription(cursor.getString(descriptionIndex));
+        if (durationWeeksIndex != -1) program.setDurationWeeks(cursor.getInt(durationWeeksIndex));
+        if (difficultyIndex != -1) program.setDifficulty(cursor.getString(difficultyIndex));
+        if (typeIndex != -1) program.setType(cursor.getString(typeIndex));
+        if (imageUrlIndex != -1) program.setImageUrl(cursor.getString(imageUrlIndex));
+        return program;
+    }
+}
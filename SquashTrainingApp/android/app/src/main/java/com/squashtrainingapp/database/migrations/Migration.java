@@ -0,0 +1,27 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.archive.RecordArchive;
+
+/**
+ * A single schema step that moves the database from {@code version - 1} to {@code version}.
+ */
+public abstract class Migration {
+
+    private final int version;
+
+    protected Migration(int version) {
+        this.version = version;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    // Apply the schema change. Runs inside a transaction opened by MigrationRunner.
+    public abstract void migrate(SQLiteDatabase db);
+
+    // Bring the record archive files in line with the schema change, for migrations that need
+    // to. Runs after migrate(), before its transaction commits.
+    public void migrateArchive(RecordArchive archive) {}
+}
@@ -0,0 +1,21 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Creates the pending_writes table that holds Firestore mutations until WriteBehindQueue
+ * flushes them.
+ */
+class Migration10PendingWrites extends Migration {
+
+    Migration10PendingWrites() {
+        super(10);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(DatabaseContract.SQL_CREATE_PENDING_WRITES);
+        db.execSQL(DatabaseContract.SQL_CREATE_PENDING_WRITES_PATH_INDEX);
+    }
+}
@@ -0,0 +1,101 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Creates the training_load table and builds the model from the records table in date order.
+ * Archived records are more than a year old; their weight in either average has decayed to
+ * nothing, so they are left out.
+ */
+class Migration11TrainingLoad extends Migration {
+
+    // TrainingLoad's model as it was at this version: exponentially weighted 7- and 28-day
+    // averages of the daily load, plus the last seven daily loads by floorMod(day, 7)
+    private static final int ACUTE_DAYS = 7;
+    private static final double ACUTE_DECAY = 1 - 2.0 / (ACUTE_DAYS + 1);
+    private static final double CHRONIC_DECAY = 1 - 2.0 / (28 + 1);
+
+    Migration11TrainingLoad() {
+        super(11);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(DatabaseContract.SQL_CREATE_TRAINING_LOAD);
+
+        boolean empty = true;
+        int firstDay = 0;
+        int day = 0;
+        double acute = 0;
+        double chronic = 0;
+        int[] week = new int[ACUTE_DAYS];
+
+        Cursor cursor = db.rawQuery("SELECT " + Migration5DailyStats.LOCAL_DAY + ", " +
+                DatabaseContract.COLUMN_RECORD_DURATION + " * " + DatabaseContract.COLUMN_RECORD_INTENSITY +
+                " FROM " + DatabaseContract.TABLE_RECORDS +
+                " ORDER BY " + DatabaseContract.COLUMN_RECORD_DATE_MILLIS, null);
+        try {
+            while (cursor.moveToNext()) {
+                int epochDay = cursor.getInt(0);
+                int load = cursor.getInt(1);
+                if (load <= 0 && (empty || epochDay > day)) continue;
+
+                if (empty) {
+                    firstDay = epochDay;
+                    day = epochDay;
+                    empty = false;
+                } else if (epochDay > day) {
+                    int gap = epochDay - day;
+                    acute *= Math.pow(ACUTE_DECAY, gap);
+                    chronic *= Math.pow(CHRONIC_DECAY, gap);
+                    for (int d = day + 1; d <= epochDay && d <= day + ACUTE_DAYS; d++) {
+                        week[Math.floorMod(d, ACUTE_DAYS)] = 0;
+                    }
+                    day = epochDay;
+                }
+                if (load > 0) {
+                    firstDay = Math.min(firstDay, epochDay);
+                }
+
+                // Non-zero only where a clock change moved a later record onto an earlier day
+                int age = day - epochDay;
+                acute = Math.max(0, acute + (1 - ACUTE_DECAY) * load * Math.pow(ACUTE_DECAY, age));
+                chronic = Math.max(0, chronic + (1 - CHRONIC_DECAY) * load * Math.pow(CHRONIC_DECAY, age));
+                if (age < ACUTE_DAYS) {
+                    int slot = Math.floorMod(epochDay, ACUTE_DAYS);
+                    week[slot] = Math.max(0, week[slot] + load);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (empty) return;
+
+        // TrainingLoadDao's row as it was at this version
+        StringBuilder weekText = new StringBuilder();
+        for (int load : week) {
+            if (weekText.length() > 0) weekText.append(',');
+            weekText.append(load);
+        }
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseContract.TABLE_TRAINING_LOAD + " (" +
+                DatabaseContract.COLUMN_ID + ", " +
+                DatabaseContract.COLUMN_LOAD_FIRST_DAY + ", " +
+                DatabaseContract.COLUMN_LOAD_DAY + ", " +
+                DatabaseContract.COLUMN_LOAD_ACUTE + ", " +
+                DatabaseContract.COLUMN_LOAD_CHRONIC + ", " +
+                DatabaseContract.COLUMN_LOAD_WEEK + ") VALUES (1, ?, ?, ?, ?, ?)");
+        try {
+            insert.bindLong(1, firstDay);
+            insert.bindLong(2, day);
+            insert.bindDouble(3, acute);
+            insert.bindDouble(4, chronic);
+            insert.bindString(5, weekText.toString());
+            insert.executeInsert();
+        } finally {
+            insert.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.archive.RecordArchive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Stores the local epoch day on every record, so deleting one takes it out of the rollup and
+ * the training load on the day it was counted under, whatever the time zone is by then.
+ * Existing rows and archive files get the day in the current time zone, which is what they
+ * were counted under unless the zone changed since.
+ */
+class Migration12RecordEpochDay extends Migration {
+
+    Migration12RecordEpochDay() {
+        super(12);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + DatabaseContract.TABLE_RECORDS +
+                " ADD COLUMN " + DatabaseContract.COLUMN_RECORD_EPOCH_DAY + " INTEGER");
+        db.execSQL("UPDATE " + DatabaseContract.TABLE_RECORDS + " SET " +
+                DatabaseContract.COLUMN_RECORD_EPOCH_DAY + " = " + Migration5DailyStats.LOCAL_DAY);
+    }
+
+    @Override
+    public void migrateArchive(RecordArchive archive) {
+        try {
+            archive.upgradeFiles();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Rebuilds the search index with a grams column holding the bigrams of its Hangul text, so a
+ * word matches inside a compound. FTS tables cannot gain a column, so every row, archived
+ * records included, is copied into the new table with its grams. The triggers name their
+ * columns and carry over unchanged.
+ */
+class Migration13SearchGrams extends Migration {
+
+    private static final String COPY = "migration13_search_copy";
+
+    Migration13SearchGrams() {
+        super(13);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        String index = DatabaseContract.TABLE_SEARCH_INDEX;
+        String title = DatabaseContract.COLUMN_SEARCH_TITLE;
+        String body = DatabaseContract.COLUMN_SEARCH_BODY;
+
+        db.execSQL("CREATE TEMP TABLE " + COPY + " AS SELECT docid AS source_docid, " + title + ", " + body +
+                " FROM " + index);
+        db.execSQL("DROP TABLE " + index);
+        db.execSQL("CREATE VIRTUAL TABLE " + index + " USING fts4(" + title + ", " + body + ", " +
+                DatabaseContract.COLUMN_SEARCH_GRAMS + ", tokenize=unicode61, prefix=\"2,3\")");
+
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + index + " (docid, " + title + ", " +
+                body + ", " + DatabaseContract.COLUMN_SEARCH_GRAMS + ") VALUES (?, ?, ?, ?)");
+        Cursor cursor = db.rawQuery("SELECT source_docid, " + title + ", " + body + " FROM " + COPY, null);
+        try {
+            while (cursor.moveToNext()) {
+                insert.clearBindings();
+                insert.bindLong(1, cursor.getLong(0));
+                bind(insert, 2, cursor.getString(1));
+                bind(insert, 3, cursor.getString(2));
+                bind(insert, 4, hangulBigrams(cursor.getString(1), cursor.getString(2)));
+                insert.executeInsert();
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+        }
+        db.execSQL("DROP TABLE " + COPY);
+    }
+
+    // SearchDao.hangulBigrams as it was at this version
+    private static String hangulBigrams(String... texts) {
+        StringBuilder grams = null;
+        for (String text : texts) {
+            if (text == null) continue;
+            for (int i = 1; i < text.length(); i++) {
+                if (!isHangulSyllable(text.charAt(i - 1)) || !isHangulSyllable(text.charAt(i))) continue;
+                if (grams == null) {
+                    grams = new StringBuilder();
+                } else {
+                    grams.append(' ');
+                }
+                grams.append(text, i - 1, i + 1);
+            }
+        }
+        return grams == null ? null : grams.toString();
+    }
+
+    private static boolean isHangulSyllable(char c) {
+        return c >= '\uAC00' && c <= '\uD7A3';
+    }
+
+    private static void bind(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
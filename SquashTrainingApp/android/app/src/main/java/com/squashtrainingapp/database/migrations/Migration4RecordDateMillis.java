@@ -0,0 +1,28 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Adds an indexed epoch-millis date to records so range queries no longer compare TEXT dates.
+ */
+class Migration4RecordDateMillis extends Migration {
+
+    Migration4RecordDateMillis() {
+        super(4);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + DatabaseContract.TABLE_RECORDS +
+                " ADD COLUMN " + DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " INTEGER");
+
+        // Legacy dates come from CURRENT_TIMESTAMP, which SQLite stores as UTC text
+        db.execSQL("UPDATE " + DatabaseContract.TABLE_RECORDS +
+                " SET " + DatabaseContract.COLUMN_RECORD_DATE_MILLIS + " = COALESCE(" +
+                "CAST(strftime('%s', " + DatabaseContract.COLUMN_RECORD_DATE + ") AS INTEGER) * 1000, " +
+                "CAST(strftime('%s', 'now') AS INTEGER) * 1000)");
+
+        db.execSQL(DatabaseContract.SQL_CREATE_RECORDS_DATE_INDEX);
+    }
+}
@@ -0,0 +1,86 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.models.Record;
+import java.util.Locale;
+
+/**
+ * Creates the daily_stats rollup and fills it from existing records.
+ */
+class Migration5DailyStats extends Migration {
+
+    // Exercise type keywords as they were at this version, checked in order. The rollup was
+    // keyed by these until version 9 moved classification to ExerciseClassifier.
+    static final String[][] EXERCISE_TYPE_KEYWORDS = {
+        {"Drives", "drive", "straight"},
+        {"Drop Shots", "drop", "short"},
+        {"Volleys", "volley"},
+        {"Serves", "serve", "service"},
+        {"Boasts", "boast", "angle"},
+        {"Drills", "drill", "practice"},
+        {"Matches", "match", "game"}
+    };
+
+    // A record's local epoch day, as rollup rows are keyed
+    static final String LOCAL_DAY = "CAST(strftime('%s', " + DatabaseContract.COLUMN_RECORD_DATE_MILLIS +
+            " / 1000, 'unixepoch', 'localtime') AS INTEGER) / 86400";
+
+    Migration5DailyStats() {
+        super(5);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(DatabaseContract.SQL_CREATE_DAILY_STATS);
+
+        db.execSQL("INSERT INTO " + DatabaseContract.TABLE_DAILY_STATS + " (" +
+                DatabaseContract.COLUMN_DAILY_DAY + ", " +
+                DatabaseContract.COLUMN_DAILY_CATEGORY + ", " +
+                DatabaseContract.COLUMN_DAILY_SESSIONS + ", " +
+                DatabaseContract.COLUMN_DAILY_MINUTES + ", " +
+                DatabaseContract.COLUMN_DAILY_SETS + ", " +
+                DatabaseContract.COLUMN_DAILY_REPS + ", " +
+                DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + ", " +
+                DatabaseContract.COLUMN_DAILY_FATIGUE_SUM + ") " +
+                "SELECT " + LOCAL_DAY + ", " + categoryCase(EXERCISE_TYPE_KEYWORDS) + ", COUNT(*), " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_DURATION + "), " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_SETS + "), " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_REPS + "), " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_INTENSITY + "), " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_FATIGUE + ") " +
+                "FROM " + DatabaseContract.TABLE_RECORDS + " GROUP BY 1, 2");
+    }
+
+    // Same rules as categoryCase(EXERCISE_TYPE_KEYWORDS), in Java
+    static String exerciseType(String exerciseName) {
+        if (exerciseName == null) return Record.TYPE_OTHER;
+
+        String lowerName = exerciseName.toLowerCase(Locale.ROOT);
+        for (String[] type : EXERCISE_TYPE_KEYWORDS) {
+            for (int i = 1; i < type.length; i++) {
+                if (lowerName.contains(type[i])) {
+                    return type[0];
+                }
+            }
+        }
+        return Record.TYPE_GENERAL;
+    }
+
+    // A keyword table as a CASE expression over the exercise name, first category listed wins;
+    // LIKE is case-insensitive for ASCII
+    static String categoryCase(String[][] keywords) {
+        String column = DatabaseContract.COLUMN_RECORD_EXERCISE;
+        StringBuilder sql = new StringBuilder("CASE WHEN ").append(column)
+                .append(" IS NULL THEN '").append(Record.TYPE_OTHER).append("'");
+        for (String[] type : keywords) {
+            sql.append(" WHEN ");
+            for (int i = 1; i < type.length; i++) {
+                if (i > 1) sql.append(" OR ");
+                sql.append(column).append(" LIKE '%").append(type[i]).append("%'");
+            }
+            sql.append(" THEN '").append(type[0]).append("'");
+        }
+        return sql.append(" ELSE '").append(Record.TYPE_GENERAL).append("' END").toString();
+    }
+}
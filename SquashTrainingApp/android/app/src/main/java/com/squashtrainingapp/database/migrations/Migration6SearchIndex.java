@@ -0,0 +1,72 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Creates the FTS4 search index over records, exercises and training programs, the triggers
+ * that keep it in sync, and indexes the existing rows.
+ */
+class Migration6SearchIndex extends Migration {
+
+    Migration6SearchIndex() {
+        super(6);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(DatabaseContract.SQL_CREATE_SEARCH_INDEX);
+
+        index(db, DatabaseContract.TABLE_RECORDS, DatabaseContract.SEARCH_SOURCE_RECORD,
+                DatabaseContract.COLUMN_RECORD_EXERCISE,
+                DatabaseContract.COLUMN_RECORD_MEMO);
+        index(db, DatabaseContract.TABLE_EXERCISES, DatabaseContract.SEARCH_SOURCE_EXERCISE,
+                DatabaseContract.COLUMN_EXERCISE_NAME,
+                DatabaseContract.COLUMN_EXERCISE_DESCRIPTION, DatabaseContract.COLUMN_EXERCISE_CATEGORY);
+        index(db, DatabaseContract.TABLE_TRAINING_PROGRAMS, DatabaseContract.SEARCH_SOURCE_PROGRAM,
+                DatabaseContract.COLUMN_PROGRAM_NAME,
+                DatabaseContract.COLUMN_PROGRAM_DESCRIPTION, DatabaseContract.COLUMN_PROGRAM_TYPE);
+    }
+
+    // Add insert/update/delete triggers for one source table and index its current rows. The
+    // title column holds the name; every other column is concatenated into the body.
+    private static void index(SQLiteDatabase db, String table, int source, String titleColumn,
+                              String... bodyColumns) {
+        String index = DatabaseContract.TABLE_SEARCH_INDEX;
+        String columns = "(docid, " + DatabaseContract.COLUMN_SEARCH_TITLE + ", " +
+                DatabaseContract.COLUMN_SEARCH_BODY + ")";
+
+        db.execSQL("CREATE TRIGGER " + table + "_search_insert AFTER INSERT ON " + table + " BEGIN " +
+                "INSERT INTO " + index + columns + " VALUES (" + docid("new", source) + ", " +
+                "new." + titleColumn + ", " + body("new", bodyColumns) + "); END");
+
+        db.execSQL("CREATE TRIGGER " + table + "_search_update AFTER UPDATE OF " +
+                titleColumn + ", " + TextUtils.join(", ", bodyColumns) + " ON " + table + " BEGIN " +
+                "UPDATE " + index + " SET " +
+                DatabaseContract.COLUMN_SEARCH_TITLE + " = new." + titleColumn + ", " +
+                DatabaseContract.COLUMN_SEARCH_BODY + " = " + body("new", bodyColumns) +
+                " WHERE docid = " + docid("old", source) + "; END");
+
+        db.execSQL("CREATE TRIGGER " + table + "_search_delete AFTER DELETE ON " + table + " BEGIN " +
+                "DELETE FROM " + index + " WHERE docid = " + docid("old", source) + "; END");
+
+        db.execSQL("INSERT INTO " + index + columns + " SELECT " +
+                docid(table, source) + ", " + table + "." + titleColumn + ", " + body(table, bodyColumns) +
+                " FROM " + table);
+    }
+
+    private static String docid(String row, int source) {
+        return row + "." + DatabaseContract.COLUMN_ID + " * " + DatabaseContract.SEARCH_SOURCE_SLOTS +
+                " + " + source;
+    }
+
+    private static String body(String row, String... columns) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sql.append(" || ' ' || ");
+            sql.append("COALESCE(").append(row).append('.').append(columns[i]).append(", '')");
+        }
+        return sql.toString();
+    }
+}
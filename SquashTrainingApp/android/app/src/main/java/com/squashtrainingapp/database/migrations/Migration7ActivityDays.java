@@ -0,0 +1,44 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Creates the activity_days bitmap, the daily_stats triggers that keep it in sync, and sets the
+ * bits for every day the rollup already has.
+ */
+class Migration7ActivityDays extends Migration {
+
+    Migration7ActivityDays() {
+        super(7);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        String table = DatabaseContract.TABLE_ACTIVITY_DAYS;
+        String word = DatabaseContract.COLUMN_ACTIVITY_WORD;
+        String bits = DatabaseContract.COLUMN_ACTIVITY_BITS;
+        String daily = DatabaseContract.TABLE_DAILY_STATS;
+        String day = DatabaseContract.COLUMN_DAILY_DAY;
+
+        db.execSQL(DatabaseContract.SQL_CREATE_ACTIVITY_DAYS);
+
+        // A day turns on with its first rollup row (the rollup inserts before it adds a delta)
+        db.execSQL("CREATE TRIGGER " + daily + "_activity_insert AFTER INSERT ON " + daily + " BEGIN " +
+                "INSERT OR IGNORE INTO " + table + " (" + word + ") VALUES (new." + day + " >> 6); " +
+                "UPDATE " + table + " SET " + bits + " = " + bits + " | (1 << (new." + day + " & 63))" +
+                " WHERE " + word + " = new." + day + " >> 6; END");
+
+        // and off when its last one is deleted; empty words are dropped
+        db.execSQL("CREATE TRIGGER " + daily + "_activity_delete AFTER DELETE ON " + daily +
+                " WHEN NOT EXISTS (SELECT 1 FROM " + daily + " WHERE " + day + " = old." + day + ") BEGIN " +
+                "UPDATE " + table + " SET " + bits + " = " + bits + " & ~(1 << (old." + day + " & 63))" +
+                " WHERE " + word + " = old." + day + " >> 6; " +
+                "DELETE FROM " + table + " WHERE " + word + " = old." + day + " >> 6 AND " + bits + " = 0; END");
+
+        // Each distinct day adds a different power of two, so the sum is the OR of the bits
+        db.execSQL("INSERT INTO " + table + " (" + word + ", " + bits + ") " +
+                "SELECT " + day + " >> 6, SUM(1 << (" + day + " & 63)) " +
+                "FROM (SELECT DISTINCT " + day + " FROM " + daily + ") GROUP BY " + day + " >> 6");
+    }
+}
@@ -0,0 +1,36 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+
+/**
+ * Rewrites workout session and program enrollment dates from local "yyyy-MM-dd HH:mm:ss" text to
+ * epoch millis, so they sort and compare as integers and decode without parsing.
+ */
+class Migration8EpochMillisDates extends Migration {
+
+    Migration8EpochMillisDates() {
+        super(8);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        // scheduled_date is NOT NULL; unreadable text falls back to when the row was created
+        // (CURRENT_TIMESTAMP, so already UTC), then to now
+        toMillis(db, DatabaseContract.TABLE_WORKOUT_SESSIONS, DatabaseContract.COLUMN_SESSION_SCHEDULED_DATE,
+                "COALESCE(CAST(strftime('%s', " + DatabaseContract.COLUMN_SESSION_CREATED_AT + ") AS INTEGER) * 1000, " +
+                "CAST(strftime('%s', 'now') AS INTEGER) * 1000)");
+
+        // Enrollment dates are optional; unreadable ones become unset
+        toMillis(db, DatabaseContract.TABLE_PROGRAM_ENROLLMENTS, DatabaseContract.COLUMN_ENROLLMENT_START_DATE, "NULL");
+        toMillis(db, DatabaseContract.TABLE_PROGRAM_ENROLLMENTS, DatabaseContract.COLUMN_ENROLLMENT_END_DATE, "NULL");
+        toMillis(db, DatabaseContract.TABLE_PROGRAM_ENROLLMENTS, DatabaseContract.COLUMN_ENROLLMENT_LAST_ACTIVITY, "NULL");
+    }
+
+    // The app wrote these in device time, so 'utc' converts from local before taking the epoch
+    private static void toMillis(SQLiteDatabase db, String table, String column, String fallback) {
+        db.execSQL("UPDATE " + table + " SET " + column + " = COALESCE(" +
+                "CAST(strftime('%s', " + column + ", 'utc') AS INTEGER) * 1000, " + fallback + ")" +
+                " WHERE typeof(" + column + ") = 'text'");
+    }
+}
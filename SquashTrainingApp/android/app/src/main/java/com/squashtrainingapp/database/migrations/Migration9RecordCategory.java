@@ -0,0 +1,102 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import com.squashtrainingapp.database.DatabaseContract;
+import com.squashtrainingapp.database.archive.RecordArchive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Adds an indexed category column to records and classifies every existing row. The classifier
+ * now also knows Korean terms, so rows whose category changed are moved to their new category
+ * in the daily_stats rollup as well. Archived rows keep their rollup entries as they were, and
+ * their archive files record the category those entries are keyed by.
+ */
+class Migration9RecordCategory extends Migration {
+
+    // ExerciseClassifier's keywords as they were at this version, checked in order, including
+    // the Korean terms it took from the voice processor
+    private static final String[][] CATEGORY_KEYWORDS = {
+        {"Drives", "drive", "straight", "드라이브", "스트레이트"},
+        {"Drop Shots", "drop", "short", "드롭"},
+        {"Volleys", "volley", "발리"},
+        {"Serves", "serve", "service", "서브", "서비스"},
+        {"Boasts", "boast", "angle", "보스트"},
+        {"Drills", "drill", "practice", "드릴", "연습"},
+        {"Matches", "match", "game", "경기", "게임", "매치"}
+    };
+
+    private static final String MOVES = "migration9_category_moves";
+    private static final String[] ROLLUP_COLUMNS = {
+        DatabaseContract.COLUMN_DAILY_SESSIONS,
+        DatabaseContract.COLUMN_DAILY_MINUTES,
+        DatabaseContract.COLUMN_DAILY_SETS,
+        DatabaseContract.COLUMN_DAILY_REPS,
+        DatabaseContract.COLUMN_DAILY_INTENSITY_SUM,
+        DatabaseContract.COLUMN_DAILY_FATIGUE_SUM
+    };
+
+    Migration9RecordCategory() {
+        super(9);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        String category = DatabaseContract.COLUMN_RECORD_CATEGORY;
+        db.execSQL("ALTER TABLE " + DatabaseContract.TABLE_RECORDS + " ADD COLUMN " + category + " TEXT");
+        db.execSQL("UPDATE " + DatabaseContract.TABLE_RECORDS + " SET " + category + " = " +
+                Migration5DailyStats.categoryCase(CATEGORY_KEYWORDS));
+
+        // Totals per day of the rows whose category changed, by old and new category
+        db.execSQL("CREATE TEMP TABLE " + MOVES + " AS SELECT " +
+                Migration5DailyStats.LOCAL_DAY + " AS day, " +
+                Migration5DailyStats.categoryCase(Migration5DailyStats.EXERCISE_TYPE_KEYWORDS) + " AS old_category, " +
+                category + " AS new_category, " +
+                "COUNT(*) AS " + DatabaseContract.COLUMN_DAILY_SESSIONS + ", " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_DURATION + ") AS " + DatabaseContract.COLUMN_DAILY_MINUTES + ", " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_SETS + ") AS " + DatabaseContract.COLUMN_DAILY_SETS + ", " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_REPS + ") AS " + DatabaseContract.COLUMN_DAILY_REPS + ", " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_INTENSITY + ") AS " + DatabaseContract.COLUMN_DAILY_INTENSITY_SUM + ", " +
+                "TOTAL(" + DatabaseContract.COLUMN_RECORD_FATIGUE + ") AS " + DatabaseContract.COLUMN_DAILY_FATIGUE_SUM + " " +
+                "FROM " + DatabaseContract.TABLE_RECORDS + " GROUP BY 1, 2, 3");
+        db.execSQL("DELETE FROM " + MOVES + " WHERE old_category = new_category");
+
+        moveRollup(db, "old_category", "-");
+        db.execSQL("INSERT OR IGNORE INTO " + DatabaseContract.TABLE_DAILY_STATS + " (" +
+                DatabaseContract.COLUMN_DAILY_DAY + ", " + DatabaseContract.COLUMN_DAILY_CATEGORY + ") " +
+                "SELECT day, new_category FROM " + MOVES);
+        moveRollup(db, "new_category", "+");
+        db.execSQL("DELETE FROM " + DatabaseContract.TABLE_DAILY_STATS +
+                " WHERE " + DatabaseContract.COLUMN_DAILY_SESSIONS + " <= 0");
+        db.execSQL("DROP TABLE " + MOVES);
+
+        db.execSQL(DatabaseContract.SQL_CREATE_RECORDS_CATEGORY_INDEX);
+    }
+
+    // Archived rows are still counted under their version 5 category
+    @Override
+    public void migrateArchive(RecordArchive archive) {
+        try {
+            archive.labelCategories(Migration5DailyStats::exerciseType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Add or subtract the moved totals on the rollup rows keyed by one side of each move
+    private static void moveRollup(SQLiteDatabase db, String side, String operator) {
+        String table = DatabaseContract.TABLE_DAILY_STATS;
+        String matches = " FROM " + MOVES + " m WHERE m.day = " + table + "." + DatabaseContract.COLUMN_DAILY_DAY +
+                " AND m." + side + " = " + table + "." + DatabaseContract.COLUMN_DAILY_CATEGORY;
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (int i = 0; i < ROLLUP_COLUMNS.length; i++) {
+            String column = ROLLUP_COLUMNS[i];
+            if (i > 0) sql.append(", ");
+            sql.append(column).append(" = ").append(column).append(' ').append(operator)
+                    .append(" (SELECT TOTAL(m.").append(column).append(')').append(matches).append(')');
+        }
+        sql.append(" WHERE EXISTS (SELECT 1").append(matches).append(')');
+        db.execSQL(sql.toString());
+    }
+}
@@ -0,0 +1,81 @@
+package com.squashtrainingapp.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.squashtrainingapp.database.archive.RecordArchive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies the registered migrations in version order, each in its own transaction.
+ */
+public final class MigrationRunner {
+    private static final String TAG = "MigrationRunner";
+
+    // Oldest schema version that can be upgraded in place
+    public static final int BASELINE_VERSION = 3;
+
+    private MigrationRunner() {}
+
+    // Every migration, in ascending version order
+    private static List<Migration> allMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        migrations.add(new Migration4RecordDateMillis());
+        migrations.add(new Migration5DailyStats());
+        migrations.add(new Migration6SearchIndex());
+        migrations.add(new Migration7ActivityDays());
+        migrations.add(new Migration8EpochMillisDates());
+        migrations.add(new Migration9RecordCategory());
+        migrations.add(new Migration10PendingWrites());
+        migrations.add(new Migration11TrainingLoad());
+        migrations.add(new Migration12RecordEpochDay());
+        migrations.add(new Migration13SearchGrams());
+        return Collections.unmodifiableList(migrations);
+    }
+
+    public static boolean canMigrate(int fromVersion) {
+        return fromVersion >= BASELINE_VERSION;
+    }
+
+    // Migrate a database that has no record archive yet, e.g. a freshly created one
+    public static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        migrate(db, null, fromVersion, toVersion);
+    }
+
+    public static void migrate(SQLiteDatabase db, RecordArchive archive, int fromVersion, int toVersion) {
+        if (!canMigrate(fromVersion)) {
+            throw new IllegalArgumentException("No migration path from version " + fromVersion);
+        }
+
+        int current = fromVersion;
+        for (Migration migration : allMigrations()) {
+            int version = migration.getVersion();
+            if (version <= fromVersion || version > toVersion) {
+                continue;
+            }
+            if (version != current + 1) {
+                throw new IllegalStateException("Missing migration to version " + (current + 1));
+            }
+
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                if (archive != null) {
+                    migration.migrateArchive(archive);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            current = version;
+            Log.d(TAG, "Migrated database to version " + version);
+        }
+
+        if (current != toVersion) {
+            throw new IllegalStateException("Missing migration to version " + (current + 1));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import android.content.SharedPreferences;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.squashtrainingapp.models.Achievement;
+import com.squashtrainingapp.models.StreakIndex;
 import com.squashtrainingapp.models.User;
 
 import java.lang.reflect.Type;
@@ -219,12 +220,14 @@ public class AchievementManager {
         return newlyUnlocked;
     }
     
-    public List<Achievement> checkStreakAchievements(int currentStreak) {
+    // Streak goals count the best run ever, so one reached before the current streak still counts
+    public List<Achievement> checkStreakAchievements(StreakIndex streaks) {
         List<Achievement> newlyUnlocked = new ArrayList<>();
+        int bestStreak = streaks.bestStreak();
         
-        updateAchievementProgress(STREAK_7, currentStreak, newlyUnlocked);
-        updateAchievementProgress(STREAK_30, currentStreak, newlyUnlocked);
-        updateAchievementProgress(STREAK_100, currentStreak, newlyUnlocked);
+        updateAchievementProgress(STREAK_7, bestStreak, newlyUnlocked);
+        updateAchievementProgress(STREAK_30, bestStreak, newlyUnlocked);
+        updateAchievementProgress(STREAK_100, bestStreak, newlyUnlocked);
         
         return newlyUnlocked;
     }
@@ -8,6 +8,7 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
+import com.squashtrainingapp.sync.WriteBehindQueue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -21,6 +22,7 @@ public class ReferralService {
     private Context context;
     private FirebaseFirestore db;
     private FirebaseAuthManager authManager;
+    private WriteBehindQueue writeQueue;
     
     // Referral status
     public enum ReferralStatus {
@@ -66,6 +68,7 @@ public class ReferralService {
         this.context = context;
         this.db = FirebaseFirestore.getInstance();
         this.authManager = FirebaseAuthManager.getInstance(context);
+        this.writeQueue = WriteBehindQueue.getInstance(context);
     }
     
     // Generate unique referral code for user
@@ -207,12 +210,12 @@ public class ReferralService {
         rewardData.put("applied", false);
         rewardData.put("createdAt", System.currentTimeMillis());
         
-        db.collection("rewards").add(rewardData);
+        writeQueue.add("rewards", rewardData);
         
-        // Update referral status
+        // Update referral status; the referrer and referee flags fold into one write
         Map<String, Object> update = new HashMap<>();
         update.put(isReferrer ? "referrerRewarded" : "refereeRewarded", true);
-        db.collection("referrals").document(referralId).update(update);
+        writeQueue.update("referrals", referralId, update);
     }
     
     // Get user's referrals
@@ -301,8 +304,9 @@ public class ReferralService {
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful() && !task.getResult().isEmpty()) {
                         String docId = task.getResult().getDocuments().get(0).getId();
-                        db.collection("referralCodes").document(docId)
-                                .update("usageCount", com.google.firebase.firestore.FieldValue.increment(1));
+                        Map<String, Object> update = new HashMap<>();
+                        update.put("usageCount", WriteBehindQueue.increment(1));
+                        writeQueue.update("referralCodes", docId, update);
                     }
                 });
     }
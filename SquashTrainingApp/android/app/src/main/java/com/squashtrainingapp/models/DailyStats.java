@@ -0,0 +1,62 @@
+package com.squashtrainingapp.models;
+
+public class DailyStats {
+    private int epochDay;
+    private String category;
+    private int sessions;
+    private int minutes;
+    private int sets;
+    private int reps;
+    private int intensitySum;
+    private int fatigueSum;
+
+    // Constructors
+    public DailyStats() {}
+
+    public DailyStats(int epochDay, String category, int sessions, int minutes,
+                      int sets, int reps, int intensitySum, int fatigueSum) {
+        this.epochDay = epochDay;
+        this.category = category;
+        this.sessions = sessions;
+        this.minutes = minutes;
+        this.sets = sets;
+        this.reps = reps;
+        this.intensitySum = intensitySum;
+        this.fatigueSum = fatigueSum;
+    }
+
+    // Getters and Setters
+    public int getEpochDay() { return epochDay; }
+    public void setEpochDay(int epochDay) { this.epochDay = epochDay; }
+
+    // Null when the row sums every category of the day
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public int getSessions() { return sessions; }
+    public void setSessions(int sessions) { this.sessions = sessions; }
+
+    public int getMinutes() { return minutes; }
+    public void setMinutes(int minutes) { this.minutes = minutes; }
+
+    public int getSets() { return sets; }
+    public void setSets(int sets) { this.sets = sets; }
+
+    public int getReps() { return reps; }
+    public void setReps(int reps) { this.reps = reps; }
+
+    public int getIntensitySum() { return intensitySum; }
+    public void setIntensitySum(int intensitySum) { this.intensitySum = intensitySum; }
+
+    public int getFatigueSum() { return fatigueSum; }
+    public void setFatigueSum(int fatigueSum) { this.fatigueSum = fatigueSum; }
+
+    // Helper methods
+    public float getAverageIntensity() {
+        return sessions > 0 ? (float) intensitySum / sessions : 0;
+    }
+
+    public float getAverageFatigue() {
+        return sessions > 0 ? (float) fatigueSum / sessions : 0;
+    }
+}
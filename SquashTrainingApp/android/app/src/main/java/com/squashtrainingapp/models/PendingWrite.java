@@ -0,0 +1,46 @@
+package com.squashtrainingapp.models;
+
+/**
+ * A Firestore mutation waiting in the pending_writes table. fields holds the JSON of the field
+ * map, as written by WriteBehindQueue.
+ */
+public class PendingWrite {
+    // Operations; MERGE is a set() with SetOptions.merge()
+    public static final String OP_SET = "set";
+    public static final String OP_MERGE = "merge";
+    public static final String OP_UPDATE = "update";
+    
+    private long id;
+    // Document path, "collection/document"
+    private String path;
+    private String op;
+    private String fields;
+    // Epoch millis of the first mutation folded into this row
+    private long createdAt;
+    
+    public PendingWrite() {
+    }
+    
+    public PendingWrite(String path, String op, String fields) {
+        this.path = path;
+        this.op = op;
+        this.fields = fields;
+        this.createdAt = System.currentTimeMillis();
+    }
+    
+    // Getters and Setters
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+    
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+    
+    public String getOp() { return op; }
+    public void setOp(String op) { this.op = op; }
+    
+    public String getFields() { return fields; }
+    public void setFields(String fields) { this.fields = fields; }
+    
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+}
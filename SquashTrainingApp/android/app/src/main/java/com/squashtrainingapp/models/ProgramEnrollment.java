@@ -1,32 +1,39 @@
 package com.squashtrainingapp.models;
 
-import java.util.Date;
+import com.squashtrainingapp.utils.EpochDay;
 
+// Dates are epoch millis; 0 means not set
 public class ProgramEnrollment {
+    // Marks a cached epoch day as not yet computed
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    
     private long id;
     private long userId;
     private long programId;
-    private Date startDate;
-    private Date endDate;
+    private long startDate;
+    private long endDate;
+    // Local epoch days of startDate and endDate, computed on first use
+    private int startDay = NO_DAY;
+    private int endDay = NO_DAY;
     private int currentWeek;
     private int currentDay;
     private float progressPercentage;
     private String status; // Active, Completed, Paused, Cancelled
-    private Date lastActivityDate;
-    private Date createdAt;
-    private Date updatedAt;
+    private long lastActivityDate;
+    private long createdAt;
+    private long updatedAt;
     
     // Constructor
     public ProgramEnrollment() {
-        this.createdAt = new Date();
-        this.updatedAt = new Date();
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = createdAt;
         this.currentWeek = 1;
         this.currentDay = 1;
         this.progressPercentage = 0.0f;
         this.status = "Active";
     }
     
-    public ProgramEnrollment(long userId, long programId, Date startDate, Date endDate) {
+    public ProgramEnrollment(long userId, long programId, long startDate, long endDate) {
         this.userId = userId;
         this.programId = programId;
         this.startDate = startDate;
@@ -35,15 +42,15 @@ public class ProgramEnrollment {
         this.currentDay = 1;
         this.progressPercentage = 0.0f;
         this.status = "Active";
-        this.createdAt = new Date();
-        this.updatedAt = new Date();
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = createdAt;
     }
     
     // Calculate progress based on current week and total duration
     public void updateProgress(int totalWeeks) {
         if (totalWeeks > 0) {
             this.progressPercentage = ((float) currentWeek / totalWeeks) * 100;
-            this.updatedAt = new Date();
+            this.updatedAt = System.currentTimeMillis();
         }
     }
     
@@ -62,7 +69,7 @@ public class ProgramEnrollment {
     
     public void setUserId(long userId) {
         this.userId = userId;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
     public long getProgramId() {
@@ -71,25 +78,41 @@ public class ProgramEnrollment {
     
     public void setProgramId(long programId) {
         this.programId = programId;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
-    public Date getStartDate() {
+    public long getStartDate() {
         return startDate;
     }
     
-    public void setStartDate(Date startDate) {
+    public void setStartDate(long startDate) {
         this.startDate = startDate;
-        this.updatedAt = new Date();
+        this.startDay = NO_DAY;
+        this.updatedAt = System.currentTimeMillis();
+    }
+    
+    public int getStartDay() {
+        if (startDay == NO_DAY) {
+            startDay = EpochDay.fromMillis(startDate);
+        }
+        return startDay;
     }
     
-    public Date getEndDate() {
+    public long getEndDate() {
         return endDate;
     }
     
-    public void setEndDate(Date endDate) {
+    public void setEndDate(long endDate) {
         this.endDate = endDate;
-        this.updatedAt = new Date();
+        this.endDay = NO_DAY;
+        this.updatedAt = System.currentTimeMillis();
+    }
+    
+    public int getEndDay() {
+        if (endDay == NO_DAY) {
+            endDay = EpochDay.fromMillis(endDate);
+        }
+        return endDay;
     }
     
     public int getCurrentWeek() {
@@ -98,7 +121,7 @@ public class ProgramEnrollment {
     
     public void setCurrentWeek(int currentWeek) {
         this.currentWeek = currentWeek;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
     public int getCurrentDay() {
@@ -107,7 +130,7 @@ public class ProgramEnrollment {
     
     public void setCurrentDay(int currentDay) {
         this.currentDay = currentDay;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
     public float getProgressPercentage() {
@@ -116,7 +139,7 @@ public class ProgramEnrollment {
     
     public void setProgressPercentage(float progressPercentage) {
         this.progressPercentage = progressPercentage;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
     public String getStatus() {
@@ -125,23 +148,23 @@ public class ProgramEnrollment {
     
     public void setStatus(String status) {
         this.status = status;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
-    public Date getLastActivityDate() {
+    public long getLastActivityDate() {
         return lastActivityDate;
     }
     
-    public void setLastActivityDate(Date lastActivityDate) {
+    public void setLastActivityDate(long lastActivityDate) {
         this.lastActivityDate = lastActivityDate;
-        this.updatedAt = new Date();
+        this.updatedAt = System.currentTimeMillis();
     }
     
-    public Date getCreatedAt() {
+    public long getCreatedAt() {
         return createdAt;
     }
     
-    public Date getUpdatedAt() {
+    public long getUpdatedAt() {
         return updatedAt;
     }
 }
\ No newline at end of file
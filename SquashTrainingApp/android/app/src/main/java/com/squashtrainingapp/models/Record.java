@@ -1,12 +1,17 @@
 package com.squashtrainingapp.models;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import com.squashtrainingapp.utils.EpochDay;
+import com.squashtrainingapp.utils.ExerciseClassifier;
+import com.squashtrainingapp.utils.Timestamps;
 
 public class Record {
+    // Marks the cached epoch day as not yet computed
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
     private int id;
     private String exerciseName;
+    // Cached category of exerciseName; null until stored or classified
+    private String exerciseType;
     private int sets;
     private int reps;
     private int duration;
@@ -14,11 +19,14 @@ public class Record {
     private int condition;
     private int fatigue;
     private String memo;
-    private String date;
+    // When the workout happened; the date text is derived from it on demand
+    private long dateMillis;
+    // Local epoch day of dateMillis, as stored at insert time or computed on first use
+    private int epochDay = NO_DAY;
 
     // Constructors
     public Record() {
-        this.date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        this.dateMillis = System.currentTimeMillis();
     }
 
     public Record(String exerciseName, int sets, int reps, int duration,
@@ -39,7 +47,10 @@ public class Record {
     public void setId(int id) { this.id = id; }
 
     public String getExerciseName() { return exerciseName; }
-    public void setExerciseName(String exerciseName) { this.exerciseName = exerciseName; }
+    public void setExerciseName(String exerciseName) {
+        this.exerciseName = exerciseName;
+        this.exerciseType = null;
+    }
 
     public int getSets() { return sets; }
     public void setSets(int sets) { this.sets = sets; }
@@ -62,54 +73,49 @@ public class Record {
     public String getMemo() { return memo; }
     public void setMemo(String memo) { this.memo = memo; }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    // Local "yyyy-MM-dd HH:mm:ss"
+    public String getDate() { return Timestamps.formatLocal(dateMillis); }
+    public void setDate(String date) {
+        long millis = Timestamps.parseLocal(date);
+        if (millis == Timestamps.INVALID) {
+            throw new IllegalArgumentException("Unreadable date: " + date);
+        }
+        setDateMillis(millis);
+    }
+
+    public long getDateMillis() { return dateMillis; }
+    public void setDateMillis(long dateMillis) {
+        this.dateMillis = dateMillis;
+        this.epochDay = NO_DAY;
+    }
     
-    // Get date as timestamp
-    public long getDateAsTimestamp() {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
-            Date parsedDate = sdf.parse(date);
-            return parsedDate != null ? parsedDate.getTime() : System.currentTimeMillis();
-        } catch (Exception e) {
-            return System.currentTimeMillis();
+    // The day the record is counted under in daily_stats and the training load. Saved records
+    // carry the day they were inserted with, so a later time zone change does not move it.
+    public int getEpochDay() {
+        if (epochDay == NO_DAY) {
+            epochDay = EpochDay.fromMillis(dateMillis);
         }
+        return epochDay;
     }
+    // Setting the date clears the day, so a stored one goes after it
+    public void setEpochDay(int epochDay) { this.epochDay = epochDay; }
     
-    // Get exercise type (category)
+    // Categories outside ExerciseClassifier's keyword list: no keyword matched, or no name
+    public static final String TYPE_GENERAL = "General";
+    public static final String TYPE_OTHER = "Other";
+    
+    // Category (exercise type), as stored at insert time or classified from the name on first use
     public String getExerciseType() {
-        if (exerciseName == null) return "Other";
-        
-        String lowerName = exerciseName.toLowerCase();
-        if (lowerName.contains("drive") || lowerName.contains("straight")) {
-            return "Drives";
-        } else if (lowerName.contains("drop") || lowerName.contains("short")) {
-            return "Drop Shots";
-        } else if (lowerName.contains("volley")) {
-            return "Volleys";
-        } else if (lowerName.contains("serve") || lowerName.contains("service")) {
-            return "Serves";
-        } else if (lowerName.contains("boast") || lowerName.contains("angle")) {
-            return "Boasts";
-        } else if (lowerName.contains("drill") || lowerName.contains("practice")) {
-            return "Drills";
-        } else if (lowerName.contains("match") || lowerName.contains("game")) {
-            return "Matches";
-        } else {
-            return "General";
+        if (exerciseType == null) {
+            exerciseType = ExerciseClassifier.classify(exerciseName);
         }
+        return exerciseType;
     }
+    public void setExerciseType(String exerciseType) { this.exerciseType = exerciseType; }
 
     // Helper methods
     public String getFormattedDate() {
-        try {
-            if (date != null && date.length() >= 19) {
-                return date.substring(0, 19);
-            }
-        } catch (Exception e) {
-            // Return original date if formatting fails
-        }
-        return date;
+        return getDate();
     }
 
     public String getStatsString() {
@@ -126,6 +132,6 @@ public class Record {
     }
 
     public int getEstimatedCalories() {
-        return duration * 10; // Rough estimate: 10 cal/min
+        return duration * User.CALORIES_PER_MINUTE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.squashtrainingapp.models;
+
+public class SearchResult {
+
+    public enum Source {
+        RECORD,
+        EXERCISE,
+        PROGRAM
+    }
+
+    private Source source;
+    private long refId;
+    private String title;
+    private String snippet;
+    private double score;
+
+    public SearchResult(Source source, long refId, String title, String snippet, double score) {
+        this.source = source;
+        this.refId = refId;
+        this.title = title;
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    // Table the hit came from; refId is the row id in that table
+    public Source getSource() { return source; }
+    public long getRefId() { return refId; }
+
+    public String getTitle() { return title; }
+
+    // Matching text with the hits wrapped in [brackets]
+    public String getSnippet() { return snippet; }
+
+    // Higher is better; only meaningful within one result list
+    public double getScore() { return score; }
+}
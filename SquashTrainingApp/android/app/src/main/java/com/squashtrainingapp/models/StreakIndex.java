@@ -0,0 +1,66 @@
+package com.squashtrainingapp.models;
+
+import java.util.BitSet;
+
+/**
+ * Days with at least one workout, as a bitmap over local epoch days loaded from the
+ * activity_days table. The best streak is found once when the index is built; current streak
+ * and range counts scan at most one bit per day in range, 64 to a word.
+ *
+ * Shared through the query cache, so it never changes once built.
+ */
+public final class StreakIndex {
+    public static final StreakIndex EMPTY = new StreakIndex(0, new long[0]);
+
+    // Epoch day of bit 0
+    private final int baseDay;
+    private final BitSet days;
+    private final int bestStreak;
+
+    // words[i] holds the days of word (firstWord + i), lowest bit first
+    public StreakIndex(int firstWord, long[] words) {
+        this.baseDay = firstWord * 64;
+        this.days = BitSet.valueOf(words);
+        this.bestStreak = longestRun(days);
+    }
+
+    public boolean isActive(int epochDay) {
+        int index = epochDay - baseDay;
+        return index >= 0 && days.get(index);
+    }
+
+    // Consecutive active days ending today, or ending yesterday while today has no workout yet
+    public int currentStreak(int today) {
+        int end = isActive(today) ? today : isActive(today - 1) ? today - 1 : Integer.MIN_VALUE;
+        if (end == Integer.MIN_VALUE) return 0;
+
+        int index = end - baseDay;
+        // -1 when the run reaches back to bit 0
+        return index - days.previousClearBit(index);
+    }
+
+    public int bestStreak() {
+        return bestStreak;
+    }
+
+    // Active days between the two days, inclusive
+    public int activeDays(int startDay, int endDay) {
+        int from = Math.max(startDay - baseDay, 0);
+        int to = Math.min(endDay - baseDay + 1, days.length());
+        return from < to ? days.get(from, to).cardinality() : 0;
+    }
+
+    public int totalActiveDays() {
+        return days.cardinality();
+    }
+
+    private static int longestRun(BitSet days) {
+        int best = 0;
+        for (int start = days.nextSetBit(0); start >= 0; ) {
+            int end = days.nextClearBit(start);
+            best = Math.max(best, end - start);
+            start = days.nextSetBit(end);
+        }
+        return best;
+    }
+}
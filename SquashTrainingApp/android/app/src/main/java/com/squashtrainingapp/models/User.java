@@ -1,6 +1,10 @@
 package com.squashtrainingapp.models;
 
 public class User {
+    public static final int XP_PER_SESSION = 50;
+    public static final int XP_PER_LEVEL = 1000;
+    public static final int CALORIES_PER_MINUTE = 10; // Rough estimate
+
     private int id;
     private String name;
     private int level;
@@ -63,18 +67,18 @@ public class User {
     public void addSession(int duration) {
         totalSessions++;
         totalHours += duration / 60.0f;
-        totalCalories += duration * 10; // Rough estimate: 10 cal/min
-        experience += 50; // 50 XP per session
+        totalCalories += duration * CALORIES_PER_MINUTE;
+        experience += XP_PER_SESSION;
         
         // Check for level up
-        if (experience >= 1000) {
+        if (experience >= XP_PER_LEVEL) {
             level++;
-            experience -= 1000;
+            experience -= XP_PER_LEVEL;
         }
     }
 
     public int getNextLevelXP() {
-        return 1000;
+        return XP_PER_LEVEL;
     }
 
     public int getCurrentLevelProgress() {
@@ -82,6 +86,6 @@ public class User {
     }
 
     public float getLevelProgressPercentage() {
-        return (experience / 1000.0f) * 100;
+        return (experience / (float) XP_PER_LEVEL) * 100;
     }
 }
\ No newline at end of file
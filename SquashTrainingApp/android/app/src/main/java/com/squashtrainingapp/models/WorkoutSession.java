@@ -1,12 +1,19 @@
 package com.squashtrainingapp.models;
 
+import com.squashtrainingapp.utils.EpochDay;
 import java.util.Date;
 
 public class WorkoutSession {
+    // Marks the cached epoch day as not yet computed
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    
     private long id;
     private long programId;
     private String sessionName;
-    private Date scheduledDate;
+    // Epoch millis
+    private long scheduledDate;
+    // Local epoch day of scheduledDate, computed on first use
+    private int scheduledDay = NO_DAY;
     private int durationMinutes;
     private String status; // scheduled, completed, cancelled
     private String notes;
@@ -21,7 +28,7 @@ public class WorkoutSession {
     }
     
     // Constructor with parameters
-    public WorkoutSession(long programId, String sessionName, Date scheduledDate, int durationMinutes) {
+    public WorkoutSession(long programId, String sessionName, long scheduledDate, int durationMinutes) {
         this();
         this.programId = programId;
         this.sessionName = sessionName;
@@ -54,12 +61,20 @@ public class WorkoutSession {
         this.sessionName = sessionName;
     }
     
-    public Date getScheduledDate() {
+    public long getScheduledDate() {
         return scheduledDate;
     }
     
-    public void setScheduledDate(Date scheduledDate) {
+    public void setScheduledDate(long scheduledDate) {
         this.scheduledDate = scheduledDate;
+        this.scheduledDay = NO_DAY;
+    }
+    
+    public int getScheduledDay() {
+        if (scheduledDay == NO_DAY) {
+            scheduledDay = EpochDay.fromMillis(scheduledDate);
+        }
+        return scheduledDay;
     }
     
     public int getDurationMinutes() {
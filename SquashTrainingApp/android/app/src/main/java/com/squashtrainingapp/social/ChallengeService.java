@@ -10,6 +10,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
+import com.squashtrainingapp.sync.WriteBehindQueue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,6 +23,7 @@ public class ChallengeService {
     private Context context;
     private FirebaseFirestore db;
     private FirebaseAuthManager authManager;
+    private WriteBehindQueue writeQueue;
     
     // Challenge types
     public enum ChallengeType {
@@ -57,6 +59,7 @@ public class ChallengeService {
         this.context = context;
         this.db = FirebaseFirestore.getInstance();
         this.authManager = FirebaseAuthManager.getInstance(context);
+        this.writeQueue = WriteBehindQueue.getInstance(context);
     }
     
     // Get available challenges
@@ -228,27 +231,17 @@ public class ChallengeService {
                                         awardPoints(userId, rewardPoints);
                                         
                                         // Update progress
-                                        db.collection("userChallenges").document(docId)
-                                                .update(updates)
-                                                .addOnSuccessListener(aVoid -> {
-                                                    callback.onSuccess("Challenge completed! You earned " + rewardPoints + " points!");
-                                                })
-                                                .addOnFailureListener(e -> {
-                                                    Log.e(TAG, "Failed to update progress", e);
-                                                    callback.onError("Failed to update progress");
-                                                });
+                                        writeQueue.update("userChallenges", docId, updates);
+                                        callback.onSuccess("Challenge completed! You earned " + rewardPoints + " points!");
                                     } else {
-                                        // Update progress
-                                        db.collection("userChallenges").document(docId)
-                                                .update(updates)
-                                                .addOnSuccessListener(aVoid -> {
-                                                    callback.onSuccess("Progress updated: " + progress + "/" + targetValue);
-                                                })
-                                                .addOnFailureListener(e -> {
-                                                    Log.e(TAG, "Failed to update progress", e);
-                                                    callback.onError("Failed to update progress");
-                                                });
+                                        // Update progress; queued, so frequent ticks fold into one write
+                                        writeQueue.update("userChallenges", docId, updates);
+                                        callback.onSuccess("Progress updated: " + progress + "/" + targetValue);
                                     }
+                                })
+                                .addOnFailureListener(e -> {
+                                    Log.e(TAG, "Failed to load challenge", e);
+                                    callback.onError("Failed to update progress");
                                 });
                     } else {
                         callback.onError("Challenge not found");
@@ -352,16 +345,18 @@ public class ChallengeService {
     }
     
     private void incrementParticipants(String challengeId) {
-        db.collection("challenges").document(challengeId)
-                .update("participantCount", com.google.firebase.firestore.FieldValue.increment(1));
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("participantCount", WriteBehindQueue.increment(1));
+        
+        writeQueue.update("challenges", challengeId, updates);
     }
     
     private void awardPoints(String userId, int points) {
         Map<String, Object> updates = new HashMap<>();
-        updates.put("points", com.google.firebase.firestore.FieldValue.increment(points));
-        updates.put("challengeWins", com.google.firebase.firestore.FieldValue.increment(1));
+        updates.put("points", WriteBehindQueue.increment(points));
+        updates.put("challengeWins", WriteBehindQueue.increment(1));
         
-        db.collection("users").document(userId).update(updates);
+        writeQueue.update("users", userId, updates);
     }
     
     // Challenge model
@@ -10,6 +10,7 @@ import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
 import com.squashtrainingapp.models.User;
+import com.squashtrainingapp.sync.WriteBehindQueue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -22,6 +23,7 @@ public class LeaderboardService {
     private Context context;
     private FirebaseFirestore db;
     private FirebaseAuthManager authManager;
+    private WriteBehindQueue writeQueue;
     
     // Leaderboard types
     public enum LeaderboardType {
@@ -50,6 +52,7 @@ public class LeaderboardService {
         this.context = context;
         this.db = FirebaseFirestore.getInstance();
         this.authManager = FirebaseAuthManager.getInstance(context);
+        this.writeQueue = WriteBehindQueue.getInstance(context);
     }
     
     // Get global leaderboard
@@ -163,14 +166,12 @@ public class LeaderboardService {
                 .addOnFailureListener(e -> callback.onComplete(null));
     }
     
-    // Update user's leaderboard stats
+    // Update user's leaderboard stats. Queued, so back-to-back updates reach Firestore as one write
     public void updateUserStats(String userId, Map<String, Object> updates) {
         // Add timestamp for period-based queries
         updates.put("lastUpdated", System.currentTimeMillis());
         
-        db.collection("users").document(userId)
-                .update(updates)
-                .addOnFailureListener(e -> Log.e(TAG, "Failed to update user stats", e));
+        writeQueue.update("users", userId, updates);
     }
     
     // Submit a new score/achievement
@@ -0,0 +1,509 @@
+package com.squashtrainingapp.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.squashtrainingapp.api.config.NetworkStateManager;
+import com.squashtrainingapp.database.DatabaseExecutor;
+import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.dao.PendingWriteDao;
+import com.squashtrainingapp.models.PendingWrite;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Write-behind queue for Firestore documents. Mutations are stored in pending_writes and return
+ * at once; repeated mutations of the same document fold into one row, and the rows are committed
+ * in WriteBatches a short while later. Failed commits, including permission errors, are retried
+ * with exponential backoff; batches the server rejects as invalid are halved until the offending
+ * write is found and dropped.
+ *
+ * Field maps hold strings, numbers, booleans, null, nested maps and lists, and increment()
+ * markers in place of FieldValue.increment. Keys are top-level field names. A commit that reaches
+ * the server but whose result is lost (process death, dropped connection) is sent again, so
+ * increments are delivered at least once.
+ */
+public class WriteBehindQueue {
+    private static final String TAG = "WriteBehindQueue";
+
+    // Firestore's limit on writes per batch
+    public static final int MAX_BATCH_SIZE = 500;
+
+    // How long new writes wait so that bursts share a batch and fold into each other
+    private static final long BATCH_DELAY_MILLIS = 2000;
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    // JSON key that marks an increment in the stored field map
+    private static final String INCREMENT_KEY = "$increment";
+
+    private static WriteBehindQueue instance;
+
+    private final DatabaseHelper dbHelper;
+    private final FirebaseFirestore firestore;
+    private final NetworkStateManager network;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final Runnable flushTask = () -> DatabaseExecutor.writes().execute(this::flush);
+
+    // Touched only on the database writer thread
+    private boolean flushScheduled;
+    // Bumped by a database restore; commits started before it are ignored when they complete
+    private int generation;
+    private boolean committing;
+    // Rows up to this id are part of the batch being committed; 0 when nothing is
+    private long inFlightThrough;
+    private int batchLimit = MAX_BATCH_SIZE;
+    private int consecutiveFailures;
+
+    // Metrics, read from any thread
+    private volatile int queueDepth;
+    private volatile long lastFlushLatencyMillis;
+    private volatile long totalFlushLatencyMillis;
+    private volatile long committedBatches;
+    private volatile long flushedWrites;
+    private volatile long failedFlushes;
+    private volatile long droppedWrites;
+
+    // Placeholder for FieldValue.increment, which cannot be stored
+    public static final class Increment {
+        final Number amount;
+
+        Increment(Number amount) {
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Point-in-time view of the queue. Latencies are from commit to server acknowledgement.
+     */
+    public static final class Metrics {
+        private final int queueDepth;
+        private final boolean flushing;
+        private final long lastFlushLatencyMillis;
+        private final long averageFlushLatencyMillis;
+        private final long flushedWrites;
+        private final long failedFlushes;
+        private final long droppedWrites;
+
+        Metrics(int queueDepth, boolean flushing, long lastFlushLatencyMillis, long averageFlushLatencyMillis,
+                long flushedWrites, long failedFlushes, long droppedWrites) {
+            this.queueDepth = queueDepth;
+            this.flushing = flushing;
+            this.lastFlushLatencyMillis = lastFlushLatencyMillis;
+            this.averageFlushLatencyMillis = averageFlushLatencyMillis;
+            this.flushedWrites = flushedWrites;
+            this.failedFlushes = failedFlushes;
+            this.droppedWrites = droppedWrites;
+        }
+
+        // Rows waiting in pending_writes, including any being committed
+        public int getQueueDepth() { return queueDepth; }
+        public boolean isFlushing() { return flushing; }
+        public long getLastFlushLatencyMillis() { return lastFlushLatencyMillis; }
+        public long getAverageFlushLatencyMillis() { return averageFlushLatencyMillis; }
+        public long getFlushedWrites() { return flushedWrites; }
+        public long getFailedFlushes() { return failedFlushes; }
+        // Writes the server rejected as invalid, plus rows that could not be read back
+        public long getDroppedWrites() { return droppedWrites; }
+
+        @Override
+        public String toString() {
+            return "depth=" + queueDepth + " flushing=" + flushing +
+                    " lastLatency=" + lastFlushLatencyMillis + "ms avgLatency=" + averageFlushLatencyMillis +
+                    "ms flushed=" + flushedWrites + " failed=" + failedFlushes + " dropped=" + droppedWrites;
+        }
+    }
+
+    public static synchronized WriteBehindQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new WriteBehindQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WriteBehindQueue(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+        firestore = FirebaseFirestore.getInstance();
+        network = NetworkStateManager.getInstance(context);
+
+        dbHelper.addRestoredListener(this::onRestored);
+
+        // Rows left by an earlier process go out as soon as the app starts
+        DatabaseExecutor.writes().execute(() -> {
+            queueDepth = dao().getCount();
+            if (queueDepth > 0) {
+                scheduleFlush(BATCH_DELAY_MILLIS);
+            }
+        });
+        mainHandler.post(() -> network.getNetworkState().observeForever(connected -> {
+            if (Boolean.TRUE.equals(connected)) {
+                DatabaseExecutor.writes().execute(this::onReconnected);
+            }
+        }));
+    }
+
+    public static Object increment(long amount) {
+        return new Increment(amount);
+    }
+
+    public static Object increment(double amount) {
+        return new Increment(amount);
+    }
+
+    // Overwrite the document
+    public void set(String collection, String documentId, Map<String, Object> fields) {
+        enqueue(collection + "/" + documentId, PendingWrite.OP_SET, fields);
+    }
+
+    // Set the given fields, creating the document if needed
+    public void merge(String collection, String documentId, Map<String, Object> fields) {
+        enqueue(collection + "/" + documentId, PendingWrite.OP_MERGE, fields);
+    }
+
+    // Update fields of an existing document; the write is dropped if the document does not exist
+    public void update(String collection, String documentId, Map<String, Object> fields) {
+        enqueue(collection + "/" + documentId, PendingWrite.OP_UPDATE, fields);
+    }
+
+    // New document with a generated id, like CollectionReference.add. The id is known right away.
+    public String add(String collection, Map<String, Object> fields) {
+        String documentId = firestore.collection(collection).document().getId();
+        set(collection, documentId, fields);
+        return documentId;
+    }
+
+    // Commit whatever is queued without waiting out the batching delay or a backoff
+    public void flushNow() {
+        DatabaseExecutor.writes().execute(() -> {
+            consecutiveFailures = 0;
+            scheduleFlush(0);
+        });
+    }
+
+    public Metrics getMetrics() {
+        long batches = committedBatches;
+        return new Metrics(queueDepth, inFlightThrough != 0, lastFlushLatencyMillis,
+                batches == 0 ? 0 : totalFlushLatencyMillis / batches,
+                flushedWrites, failedFlushes, droppedWrites);
+    }
+
+    private PendingWriteDao dao() {
+        return dbHelper.getPendingWriteDao();
+    }
+
+    private void enqueue(String path, String op, Map<String, Object> fields) {
+        // Encode now: callers may reuse the map, and unsupported values should fail at the call site
+        JSONObject encoded = encodeMap(fields);
+        DatabaseExecutor.writes().execute(() -> {
+            try {
+                PendingWriteDao dao = dao();
+                PendingWrite latest = dao.getLatest(path);
+                if (latest != null && latest.getId() > inFlightThrough) {
+                    JSONObject current = new JSONObject(latest.getFields());
+                    latest.setOp(combineOps(latest.getOp(), op));
+                    latest.setFields(PendingWrite.OP_SET.equals(op)
+                            ? encoded.toString() : combineFields(current, encoded).toString());
+                    dao.update(latest);
+                } else {
+                    dao.insert(new PendingWrite(path, op, encoded.toString()));
+                    queueDepth++;
+                }
+            } catch (JSONException e) {
+                // The stored row was unreadable; keep the new write on its own
+                Log.w(TAG, "Unreadable pending write for " + path, e);
+                dao().insert(new PendingWrite(path, op, encoded.toString()));
+                queueDepth++;
+            }
+            if (consecutiveFailures == 0) {
+                scheduleFlush(BATCH_DELAY_MILLIS);
+            }
+        });
+    }
+
+    // A set replaces what came before; otherwise a set or merge underneath keeps the document's
+    // create-if-missing behaviour
+    private static String combineOps(String previous, String next) {
+        if (PendingWrite.OP_SET.equals(next) || PendingWrite.OP_SET.equals(previous)) {
+            return PendingWrite.OP_SET;
+        }
+        if (PendingWrite.OP_MERGE.equals(previous) || PendingWrite.OP_MERGE.equals(next)) {
+            return PendingWrite.OP_MERGE;
+        }
+        return PendingWrite.OP_UPDATE;
+    }
+
+    // Later values win; increments add to the increment or number they follow
+    private static JSONObject combineFields(JSONObject previous, JSONObject next) throws JSONException {
+        Iterator<String> keys = next.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = next.get(key);
+            Number amount = incrementAmount(value);
+            Object before = previous.opt(key);
+            if (amount != null && before != null) {
+                Number beforeAmount = incrementAmount(before);
+                if (beforeAmount != null) {
+                    value = encodeIncrement(add(beforeAmount, amount));
+                } else if (before instanceof Number) {
+                    value = add((Number) before, amount);
+                }
+            }
+            previous.put(key, value);
+        }
+        return previous;
+    }
+
+    private static Number add(Number a, Number b) {
+        boolean integral = !(a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float);
+        return integral ? (Number) (a.longValue() + b.longValue()) : (Number) (a.doubleValue() + b.doubleValue());
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (flushScheduled && delayMillis > 0) return;
+        flushScheduled = true;
+        mainHandler.removeCallbacks(flushTask);
+        mainHandler.postDelayed(flushTask, delayMillis);
+    }
+
+    private void onReconnected() {
+        if (queueDepth > 0 && !committing) {
+            consecutiveFailures = 0;
+            scheduleFlush(0);
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        if (committing) return;
+        if (!network.isConnected()) {
+            // Retried on reconnect; the SDK would only park the batch in its own offline queue
+            return;
+        }
+
+        PendingWriteDao dao = dao();
+        List<PendingWrite> writes = dao.getOldest(batchLimit);
+        queueDepth = dao.getCount();
+        if (writes.isEmpty()) return;
+
+        WriteBatch batch = firestore.batch();
+        List<PendingWrite> unreadable = new ArrayList<>();
+        int count = 0;
+        for (PendingWrite write : writes) {
+            try {
+                addToBatch(batch, write);
+                count++;
+            } catch (JSONException | IllegalArgumentException e) {
+                Log.e(TAG, "Dropping unreadable pending write for " + write.getPath(), e);
+                unreadable.add(write);
+            }
+        }
+        if (!unreadable.isEmpty()) {
+            dao.delete(unreadable);
+            droppedWrites += unreadable.size();
+            queueDepth -= unreadable.size();
+            writes.removeAll(unreadable);
+        }
+        if (count == 0) {
+            scheduleFlush(0);
+            return;
+        }
+
+        committing = true;
+        inFlightThrough = writes.get(writes.size() - 1).getId();
+        long started = SystemClock.elapsedRealtime();
+        int committedGeneration = generation;
+        batch.commit().addOnCompleteListener(DatabaseExecutor.writes(), task -> {
+            if (committedGeneration == generation) {
+                onCommitted(writes, started, task);
+            }
+        });
+    }
+
+    // The restore emptied pending_writes, and its restored sqlite_sequence can hand out the ids of
+    // rows already sent. Forget the batch in flight, so its completion cannot delete new rows that
+    // reuse those ids, and start counting again from the restored table.
+    private void onRestored() {
+        generation++;
+        committing = false;
+        inFlightThrough = 0;
+        batchLimit = MAX_BATCH_SIZE;
+        consecutiveFailures = 0;
+        queueDepth = dao().getCount();
+    }
+
+    private void onCommitted(List<PendingWrite> writes, long started, Task<Void> task) {
+        committing = false;
+        inFlightThrough = 0;
+
+        if (task.isSuccessful()) {
+            long latency = SystemClock.elapsedRealtime() - started;
+            dao().delete(writes);
+            queueDepth = Math.max(0, queueDepth - writes.size());
+            lastFlushLatencyMillis = latency;
+            totalFlushLatencyMillis += latency;
+            committedBatches++;
+            flushedWrites += writes.size();
+            consecutiveFailures = 0;
+            batchLimit = Math.min(MAX_BATCH_SIZE, batchLimit * 2);
+            if (queueDepth > 0) {
+                scheduleFlush(0);
+            }
+            return;
+        }
+
+        failedFlushes++;
+        Exception e = task.getException();
+        if (isPermanent(e)) {
+            if (writes.size() == 1) {
+                Log.e(TAG, "Dropping rejected write to " + writes.get(0).getPath(), e);
+                dao().delete(writes);
+                queueDepth = Math.max(0, queueDepth - 1);
+                droppedWrites++;
+            } else {
+                // One bad write fails the whole batch; halve until it is isolated
+                batchLimit = Math.max(1, writes.size() / 2);
+            }
+            scheduleFlush(0);
+            return;
+        }
+
+        consecutiveFailures++;
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 20));
+        // Full jitter over the upper half keeps many clients from retrying in step
+        long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+        Log.w(TAG, "Flush failed, retrying in " + delay + "ms", e);
+        scheduleFlush(delay);
+    }
+
+    // Errors that retrying the same writes cannot fix. PERMISSION_DENIED is not one of them: an
+    // expired session or a security rules rollout clears up, and the callers were already told
+    // their writes succeeded, so those are retried with backoff like any other failure.
+    private static boolean isPermanent(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case INVALID_ARGUMENT:
+            case NOT_FOUND:
+            case ALREADY_EXISTS:
+            case FAILED_PRECONDITION:
+            case OUT_OF_RANGE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void addToBatch(WriteBatch batch, PendingWrite write) throws JSONException {
+        DocumentReference document = firestore.document(write.getPath());
+        Map<String, Object> fields = decodeMap(new JSONObject(write.getFields()));
+        switch (write.getOp()) {
+            case PendingWrite.OP_SET:
+                batch.set(document, fields);
+                break;
+            case PendingWrite.OP_MERGE:
+                batch.set(document, fields, SetOptions.merge());
+                break;
+            case PendingWrite.OP_UPDATE:
+                batch.update(document, fields);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown op " + write.getOp());
+        }
+    }
+
+    // Encoding between field maps and the stored JSON
+
+    private static JSONObject encodeMap(Map<?, ?> map) {
+        JSONObject json = new JSONObject();
+        try {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                json.put(String.valueOf(entry.getKey()), encodeValue(entry.getValue()));
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Cannot queue field value", e);
+        }
+        return json;
+    }
+
+    private static Object encodeValue(Object value) throws JSONException {
+        if (value == null) return JSONObject.NULL;
+        if (value instanceof Increment) return encodeIncrement(((Increment) value).amount);
+        if (value instanceof String || value instanceof Boolean) return value;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float || value instanceof Double) return ((Number) value).doubleValue();
+        if (value instanceof Map) return encodeMap((Map<?, ?>) value);
+        if (value instanceof List) {
+            JSONArray array = new JSONArray();
+            for (Object item : (List<?>) value) {
+                array.put(encodeValue(item));
+            }
+            return array;
+        }
+        throw new IllegalArgumentException("Unsupported field value " + value.getClass().getName() +
+                "; use WriteBehindQueue.increment instead of FieldValue");
+    }
+
+    private static JSONObject encodeIncrement(Number amount) throws JSONException {
+        return new JSONObject().put(INCREMENT_KEY, amount);
+    }
+
+    // Amount of a stored increment marker, or null for any other value
+    private static Number incrementAmount(Object value) {
+        if (!(value instanceof JSONObject)) return null;
+        JSONObject json = (JSONObject) value;
+        Object amount = json.opt(INCREMENT_KEY);
+        return json.length() == 1 && amount instanceof Number ? (Number) amount : null;
+    }
+
+    private static Map<String, Object> decodeMap(JSONObject json) throws JSONException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, decodeValue(json.get(key)));
+        }
+        return map;
+    }
+
+    private static Object decodeValue(Object value) throws JSONException {
+        if (value == JSONObject.NULL) return null;
+        if (value instanceof JSONObject) {
+            Number amount = incrementAmount(value);
+            if (amount == null) return decodeMap((JSONObject) value);
+            if (amount instanceof Double || amount instanceof Float) {
+                return FieldValue.increment(amount.doubleValue());
+            }
+            return FieldValue.increment(amount.longValue());
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                list.add(decodeValue(array.get(i)));
+            }
+            return list;
+        }
+        return value;
+    }
+}
@@ -20,8 +20,6 @@ import com.github.mikephil.charting.charts.PieChart;
 import com.github.mikephil.charting.charts.RadarChart;
 import com.github.mikephil.charting.components.Legend;
 import com.github.mikephil.charting.components.XAxis;
-import com.github.mikephil.charting.data.Entry;
-import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
@@ -37,6 +35,7 @@ import com.squashtrainingapp.R;
 import com.squashtrainingapp.analytics.AnalyticsService;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
 import com.squashtrainingapp.ui.adapters.InsightsAdapter;
+import com.squashtrainingapp.ui.charts.LineChartDownsampler;
 import com.squashtrainingapp.ui.dialogs.PremiumFeatureDialog;
 
 import java.util.ArrayList;
@@ -60,6 +59,7 @@ public class AnalyticsDashboardActivity extends AppCompatActivity {
     private LineChart performanceChart;
     private PieChart fitnessChart;
     private RadarChart skillRadarChart;
+    private LineChartDownsampler performanceSampler;
     
     // Text views
     private TextView performanceTrendText;
@@ -243,6 +243,7 @@ public class AnalyticsDashboardActivity extends AppCompatActivity {
         performanceChart.setScaleEnabled(true);
         performanceChart.setPinchZoom(true);
         performanceChart.setDrawGridBackground(false);
+        performanceSampler = LineChartDownsampler.attach(performanceChart);
         
         XAxis xAxis = performanceChart.getXAxis();
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
@@ -275,6 +276,11 @@ public class AnalyticsDashboardActivity extends AppCompatActivity {
                 runOnUiThread(() -> {
                     progressBar.setVisibility(View.GONE);
                     updateUI(data);
+                    // Sources that missed the deadline or failed are left at their defaults
+                    if (!data.isComplete()) {
+                        Toast.makeText(AnalyticsDashboardActivity.this,
+                                "일부 데이터를 불러오지 못했습니다", Toast.LENGTH_SHORT).show();
+                    }
                 });
             }
             
@@ -338,16 +344,17 @@ public class AnalyticsDashboardActivity extends AppCompatActivity {
     }
     
     private void updatePerformanceChart(AnalyticsService.PerformanceMetrics metrics) {
-        List<Entry> entries = new ArrayList<>();
-        
         // Mock data for demonstration
-        entries.add(new Entry(1, metrics.averageShotAccuracy));
-        entries.add(new Entry(2, metrics.averagePowerRating));
-        entries.add(new Entry(3, metrics.averageSpeedRating));
-        entries.add(new Entry(4, metrics.averageRallyLength));
-        entries.add(new Entry(5, metrics.courtCoveragePercent));
-        
-        LineDataSet dataSet = new LineDataSet(entries, "성능 지표");
+        float[] x = { 1, 2, 3, 4, 5 };
+        float[] y = {
+            metrics.averageShotAccuracy,
+            metrics.averagePowerRating,
+            metrics.averageSpeedRating,
+            metrics.averageRallyLength,
+            metrics.courtCoveragePercent
+        };
+        
+        LineDataSet dataSet = new LineDataSet(new ArrayList<>(), "성능 지표");
         dataSet.setColor(Color.BLUE);
         dataSet.setValueTextColor(Color.BLACK);
         dataSet.setLineWidth(2f);
@@ -356,9 +363,8 @@ public class AnalyticsDashboardActivity extends AppCompatActivity {
         dataSet.setFillColor(Color.BLUE);
         dataSet.setFillAlpha(50);
         
-        LineData lineData = new LineData(dataSet);
-        performanceChart.setData(lineData);
-        performanceChart.invalidate();
+        // Longer metric histories are downsampled to the screen width and re-sampled on zoom
+        performanceSampler.setSeries(dataSet, x, y, x.length);
     }
     
     private void updateFitnessChart(AnalyticsService.FitnessStats stats) {
@@ -1,7 +1,7 @@
 package com.squashtrainingapp.ui.activities;
 
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.Exercise;
 import com.squashtrainingapp.ui.adapters.ExerciseAdapter;
 
@@ -14,6 +14,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
 import java.util.List;
 import androidx.appcompat.app.AppCompatActivity;
 
@@ -21,7 +22,7 @@ public class ChecklistActivity extends AppCompatActivity {
     
     private RecyclerView recyclerView;
     private ExerciseAdapter adapter;
-    private DatabaseHelper databaseHelper;
+    private TrainingRepository repository;
     private List<Exercise> exercises;
     
     @Override
@@ -29,7 +30,7 @@ public class ChecklistActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_checklist);
         
-        databaseHelper = DatabaseHelper.getInstance(this);
+        repository = TrainingRepository.getInstance(this);
         
         recyclerView = findViewById(R.id.exercise_recycler_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -38,13 +39,21 @@ public class ChecklistActivity extends AppCompatActivity {
     }
     
     private void loadExercises() {
-        exercises = databaseHelper.getExerciseDao().getAllExercises();
-        
-        // If no exercises, add default daily workout
-        if (exercises.isEmpty()) {
-            addDefaultExercises();
-            exercises = databaseHelper.getExerciseDao().getAllExercises();
-        }
+        TrainingRepository.asLiveData(repository.getAllExercises()).observe(this, loaded -> {
+            if (loaded == null) return;
+            
+            // If no exercises, add default daily workout
+            if (loaded.isEmpty()) {
+                addDefaultExercises();
+            } else {
+                showExercises(loaded);
+            }
+        });
+    }
+    
+    private void showExercises(List<Exercise> loaded) {
+        if (loaded == null) return;
+        exercises = new ArrayList<>(loaded);
         
         // Update progress
         updateProgress();
@@ -66,14 +75,18 @@ public class ChecklistActivity extends AppCompatActivity {
             {"쿨다운 스트레칭", "Recovery", "10분간 전신 스트레칭"}
         };
         
+        List<Exercise> defaults = new ArrayList<>();
         for (String[] ex : defaultExercises) {
             Exercise exercise = new Exercise();
             exercise.setName(ex[0]);
             exercise.setCategory(ex[1]);
             exercise.setDescription(ex[2]);
             exercise.setChecked(false);
-            databaseHelper.getExerciseDao().insert(exercise);
+            defaults.add(exercise);
         }
+        TrainingRepository.asLiveData(repository.insertExercises(defaults)
+                .thenCompose(count -> repository.getAllExercises()))
+            .observe(this, this::showExercises);
         
         Toast.makeText(this, "일일 운동 체크리스트가 준비되었습니다!", Toast.LENGTH_SHORT).show();
     }
@@ -109,7 +122,7 @@ public class ChecklistActivity extends AppCompatActivity {
             
             holder.checkbox.setOnCheckedChangeListener((buttonView, isChecked) -> {
                 exercise.setChecked(isChecked);
-                databaseHelper.getExerciseDao().updateCheckedStatus(exercise.getId(), isChecked);
+                repository.setExerciseChecked(exercise.getId(), isChecked);
                 
                 if (isChecked) {
                     Toast.makeText(ChecklistActivity.this, 
@@ -1,15 +1,20 @@
 package com.squashtrainingapp.ui.activities;
 
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.DatabaseExecutor;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.Record;
 import com.squashtrainingapp.models.Exercise;
+import com.squashtrainingapp.utils.ExerciseClassifier;
 
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
@@ -17,43 +22,150 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
 public class HistoryActivity extends AppCompatActivity {
     
+    private static final int PAGE_SIZE = 30;
+    // Start loading the next page when this many rows remain below the last visible one
+    private static final int PREFETCH_DISTANCE = 10;
+    private static final String FILTER_ALL = "All";
+    
     private RecyclerView recyclerView;
     private RecordAdapter adapter;
-    private DatabaseHelper databaseHelper;
-    private List<Record> records;
+    private TrainingRepository repository;
+    private final List<Record> records = new ArrayList<>();
     private TextView emptyText;
     
+    // Paging state
+    private String exerciseTypeFilter;
+    private boolean loadingPage;
+    private boolean reachedEnd;
+    private boolean loadFailed;
+    private int pageGeneration;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_history);
         
-        databaseHelper = DatabaseHelper.getInstance(this);
+        repository = TrainingRepository.getInstance(this);
         
         recyclerView = findViewById(R.id.history_recycler);
         emptyText = findViewById(R.id.empty_text);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Only clickable while it reports a failed load
+        emptyText.setOnClickListener(v -> loadNextPage());
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        adapter = new RecordAdapter();
+        recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView view, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= records.size() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
         
+        setupFilterSpinner();
         loadRecords();
     }
     
+    private void setupFilterSpinner() {
+        Spinner filterSpinner = findViewById(R.id.history_filter_spinner);
+        List<String> filters = new ArrayList<>();
+        filters.add(FILTER_ALL);
+        filters.addAll(ExerciseClassifier.categories());
+        filters.add(Record.TYPE_GENERAL);
+        
+        ArrayAdapter<String> filterAdapter = new ArrayAdapter<>(
+            this, android.R.layout.simple_spinner_item, filters);
+        filterAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        filterSpinner.setAdapter(filterAdapter);
+        filterSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                String selected = position == 0 ? null : filters.get(position);
+                boolean changed = selected == null ? exerciseTypeFilter != null : !selected.equals(exerciseTypeFilter);
+                if (changed) {
+                    exerciseTypeFilter = selected;
+                    loadRecords();
+                }
+            }
+            
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
+    
+    // Reset paging and load the first page for the current filter
     private void loadRecords() {
-        records = databaseHelper.getRecordDao().getAllRecords();
+        pageGeneration++;
+        records.clear();
+        adapter.notifyDataSetChanged();
+        loadingPage = false;
+        loadFailed = false;
+        reachedEnd = false;
+        loadNextPage();
+    }
+    
+    private void loadNextPage() {
+        if (loadingPage || reachedEnd) return;
+        loadingPage = true;
+        
+        final int generation = pageGeneration;
+        final String filter = exerciseTypeFilter;
+        final long beforeDateMillis;
+        final long beforeId;
+        if (records.isEmpty()) {
+            beforeDateMillis = Long.MAX_VALUE;
+            beforeId = Long.MAX_VALUE;
+        } else {
+            Record last = records.get(records.size() - 1);
+            beforeDateMillis = last.getDateMillis();
+            beforeId = last.getId();
+        }
         
+        repository.getRecordsPage(beforeDateMillis, beforeId, PAGE_SIZE, filter)
+            .whenCompleteAsync((page, error) -> onPageLoaded(generation, page, error),
+                DatabaseExecutor.mainThread());
+    }
+    
+    private void onPageLoaded(int generation, List<Record> page, Throwable error) {
+        // Drop pages requested before the filter changed
+        if (generation != pageGeneration || isDestroyed()) return;
+        
+        loadingPage = false;
+        if (error != null) {
+            // Scrolling or tapping the empty text asks for the page again
+            loadFailed = true;
+            Toast.makeText(this, R.string.history_load_failed, Toast.LENGTH_SHORT).show();
+            updateEmptyState();
+            return;
+        }
+        loadFailed = false;
+        reachedEnd = page.size() < PAGE_SIZE;
+        int start = records.size();
+        records.addAll(page);
+        adapter.notifyItemRangeInserted(start, page.size());
+        updateEmptyState();
+    }
+    
+    private void updateEmptyState() {
         if (records.isEmpty()) {
             recyclerView.setVisibility(View.GONE);
             emptyText.setVisibility(View.VISIBLE);
+            emptyText.setText(loadFailed ? R.string.history_load_retry : R.string.history_empty);
+            emptyText.setClickable(loadFailed);
         } else {
             recyclerView.setVisibility(View.VISIBLE);
             emptyText.setVisibility(View.GONE);
-            adapter = new RecordAdapter();
-            recyclerView.setAdapter(adapter);
         }
     }
     
@@ -107,7 +219,7 @@ public class HistoryActivity extends AppCompatActivity {
             
             // Delete button
             holder.deleteButton.setOnClickListener(v -> {
-                showDeleteConfirmation(record, position);
+                showDeleteConfirmation(record, holder.getAdapterPosition());
             });
         }
         
@@ -141,14 +253,16 @@ public class HistoryActivity extends AppCompatActivity {
             .setTitle("Delete Workout")
             .setMessage("Are you sure you want to delete this workout record?")
             .setPositiveButton("Delete", (dialog, which) -> {
-                databaseHelper.getRecordDao().delete(record.getId());
+                if (position == RecyclerView.NO_POSITION) return;
+                repository.deleteRecord(record.getId());
                 records.remove(position);
                 adapter.notifyItemRemoved(position);
                 Toast.makeText(this, "Workout deleted", Toast.LENGTH_SHORT).show();
                 
-                if (records.isEmpty()) {
-                    recyclerView.setVisibility(View.GONE);
-                    emptyText.setVisibility(View.VISIBLE);
+                if (records.isEmpty() && !reachedEnd) {
+                    loadNextPage();
+                } else {
+                    updateEmptyState();
                 }
             })
             .setNegativeButton("Cancel", null)
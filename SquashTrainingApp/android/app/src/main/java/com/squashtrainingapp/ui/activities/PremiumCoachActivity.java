@@ -22,7 +22,7 @@ import com.google.android.material.chip.ChipGroup;
 import com.squashtrainingapp.R;
 import com.squashtrainingapp.ai.GPT4CoachingService;
 import com.squashtrainingapp.auth.FirebaseAuthManager;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.WorkoutSession;
 import com.squashtrainingapp.ui.adapters.ChatMessageAdapter;
@@ -54,7 +54,7 @@ public class PremiumCoachActivity extends AppCompatActivity {
     // Services and data
     private GPT4CoachingService gpt4Service;
     private FirebaseAuthManager authManager;
-    private DatabaseHelper databaseHelper;
+    private TrainingRepository repository;
     private ChatMessageAdapter chatAdapter;
     private List<ChatMessage> messages;
     private User currentUser;
@@ -85,7 +85,7 @@ public class PremiumCoachActivity extends AppCompatActivity {
     
     private void initializeServices() {
         gpt4Service = new GPT4CoachingService(this);
-        databaseHelper = DatabaseHelper.getInstance(this);
+        repository = TrainingRepository.getInstance(this);
         messages = new ArrayList<>();
     }
     
@@ -205,7 +205,9 @@ public class PremiumCoachActivity extends AppCompatActivity {
     }
     
     private void loadUserData() {
-        currentUser = databaseHelper.getUserDao().getUser();
+        TrainingRepository.asLiveData(repository.getUser()).observe(this, user -> {
+            if (user != null) currentUser = user;
+        });
     }
     
     private void showWelcomeMessage() {
@@ -1,7 +1,7 @@
 package com.squashtrainingapp.ui.activities;
 
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.User;
 
 import android.os.Bundle;
@@ -60,11 +60,21 @@ public class ProfileActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_profile);
         
+        initializeViews();
+        loadUserData();
+        displayStats();
+        displayAchievements();
+        setupSettingsButton();
+        setupDeveloperMode();
+        
         // Load from database
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
-        User user = dbHelper.getUserDao().getUser();
+        TrainingRepository.getInstance(this).observeUser().observe(this, this::showUser);
+    }
+    
+    // Update UI with database values
+    private void showUser(User user) {
+        if (user == null) return;
         
-        // Update UI with database values
         userName = user.getName();
         userLevel = user.getLevel();
         currentExp = user.getExperience();
@@ -74,12 +84,8 @@ public class ProfileActivity extends AppCompatActivity {
         totalHours = Math.round(user.getTotalHours());
         currentStreak = user.getCurrentStreak();
         
-        initializeViews();
         loadUserData();
         displayStats();
-        displayAchievements();
-        setupSettingsButton();
-        setupDeveloperMode();
     }
     
     private void initializeViews() {
@@ -261,23 +267,9 @@ public class ProfileActivity extends AppCompatActivity {
         clearDataButton.setBackgroundTintList(getResources().getColorStateList(R.color.dark_surface));
         clearDataButton.setTextColor(getResources().getColor(R.color.text_primary));
         clearDataButton.setOnClickListener(v -> {
-            // Clear database
-            DatabaseHelper db = DatabaseHelper.getInstance(this);
-            db.clearAllData();
+            // Clear database; the observed user refreshes once the reset commits
+            TrainingRepository.getInstance(this).clearAllData();
             Toast.makeText(this, "All data cleared", Toast.LENGTH_SHORT).show();
-            
-            // Reload data
-            User user = db.getUserDao().getUser();
-            userName = user.getName();
-            userLevel = user.getLevel();
-            currentExp = user.getExperience();
-            totalSessions = user.getTotalSessions();
-            totalCalories = user.getTotalCalories();
-            totalHours = Math.round(user.getTotalHours());
-            currentStreak = user.getCurrentStreak();
-            
-            loadUserData();
-            displayStats();
         });
         developerOptionsLayout.addView(clearDataButton);
         
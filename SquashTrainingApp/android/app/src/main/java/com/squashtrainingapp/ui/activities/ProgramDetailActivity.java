@@ -8,14 +8,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
-import com.squashtrainingapp.database.dao.TrainingProgramDao;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.TrainingProgram;
 
 public class ProgramDetailActivity extends AppCompatActivity {
     
     private TrainingProgram program;
-    private TrainingProgramDao programDao;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,9 +45,12 @@ public class ProgramDetailActivity extends AppCompatActivity {
     }
     
     private void loadProgramDetails(long programId) {
-        programDao = new TrainingProgramDao(DatabaseHelper.getInstance(this));
-        program = programDao.getProgramById(programId);
-        
+        TrainingRepository.asLiveData(TrainingRepository.getInstance(this).getProgramById(programId))
+            .observe(this, this::onProgramLoaded);
+    }
+    
+    private void onProgramLoaded(TrainingProgram loaded) {
+        program = loaded;
         if (program != null) {
             displayProgramDetails();
         } else {
@@ -11,8 +11,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.tabs.TabLayout;
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
-import com.squashtrainingapp.database.dao.TrainingProgramDao;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.TrainingProgram;
 import com.squashtrainingapp.ui.adapters.ProgramAdapter;
 import java.util.ArrayList;
@@ -24,8 +23,9 @@ public class ProgramsActivity extends AppCompatActivity implements ProgramAdapte
     private RecyclerView programsRecyclerView;
     private TextView emptyStateText;
     private ProgramAdapter programAdapter;
-    private TrainingProgramDao programDao;
-    private DatabaseHelper dbHelper;
+    private TrainingRepository repository;
+    // Tab whose programs are wanted; results for other tabs are dropped
+    private String selectedType;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -70,14 +70,10 @@ public class ProgramsActivity extends AppCompatActivity implements ProgramAdapte
     }
     
     private void setupDatabase() {
-        dbHelper = DatabaseHelper.getInstance(this);
-        programDao = new TrainingProgramDao(dbHelper);
+        repository = TrainingRepository.getInstance(this);
         
-        // Insert default programs if database is empty
-        List<TrainingProgram> existingPrograms = programDao.getAllPrograms();
-        if (existingPrograms.isEmpty()) {
-            programDao.insertDefaultPrograms();
-        }
+        // Insert default programs if database is empty; reads queued after this see them
+        repository.getAllPrograms();
     }
     
     private void setupTabs() {
@@ -114,7 +110,13 @@ public class ProgramsActivity extends AppCompatActivity implements ProgramAdapte
     }
     
     private void loadPrograms(String type) {
-        List<TrainingProgram> programs = programDao.getProgramsByType(type);
+        selectedType = type;
+        TrainingRepository.asLiveData(repository.getProgramsByType(type))
+            .observe(this, programs -> showPrograms(type, programs));
+    }
+    
+    private void showPrograms(String type, List<TrainingProgram> programs) {
+        if (!type.equals(selectedType) || programs == null) return;
         
         if (programs.isEmpty()) {
             programsRecyclerView.setVisibility(View.GONE);
@@ -135,12 +137,4 @@ public class ProgramsActivity extends AppCompatActivity implements ProgramAdapte
         intent.putExtra("program_name", program.getName());
         startActivity(intent);
     }
-    
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (dbHelper != null) {
-            dbHelper.close();
-        }
-    }
 }
\ No newline at end of file
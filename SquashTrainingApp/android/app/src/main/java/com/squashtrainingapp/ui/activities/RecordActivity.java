@@ -1,7 +1,8 @@
 package com.squashtrainingapp.ui.activities;
 
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.analytics.TrainingLoad;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.Record;
 import com.squashtrainingapp.models.Exercise;
 
@@ -167,15 +168,14 @@ public class RecordActivity extends AppCompatActivity {
         int condition = conditionSlider.getProgress();
         int fatigue = fatigueSlider.getProgress();
         
-        // Save to database
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
+        // Save to database and update user stats
         Record record = new Record(exerciseName, sets, reps, duration, intensity, condition, fatigue, memo);
-        long recordId = dbHelper.getRecordDao().insert(record);
-        
-        // Update user stats
-        dbHelper.getUserDao().updateAfterWorkout(duration);
-        
-        if (recordId > 0) {
+        TrainingRepository.asLiveData(TrainingRepository.getInstance(this).saveWorkout(record))
+            .observe(this, this::onRecordSaved);
+    }
+    
+    private void onRecordSaved(Long recordId) {
+        if (recordId != null && recordId > 0) {
             Toast.makeText(this, "Workout saved successfully!", Toast.LENGTH_LONG).show();
             
             // Clear form
@@ -190,8 +190,19 @@ public class RecordActivity extends AppCompatActivity {
             
             // Go back to first tab
             tabHost.setCurrentTab(0);
+            
+            // The load model is updated with the record, so the check is a single-row read
+            TrainingRepository.asLiveData(TrainingRepository.getInstance(this).getTrainingLoad())
+                .observe(this, this::onTrainingLoadUpdated);
         } else {
             Toast.makeText(this, "Error saving workout", Toast.LENGTH_SHORT).show();
         }
     }
+    
+    private void onTrainingLoadUpdated(TrainingLoad load) {
+        if (load != null && load.getRisk() == TrainingLoad.Risk.HIGH) {
+            Toast.makeText(this, "Training load is high this week. Consider an easier session or a rest day.",
+                Toast.LENGTH_LONG).show();
+        }
+    }
 }
\ No newline at end of file
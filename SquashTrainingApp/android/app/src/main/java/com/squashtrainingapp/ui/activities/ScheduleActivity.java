@@ -9,9 +9,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
-import com.squashtrainingapp.database.dao.TrainingProgramDao;
-import com.squashtrainingapp.database.dao.WorkoutSessionDao;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.TrainingProgram;
 import com.squashtrainingapp.models.WorkoutSession;
 import com.squashtrainingapp.ui.adapters.ScheduleAdapter;
@@ -28,8 +26,7 @@ public class ScheduleActivity extends AppCompatActivity {
     private Button scheduleButton;
     private RecyclerView upcomingRecyclerView;
     
-    private WorkoutSessionDao sessionDao;
-    private TrainingProgramDao programDao;
+    private TrainingRepository repository;
     private ScheduleAdapter scheduleAdapter;
     
     private Calendar selectedDateTime = Calendar.getInstance();
@@ -73,13 +70,15 @@ public class ScheduleActivity extends AppCompatActivity {
     }
     
     private void initializeDatabase() {
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
-        sessionDao = new WorkoutSessionDao(dbHelper);
-        programDao = new TrainingProgramDao(dbHelper);
+        repository = TrainingRepository.getInstance(this);
     }
     
     private void loadPrograms() {
-        programs = programDao.getAllPrograms();
+        TrainingRepository.asLiveData(repository.getAllPrograms()).observe(this, this::showPrograms);
+    }
+    
+    private void showPrograms(List<TrainingProgram> loadedPrograms) {
+        programs = loadedPrograms != null ? new ArrayList<>(loadedPrograms) : new ArrayList<>();
         
         // Add "No Program" option
         TrainingProgram noProgram = new TrainingProgram();
@@ -118,9 +117,11 @@ public class ScheduleActivity extends AppCompatActivity {
     }
     
     private void loadUpcomingSessions() {
-        List<WorkoutSession> upcomingSessions = sessionDao.getUpcomingSessions();
-        scheduleAdapter = new ScheduleAdapter(upcomingSessions, this);
-        upcomingRecyclerView.setAdapter(scheduleAdapter);
+        TrainingRepository.asLiveData(repository.getUpcomingSessions()).observe(this, upcomingSessions -> {
+            if (upcomingSessions == null) return;
+            scheduleAdapter = new ScheduleAdapter(upcomingSessions, this);
+            upcomingRecyclerView.setAdapter(scheduleAdapter);
+        });
     }
     
     private void setupListeners() {
@@ -177,6 +178,10 @@ public class ScheduleActivity extends AppCompatActivity {
             Toast.makeText(this, "Please enter a session name", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (selectedProgram == null) {
+            // Programs are still loading
+            return;
+        }
         
         int duration = 60; // default
         if (!durationStr.isEmpty()) {
@@ -192,14 +197,17 @@ public class ScheduleActivity extends AppCompatActivity {
         WorkoutSession session = new WorkoutSession(
             selectedProgram.getId(),
             sessionName,
-            selectedDateTime.getTime(),
+            selectedDateTime.getTimeInMillis(),
             duration
         );
         
         // Save to database
-        long sessionId = sessionDao.insertSession(session);
-        
-        if (sessionId > 0) {
+        TrainingRepository.asLiveData(repository.insertSession(session))
+            .observe(this, this::onSessionSaved);
+    }
+    
+    private void onSessionSaved(Long sessionId) {
+        if (sessionId != null && sessionId > 0) {
             Toast.makeText(this, "Workout scheduled!", Toast.LENGTH_SHORT).show();
             
             // Clear form
@@ -1,6 +1,9 @@
 package com.squashtrainingapp.ui.activities;
 
+import android.content.ContentResolver;
+import android.content.Intent;
 import android.graphics.Color;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -9,6 +12,7 @@ import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.github.mikephil.charting.charts.BarChart;
@@ -20,8 +24,6 @@ import com.github.mikephil.charting.components.YAxis;
 import com.github.mikephil.charting.data.BarData;
 import com.github.mikephil.charting.data.BarDataSet;
 import com.github.mikephil.charting.data.BarEntry;
-import com.github.mikephil.charting.data.Entry;
-import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
@@ -31,21 +33,26 @@ import com.github.mikephil.charting.formatter.PercentFormatter;
 import com.github.mikephil.charting.utils.ColorTemplate;
 
 import com.squashtrainingapp.R;
-import com.squashtrainingapp.database.DatabaseHelper;
-import com.squashtrainingapp.models.Record;
-import com.squashtrainingapp.models.User;
+import com.squashtrainingapp.analytics.DailySeries;
+import com.squashtrainingapp.analytics.StatsSnapshot;
+import com.squashtrainingapp.database.DatabaseExecutor;
+import com.squashtrainingapp.database.DatabaseJob;
+import com.squashtrainingapp.database.TrainingRepository;
+import com.squashtrainingapp.database.export.RecordExporter;
+import com.squashtrainingapp.database.export.RecordImporter;
+import com.squashtrainingapp.models.StreakIndex;
+import com.squashtrainingapp.ui.charts.LineChartDownsampler;
+import com.squashtrainingapp.utils.EpochDay;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 public class StatsActivity extends AppCompatActivity {
     
@@ -60,11 +67,19 @@ public class StatsActivity extends AppCompatActivity {
     private LineChart progressChart;
     private BarChart weeklyChart;
     private PieChart categoryChart;
+    private LineChartDownsampler progressSampler;
     
     // Data
-    private DatabaseHelper databaseHelper;
-    private List<Record> records;
-    private User currentUser;
+    private TrainingRepository repository;
+    // Everything the cards and charts show for the selected range
+    private StatsSnapshot snapshot;
+    // Bumped per range change so results for an older range are dropped
+    private int loadGeneration;
+    private long rangeStartMillis;
+    private long rangeEndMillis;
+    // Running export or import, if any
+    private DatabaseJob<?> runningJob;
+    private AlertDialog jobDialog;
     
     // Time ranges
     private static final int RANGE_WEEK = 0;
@@ -74,14 +89,15 @@ public class StatsActivity extends AppCompatActivity {
     
     private int currentTimeRange = RANGE_MONTH;
     
+    private static final int REQUEST_IMPORT_FILE = 1;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_stats);
         
         // Initialize database
-        databaseHelper = DatabaseHelper.getInstance(this);
-        currentUser = databaseHelper.getUserDao().getUser();
+        repository = TrainingRepository.getInstance(this);
         
         // Initialize views
         initializeViews();
@@ -117,7 +133,7 @@ public class StatsActivity extends AppCompatActivity {
         // Export button
         View exportButton = findViewById(R.id.export_button);
         if (exportButton != null) {
-            exportButton.setOnClickListener(v -> exportDataToCSV());
+            exportButton.setOnClickListener(v -> exportData());
         }
     }
     
@@ -171,9 +187,23 @@ public class StatsActivity extends AppCompatActivity {
                 break;
         }
         
-        // Load records from database
-        records = databaseHelper.getRecordDao().getRecordsBetweenDates(
-            startDate.getTime(), endDate.getTime());
+        // Cards and charts come from one snapshot computed off the main thread from the
+        // daily_stats rollup; export loads full rows on demand
+        rangeStartMillis = startDate.getTime();
+        rangeEndMillis = endDate.getTime();
+        int startDay = EpochDay.fromMillis(rangeStartMillis);
+        int endDay = EpochDay.fromMillis(rangeEndMillis);
+        final int generation = ++loadGeneration;
+        repository.getStatsSnapshot(startDay, endDay)
+            .thenAcceptAsync(stats -> onRangeLoaded(generation, stats), DatabaseExecutor.mainThread());
+        // Streaks span all history, not just the selected range
+        repository.getStreakIndex()
+            .thenAcceptAsync(this::onStreaksLoaded, DatabaseExecutor.mainThread());
+    }
+    
+    private void onRangeLoaded(int generation, StatsSnapshot stats) {
+        if (generation != loadGeneration || isDestroyed()) return;
+        snapshot = stats;
         
         // Update UI
         updateStatsCards();
@@ -182,66 +212,22 @@ public class StatsActivity extends AppCompatActivity {
         updateCategoryChart();
     }
     
+    private void onStreaksLoaded(StreakIndex streaks) {
+        if (isDestroyed()) return;
+        bestStreakText.setText(streaks.bestStreak() + " days");
+    }
+    
     private void updateStatsCards() {
-        if (records == null || records.isEmpty()) {
+        if (snapshot.isEmpty()) {
             totalWorkoutsText.setText("0");
             totalHoursText.setText("0");
             avgDurationText.setText("0 min");
-            bestStreakText.setText("0 days");
             return;
         }
         
-        // Calculate stats
-        int totalWorkouts = records.size();
-        int totalMinutes = 0;
-        for (Record record : records) {
-            totalMinutes += record.getDuration();
-        }
-        
-        float totalHours = totalMinutes / 60f;
-        int avgMinutes = totalWorkouts > 0 ? totalMinutes / totalWorkouts : 0;
-        
-        // Update UI
-        totalWorkoutsText.setText(String.valueOf(totalWorkouts));
-        totalHoursText.setText(String.format(Locale.getDefault(), "%.1f", totalHours));
-        avgDurationText.setText(avgMinutes + " min");
-        
-        // Calculate streak (simplified)
-        int currentStreak = calculateCurrentStreak();
-        bestStreakText.setText(currentStreak + " days");
-    }
-    
-    private int calculateCurrentStreak() {
-        if (records.isEmpty()) return 0;
-        
-        // Sort records by date
-        records.sort((r1, r2) -> Long.compare(r2.getDateAsTimestamp(), r1.getDateAsTimestamp()));
-        
-        int streak = 0;
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(new Date());
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        
-        for (Record record : records) {
-            Calendar recordCal = Calendar.getInstance();
-            recordCal.setTimeInMillis(record.getDateAsTimestamp());
-            recordCal.set(Calendar.HOUR_OF_DAY, 0);
-            recordCal.set(Calendar.MINUTE, 0);
-            recordCal.set(Calendar.SECOND, 0);
-            recordCal.set(Calendar.MILLISECOND, 0);
-            
-            if (cal.getTimeInMillis() == recordCal.getTimeInMillis()) {
-                streak++;
-                cal.add(Calendar.DAY_OF_YEAR, -1);
-            } else {
-                break;
-            }
-        }
-        
-        return streak;
+        totalWorkoutsText.setText(String.valueOf(snapshot.getTotalSessions()));
+        totalHoursText.setText(String.format(Locale.getDefault(), "%.1f", snapshot.getTotalHours()));
+        avgDurationText.setText(snapshot.getAverageMinutes() + " min");
     }
     
     private void setupProgressChart() {
@@ -249,8 +235,11 @@ public class StatsActivity extends AppCompatActivity {
         progressChart.setDrawGridBackground(false);
         progressChart.setTouchEnabled(true);
         progressChart.setDragEnabled(true);
-        progressChart.setScaleEnabled(false);
+        // Horizontal zoom only; the downsampler re-samples the visible days as it changes
+        progressChart.setScaleXEnabled(true);
+        progressChart.setScaleYEnabled(false);
         progressChart.setPinchZoom(false);
+        progressSampler = LineChartDownsampler.attach(progressChart);
         
         // X axis
         XAxis xAxis = progressChart.getXAxis();
@@ -273,33 +262,24 @@ public class StatsActivity extends AppCompatActivity {
     }
     
     private void updateProgressChart() {
-        if (records.isEmpty()) {
-            progressChart.clear();
-            progressChart.invalidate();
+        if (snapshot.isEmpty()) {
+            progressSampler.clear();
             return;
         }
         
-        // Group records by date
-        Map<String, Integer> dailyMinutes = new HashMap<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("MM/dd", Locale.getDefault());
-        
-        for (Record record : records) {
-            String date = sdf.format(new Date(record.getDateAsTimestamp()));
-            dailyMinutes.put(date, dailyMinutes.getOrDefault(date, 0) + record.getDuration());
-        }
-        
-        // Create entries
-        List<Entry> entries = new ArrayList<>();
-        List<String> labels = new ArrayList<>(dailyMinutes.keySet());
-        labels.sort(String::compareTo);
-        
-        for (int i = 0; i < labels.size(); i++) {
-            String date = labels.get(i);
-            entries.add(new Entry(i, dailyMinutes.get(date)));
+        // One point per active day, already in chronological order; years of history are
+        // downsampled to about one point per two pixels before they reach the chart
+        DailySeries days = snapshot.getDailySeries();
+        int dayCount = days.size();
+        float[] x = new float[dayCount];
+        float[] y = new float[dayCount];
+        for (int i = 0; i < dayCount; i++) {
+            x[i] = i;
+            y[i] = days.minutes(i);
         }
         
         // Create dataset
-        LineDataSet dataSet = new LineDataSet(entries, getString(R.string.workout_minutes));
+        LineDataSet dataSet = new LineDataSet(new ArrayList<>(), getString(R.string.workout_minutes));
         dataSet.setColor(getResources().getColor(R.color.volt_green));
         dataSet.setCircleColor(getResources().getColor(R.color.volt_green));
         dataSet.setLineWidth(2f);
@@ -311,15 +291,12 @@ public class StatsActivity extends AppCompatActivity {
         dataSet.setFillColor(getResources().getColor(R.color.volt_green));
         dataSet.setFillAlpha(50);
         
-        // Set data
-        LineData lineData = new LineData(dataSet);
-        progressChart.setData(lineData);
-        
         // Set x-axis labels
-        progressChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(labels));
-        progressChart.getXAxis().setLabelCount(Math.min(labels.size(), 7));
+        progressChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(snapshot.getDayLabels()));
+        progressChart.getXAxis().setLabelCount(Math.min(dayCount, 7));
         
-        progressChart.invalidate();
+        // Set data
+        progressSampler.setSeries(dataSet, x, y, dayCount);
     }
     
     private void setupWeeklyChart() {
@@ -355,20 +332,10 @@ public class StatsActivity extends AppCompatActivity {
             getString(R.string.sat)
         };
         
-        // Initialize weekly data
-        int[] weeklyMinutes = new int[7];
-        Calendar cal = Calendar.getInstance();
-        
-        for (Record record : records) {
-            cal.setTimeInMillis(record.getDateAsTimestamp());
-            int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK) - 1; // 0-6
-            weeklyMinutes[dayOfWeek] += record.getDuration();
-        }
-        
         // Create entries
         List<BarEntry> entries = new ArrayList<>();
         for (int i = 0; i < 7; i++) {
-            entries.add(new BarEntry(i, weeklyMinutes[i]));
+            entries.add(new BarEntry(i, snapshot.getWeekdayMinutes(i)));
         }
         
         // Create dataset
@@ -412,26 +379,16 @@ public class StatsActivity extends AppCompatActivity {
     }
     
     private void updateCategoryChart() {
-        if (records.isEmpty()) {
+        if (snapshot.getCategoryCount() == 0) {
             categoryChart.clear();
             categoryChart.invalidate();
             return;
         }
         
-        // Count exercises by category
-        Map<String, Integer> categoryCount = new HashMap<>();
-        for (Record record : records) {
-            String category = record.getExerciseType();
-            if (category == null || category.isEmpty()) {
-                category = getString(R.string.other);
-            }
-            categoryCount.put(category, categoryCount.getOrDefault(category, 0) + 1);
-        }
-        
-        // Create entries
-        List<PieEntry> entries = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : categoryCount.entrySet()) {
-            entries.add(new PieEntry(entry.getValue(), entry.getKey()));
+        // Create entries from the per-category session counts, most frequent first
+        List<PieEntry> entries = new ArrayList<>(snapshot.getCategoryCount());
+        for (int i = 0; i < snapshot.getCategoryCount(); i++) {
+            entries.add(new PieEntry(snapshot.getCategorySessions(i), snapshot.getCategoryName(i)));
         }
         
         // Create dataset
@@ -465,99 +422,150 @@ public class StatsActivity extends AppCompatActivity {
         overridePendingTransition(R.anim.slide_in_left, R.anim.slide_out_right);
     }
     
-    private void exportDataToCSV() {
-        if (records == null || records.isEmpty()) {
+    private void exportData() {
+        if (runningJob != null) return;
+        
+        String[] options = {
+            getString(R.string.export_format_csv),
+            getString(R.string.export_format_csv_gzip),
+            getString(R.string.export_format_ndjson),
+            getString(R.string.import_history)
+        };
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.export_data)
+            .setItems(options, (dialog, which) -> {
+                switch (which) {
+                    case 0:
+                        startExport(new RecordExporter(RecordExporter.Format.CSV, false));
+                        break;
+                    case 1:
+                        startExport(new RecordExporter(RecordExporter.Format.CSV, true));
+                        break;
+                    case 2:
+                        startExport(new RecordExporter(RecordExporter.Format.NDJSON, true));
+                        break;
+                    default:
+                        pickImportFile();
+                        break;
+                }
+            })
+            .show();
+    }
+    
+    // Stream the selected range to a file on the job thread, with a cancellable progress dialog
+    private void startExport(RecordExporter exporter) {
+        if (snapshot == null || snapshot.isEmpty()) {
             Toast.makeText(this, getString(R.string.no_data_to_export), Toast.LENGTH_SHORT).show();
             return;
         }
         
-        try {
-            // Create export directory
-            File exportDir = new File(getExternalFilesDir(null), "exports");
-            if (!exportDir.exists()) {
-                exportDir.mkdirs();
-            }
-            
-            // Create CSV file with timestamp
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-            String fileName = "workout_data_" + dateFormat.format(new Date()) + ".csv";
-            File csvFile = new File(exportDir, fileName);
-            
-            // Write CSV data
-            FileWriter writer = new FileWriter(csvFile);
-            
-            // Write header
-            writer.append("Date,Exercise,Duration (min),Sets,Reps,Intensity,Condition,Fatigue,Category,Calories\n");
-            
-            // Write records
-            SimpleDateFormat recordDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            for (Record record : records) {
-                writer.append(recordDateFormat.format(new Date(record.getDateAsTimestamp()))).append(",");
-                writer.append(escapeCSV(record.getExerciseName())).append(",");
-                writer.append(String.valueOf(record.getDuration())).append(",");
-                writer.append(String.valueOf(record.getSets())).append(",");
-                writer.append(String.valueOf(record.getReps())).append(",");
-                writer.append(String.valueOf(record.getIntensity())).append(",");
-                writer.append(String.valueOf(record.getCondition())).append(",");
-                writer.append(String.valueOf(record.getFatigue())).append(",");
-                writer.append(escapeCSV(record.getExerciseType())).append(",");
-                writer.append(String.valueOf(record.getEstimatedCalories())).append("\n");
-            }
-            
-            // Write summary
-            writer.append("\n\nSummary\n");
-            writer.append("Total Workouts,").append(String.valueOf(records.size())).append("\n");
-            writer.append("Total Duration,").append(String.valueOf(getTotalDuration())).append(" min\n");
-            writer.append("Average Duration,").append(String.valueOf(getAverageDuration())).append(" min\n");
-            writer.append("Date Range,").append(getDateRangeString()).append("\n");
-            
-            writer.flush();
-            writer.close();
-            
+        File exportDir = new File(getExternalFilesDir(null), "exports");
+        if (!exportDir.exists()) {
+            exportDir.mkdirs();
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
+        File file = new File(exportDir, exporter.fileName("workout_data_" + dateFormat.format(new Date())));
+        
+        showJobDialog(R.string.exporting);
+        DatabaseJob<Integer> job = repository.exportRecords(file, exporter, rangeStartMillis, rangeEndMillis,
+            (done, total) -> updateJobDialog(getString(R.string.export_progress, done, total)));
+        runningJob = job;
+        job.getResult().whenCompleteAsync((rows, error) -> onExportFinished(file, error),
+            DatabaseExecutor.mainThread());
+    }
+    
+    private void onExportFinished(File file, Throwable error) {
+        if (!finishJob()) return;
+        
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause == null) {
             // Show success message with file path
-            String message = getString(R.string.data_exported_to) + "\n" + csvFile.getAbsolutePath();
+            String message = getString(R.string.data_exported_to) + "\n" + file.getAbsolutePath();
             Toast.makeText(this, message, Toast.LENGTH_LONG).show();
-            
-        } catch (IOException e) {
-            Toast.makeText(this, getString(R.string.export_failed) + ": " + e.getMessage(), 
+        } else if (cause instanceof CancellationException) {
+            Toast.makeText(this, getString(R.string.export_cancelled), Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, getString(R.string.export_failed) + ": " + cause.getMessage(),
                 Toast.LENGTH_LONG).show();
         }
     }
     
-    private String escapeCSV(String value) {
-        if (value == null) return "";
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
-        }
-        return value;
+    private void pickImportFile() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        startActivityForResult(intent, REQUEST_IMPORT_FILE);
     }
     
-    private int getTotalDuration() {
-        int total = 0;
-        for (Record record : records) {
-            total += record.getDuration();
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_IMPORT_FILE && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            startImport(data.getData());
         }
-        return total;
     }
     
-    private int getAverageDuration() {
-        if (records.isEmpty()) return 0;
-        return getTotalDuration() / records.size();
+    // Stream a CSV or NDJSON history file into the database in batches
+    private void startImport(Uri uri) {
+        if (runningJob != null) return;
+        
+        ContentResolver resolver = getApplicationContext().getContentResolver();
+        showJobDialog(R.string.importing);
+        DatabaseJob<RecordImporter.Result> job = repository.importRecords(new RecordImporter(),
+            () -> resolver.openInputStream(uri),
+            (done, total) -> updateJobDialog(getString(R.string.import_progress, done)));
+        runningJob = job;
+        job.getResult().whenCompleteAsync(this::onImportFinished, DatabaseExecutor.mainThread());
     }
     
-    private String getDateRangeString() {
-        if (records.isEmpty()) return "No data";
+    private void onImportFinished(RecordImporter.Result result, Throwable error) {
+        if (!finishJob()) return;
         
-        long minDate = Long.MAX_VALUE;
-        long maxDate = Long.MIN_VALUE;
-        
-        for (Record record : records) {
-            long timestamp = record.getDateAsTimestamp();
-            if (timestamp < minDate) minDate = timestamp;
-            if (timestamp > maxDate) maxDate = timestamp;
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause == null) {
+            Toast.makeText(this, getString(R.string.import_finished, result.getImported(), result.getSkipped(),
+                    result.getDuplicates()),
+                Toast.LENGTH_LONG).show();
+        } else if (!(cause instanceof CancellationException)) {
+            Toast.makeText(this, getString(R.string.import_failed) + ": " + cause.getMessage(),
+                Toast.LENGTH_LONG).show();
         }
-        
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        return sdf.format(new Date(minDate)) + " - " + sdf.format(new Date(maxDate));
+        // Batches saved before a cancel or failure stay, so refresh either way
+        loadDataForTimeRange(currentTimeRange);
+    }
+    
+    private void showJobDialog(int titleRes) {
+        jobDialog = new AlertDialog.Builder(this)
+            .setTitle(titleRes)
+            .setMessage(titleRes)
+            .setCancelable(false)
+            .setNegativeButton(R.string.cancel, (dialog, which) -> {
+                if (runningJob != null) runningJob.cancel();
+            })
+            .show();
+    }
+    
+    private void updateJobDialog(String message) {
+        if (jobDialog != null) {
+            jobDialog.setMessage(message);
+        }
+    }
+    
+    // Clear the finished job; returns false when the screen is gone and there is nothing to show
+    private boolean finishJob() {
+        runningJob = null;
+        if (jobDialog != null) {
+            jobDialog.dismiss();
+            jobDialog = null;
+        }
+        return !isFinishing() && !isDestroyed();
+    }
+    
+    @Override
+    protected void onDestroy() {
+        if (runningJob != null) {
+            runningJob.cancel();
+        }
+        super.onDestroy();
     }
 }
\ No newline at end of file
@@ -18,7 +18,7 @@ import com.squashtrainingapp.models.User;
 import com.squashtrainingapp.models.VideoTutorial;
 import com.squashtrainingapp.ui.adapters.VideoTutorialAdapter;
 import com.squashtrainingapp.video.YouTubeVideoManager;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -35,8 +35,7 @@ public class VideoTutorialsActivity extends AppCompatActivity implements
     private TextView titleText;
     private TextView emptyText;
     
-    private DatabaseHelper dbHelper;
-    private User currentUser;
+    private User currentUser = new User();
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -58,8 +57,13 @@ public class VideoTutorialsActivity extends AppCompatActivity implements
         
         // Initialize managers
         videoManager = new YouTubeVideoManager(this);
-        dbHelper = DatabaseHelper.getInstance(this);
-        currentUser = dbHelper.getUserDao().getUser();
+        // Recommendations use the default level until the user's own has loaded
+        TrainingRepository.asLiveData(TrainingRepository.getInstance(this).getUser())
+            .observe(this, user -> {
+                if (user == null) return;
+                currentUser = user;
+                filterVideos();
+            });
         
         // Setup RecyclerView
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
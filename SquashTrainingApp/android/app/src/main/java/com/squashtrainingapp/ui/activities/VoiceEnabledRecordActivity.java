@@ -4,7 +4,7 @@ import com.squashtrainingapp.R;
 import com.squashtrainingapp.ai.ExtendedVoiceCommands;
 import com.squashtrainingapp.ai.ImprovedVoiceRecognitionManager;
 import com.squashtrainingapp.ai.MultilingualVoiceProcessor;
-import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.TrainingRepository;
 import com.squashtrainingapp.models.Record;
 
 import android.Manifest;
@@ -396,15 +396,14 @@ public class VoiceEnabledRecordActivity extends AppCompatActivity {
         int condition = conditionSlider.getProgress();
         int fatigue = fatigueSlider.getProgress();
         
-        // Save to database
-        DatabaseHelper dbHelper = DatabaseHelper.getInstance(this);
+        // Save to database and update user stats
         Record record = new Record(exerciseName, sets, reps, duration, intensity, condition, fatigue, memo);
-        long recordId = dbHelper.getRecordDao().insert(record);
-        
-        // Update user stats
-        dbHelper.getUserDao().updateAfterWorkout(duration);
-        
-        if (recordId > 0) {
+        TrainingRepository.asLiveData(TrainingRepository.getInstance(this).saveWorkout(record))
+            .observe(this, this::onRecordSaved);
+    }
+    
+    private void onRecordSaved(Long recordId) {
+        if (recordId != null && recordId > 0) {
             voiceManager.speak("운동이 성공적으로 저장되었습니다!");
             Toast.makeText(this, "운동이 저장되었습니다!", Toast.LENGTH_LONG).show();
             
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.squashtrainingapp.R;
 import com.squashtrainingapp.models.WorkoutSession;
 import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -39,8 +40,9 @@ public class ScheduleAdapter extends RecyclerView.Adapter<ScheduleAdapter.ViewHo
         WorkoutSession session = sessions.get(position);
         
         holder.sessionName.setText(session.getSessionName());
-        holder.dateText.setText(dateFormat.format(session.getScheduledDate()));
-        holder.timeText.setText(timeFormat.format(session.getScheduledDate()));
+        Date scheduled = new Date(session.getScheduledDate());
+        holder.dateText.setText(dateFormat.format(scheduled));
+        holder.timeText.setText(timeFormat.format(scheduled));
         holder.durationText.setText(session.getDurationMinutes() + " MIN");
         
         // Set status color
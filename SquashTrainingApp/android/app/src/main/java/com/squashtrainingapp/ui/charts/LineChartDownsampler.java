@@ -0,0 +1,148 @@
+package com.squashtrainingapp.ui.charts;
+
+import android.view.MotionEvent;
+
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+import com.squashtrainingapp.utils.Downsampler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a LineChart showing at most about one point per {@link #PIXELS_PER_POINT} pixels of
+ * screen width, however long the series behind it. The full series is held as primitive arrays;
+ * the chart only receives an LTTB sample of it. After a zoom or drag the visible window, padded
+ * by its own width on each side so short flings land on data, is sampled again at full detail.
+ */
+public final class LineChartDownsampler implements OnChartGestureListener {
+    private static final int PIXELS_PER_POINT = 2;
+    // Redraw the sample once the zoom level drifts this far from the sampled one
+    private static final float ZOOM_TOLERANCE = 0.1f;
+
+    private final LineChart chart;
+    private final int maxPoints;
+
+    private LineDataSet dataSet;
+    private float[] x;
+    private float[] y;
+    private int size;
+
+    // x range and visible width the current sample was taken for
+    private float sampledLow;
+    private float sampledHigh;
+    private float sampledWidth;
+
+    private LineChartDownsampler(LineChart chart) {
+        this.chart = chart;
+        this.maxPoints = Math.max(16, chart.getResources().getDisplayMetrics().widthPixels / PIXELS_PER_POINT);
+    }
+
+    // Take over the chart's gesture listener to re-sample on zoom and drag
+    public static LineChartDownsampler attach(LineChart chart) {
+        LineChartDownsampler downsampler = new LineChartDownsampler(chart);
+        chart.setOnChartGestureListener(downsampler);
+        return downsampler;
+    }
+
+    // Show the series through the styled data set, whose own entries are replaced. x must be
+    // ascending; the arrays are kept, not copied, and must not change afterwards.
+    public void setSeries(LineDataSet dataSet, float[] x, float[] y, int size) {
+        this.dataSet = dataSet;
+        this.x = x;
+        this.y = y;
+        this.size = size;
+
+        // Pin the axis to the whole series so a zoomed-in sample does not shrink it
+        chart.getXAxis().setAxisMinimum(size > 0 ? x[0] : 0f);
+        chart.getXAxis().setAxisMaximum(size > 0 ? x[size - 1] : 0f);
+        chart.fitScreen();
+
+        sample(0, size, maxPoints);
+        sampledWidth = sampledHigh - sampledLow;
+        chart.setData(new LineData(dataSet));
+        chart.invalidate();
+    }
+
+    public void clear() {
+        dataSet = null;
+        x = null;
+        y = null;
+        size = 0;
+        chart.getXAxis().resetAxisMinimum();
+        chart.getXAxis().resetAxisMaximum();
+        chart.clear();
+        chart.invalidate();
+    }
+
+    private void resample() {
+        if (dataSet == null || size == 0) return;
+
+        float low = chart.getLowestVisibleX();
+        float high = chart.getHighestVisibleX();
+        float width = high - low;
+        if (low >= sampledLow && high <= sampledHigh &&
+                Math.abs(width - sampledWidth) <= sampledWidth * ZOOM_TOLERANCE) {
+            return;
+        }
+
+        // One extra point past each edge so the line runs off the chart instead of stopping short
+        int from = Math.max(Downsampler.lowerBound(x, size, low - width) - 1, 0);
+        int to = Math.min(Downsampler.lowerBound(x, size, high + width) + 1, size);
+        float span = x[to - 1] - x[from];
+        int threshold = width > 0 ? (int) Math.min(maxPoints * (span / width), Integer.MAX_VALUE) : maxPoints;
+        sample(from, to, Math.max(threshold, maxPoints));
+        sampledWidth = width;
+
+        chart.getData().notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    private void sample(int from, int to, int threshold) {
+        int[] picked = Downsampler.lttb(x, y, from, to, threshold);
+        List<Entry> entries = new ArrayList<>(picked.length);
+        for (int index : picked) {
+            entries.add(new Entry(x[index], y[index]));
+        }
+        dataSet.setValues(entries);
+        sampledLow = to > from ? x[from] : 0f;
+        sampledHigh = to > from ? x[to - 1] : 0f;
+    }
+
+    @Override
+    public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+        resample();
+    }
+
+    @Override
+    public void onChartTranslate(MotionEvent me, float dX, float dY) {
+        resample();
+    }
+
+    @Override
+    public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+        resample();
+    }
+
+    @Override
+    public void onChartDoubleTapped(MotionEvent me) {
+        resample();
+    }
+
+    @Override
+    public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {}
+
+    @Override
+    public void onChartLongPressed(MotionEvent me) {}
+
+    @Override
+    public void onChartSingleTapped(MotionEvent me) {}
+
+    @Override
+    public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {}
+}
@@ -0,0 +1,87 @@
+package com.squashtrainingapp.utils;
+
+/**
+ * Picks a subset of a line's points that keeps its visual shape, using Largest-Triangle-Three-
+ * Buckets (Steinarsson, 2013). The first and last points are always kept; every bucket in
+ * between contributes the point forming the largest triangle with the previous pick and the
+ * next bucket's average, so peaks and dips survive where plain striding would drop them.
+ */
+public final class Downsampler {
+
+    private Downsampler() {}
+
+    // Indices of at most threshold points from x[from..to), in order. x must be ascending.
+    public static int[] lttb(float[] x, float[] y, int from, int to, int threshold) {
+        int count = to - from;
+        if (count <= 0) return new int[0];
+        if (threshold >= count || threshold < 3) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+
+        int[] picked = new int[threshold];
+        int size = 0;
+        picked[size++] = from;
+
+        // Inner points split into threshold - 2 buckets
+        double every = (double) (count - 2) / (threshold - 2);
+        int previous = from;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = from + (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * every) + 1, to);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                averageX /= nextCount;
+                averageY /= nextCount;
+            } else {
+                averageX = x[to - 1];
+                averageY = y[to - 1];
+            }
+
+            int start = from + (int) (bucket * every) + 1;
+            int end = from + (int) ((bucket + 1) * every) + 1;
+            double previousX = x[previous];
+            double previousY = y[previous];
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle's area; only the comparison matters
+                double area = Math.abs((previousX - averageX) * (y[i] - previousY) -
+                        (previousX - x[i]) * (averageY - previousY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            picked[size++] = best;
+            previous = best;
+        }
+
+        picked[size++] = to - 1;
+        return picked;
+    }
+
+    // First index in x[0..size) whose value is at least the key; size when none is
+    public static int lowerBound(float[] x, int size, float key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,61 @@
+package com.squashtrainingapp.utils;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local calendar days counted from 1970-01-01, used as compact integer keys for per-day data.
+ */
+public final class EpochDay {
+    public static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private EpochDay() {}
+
+    // Local epoch day containing the given instant
+    public static int fromMillis(long millis) {
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        return (int) Math.floorDiv(local, MILLIS_PER_DAY);
+    }
+
+    // Day of the calendar date; month is 1-12 (Howard Hinnant's days_from_civil)
+    public static int of(int year, int month, int dayOfMonth) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Calendar date of the day packed as yyyymmdd, e.g. 20240131 (Howard Hinnant's civil_from_days)
+    public static int toYearMonthDay(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    public static int today() {
+        return fromMillis(System.currentTimeMillis());
+    }
+
+    // Instant of local midnight at the start of the given day
+    public static long toStartMillis(int epochDay) {
+        TimeZone timeZone = TimeZone.getDefault();
+        long localMidnight = epochDay * MILLIS_PER_DAY;
+        long guess = localMidnight - timeZone.getOffset(localMidnight);
+        return localMidnight - timeZone.getOffset(guess);
+    }
+
+    // 0 = Sunday ... 6 = Saturday, matching Calendar.DAY_OF_WEEK - 1
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01 was a Thursday
+        return Math.floorMod(epochDay + 4, 7);
+    }
+}
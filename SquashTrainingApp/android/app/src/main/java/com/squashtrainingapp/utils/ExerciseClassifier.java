@@ -0,0 +1,186 @@
+package com.squashtrainingapp.utils;
+
+import com.squashtrainingapp.ai.MultilingualVoiceProcessor;
+import com.squashtrainingapp.models.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps exercise names to categories. Every keyword is compiled into one Aho-Corasick automaton, so
+ * a name is classified in a single pass over its characters, case-insensitively and without
+ * allocating, however many keywords there are. When keywords of several categories occur, the
+ * category listed first wins.
+ *
+ * The result is stored in the records category column at insert time and kept when a row is
+ * archived; classify directly only for names that were never saved that way.
+ */
+public final class ExerciseClassifier {
+    // Categories and the name keywords that identify them, in priority order
+    private static final String[][] KEYWORDS = {
+        {"Drives", "drive", "straight", "드라이브", "스트레이트"},
+        {"Drop Shots", "drop", "short", "드롭"},
+        {"Volleys", "volley", "발리"},
+        {"Serves", "serve", "service", "서브", "서비스"},
+        {"Boasts", "boast", "angle", "보스트"},
+        {"Drills", "drill", "practice", "드릴", "연습"},
+        {"Matches", "match", "game", "경기", "게임", "매치"}
+    };
+
+    private static final List<String> CATEGORIES;
+    private static final Automaton AUTOMATON;
+
+    static {
+        List<String> categories = new ArrayList<>();
+        List<List<String>> keywords = new ArrayList<>();
+        for (String[] type : KEYWORDS) {
+            categories.add(type[0]);
+            keywords.add(new ArrayList<>(Arrays.asList(type).subList(1, type.length)));
+        }
+
+        // Korean terms the voice processor translates to one of our English keywords
+        Automaton english = buildAutomaton(keywords);
+        for (Map.Entry<String, String> term : MultilingualVoiceProcessor.getExerciseTermMapping().entrySet()) {
+            int category = categories.indexOf(classifyWith(english, categories, term.getValue()));
+            if (category >= 0 && !keywords.get(category).contains(term.getKey())) {
+                keywords.get(category).add(term.getKey());
+            }
+        }
+
+        CATEGORIES = Collections.unmodifiableList(categories);
+        AUTOMATON = buildAutomaton(keywords);
+    }
+
+    private ExerciseClassifier() {}
+
+    // Record.TYPE_OTHER for a missing name, Record.TYPE_GENERAL when no keyword matches
+    public static String classify(CharSequence exerciseName) {
+        return classifyWith(AUTOMATON, CATEGORIES, exerciseName);
+    }
+
+    // Keyword categories in priority order; General and Other are not included
+    public static List<String> categories() {
+        return CATEGORIES;
+    }
+
+    public static boolean isCategory(String category) {
+        return CATEGORIES.contains(category) || Record.TYPE_GENERAL.equals(category) ||
+                Record.TYPE_OTHER.equals(category);
+    }
+
+    private static String classifyWith(Automaton automaton, List<String> categories, CharSequence name) {
+        if (name == null) return Record.TYPE_OTHER;
+        int category = automaton.firstCategory(name);
+        return category < 0 ? Record.TYPE_GENERAL : categories.get(category);
+    }
+
+    private static Automaton buildAutomaton(List<List<String>> keywords) {
+        // Trie with per-node transitions kept sorted by character
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(Integer.MAX_VALUE);
+        for (int category = 0; category < keywords.size(); category++) {
+            for (String keyword : keywords.get(category)) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Integer next = trie.get(state).get(c);
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new TreeMap<>());
+                        outputs.add(Integer.MAX_VALUE);
+                        trie.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                outputs.set(state, Math.min(outputs.get(state), category));
+            }
+        }
+
+        int size = trie.size();
+        char[][] labels = new char[size][];
+        int[][] targets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            labels[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                labels[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first failure links; each state's best category also covers its suffixes
+        int[] fail = new int[size];
+        int[] best = new int[size];
+        best[0] = outputs.get(0);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            best[child] = outputs.get(child);
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                while (f != 0 && Automaton.next(labels, targets, f, c) < 0) {
+                    f = fail[f];
+                }
+                int next = Automaton.next(labels, targets, f, c);
+                fail[child] = next < 0 ? 0 : next;
+                best[child] = Math.min(outputs.get(child), best[fail[child]]);
+                queue[tail++] = child;
+            }
+        }
+        return new Automaton(labels, targets, fail, best);
+    }
+
+    private static final class Automaton {
+        private final char[][] labels;
+        private final int[][] targets;
+        private final int[] fail;
+        // Lowest category index matched on reaching the state, or Integer.MAX_VALUE
+        private final int[] best;
+
+        Automaton(char[][] labels, int[][] targets, int[] fail, int[] best) {
+            this.labels = labels;
+            this.targets = targets;
+            this.fail = fail;
+            this.best = best;
+        }
+
+        // Index of the highest-priority category with a keyword in the text, or -1
+        int firstCategory(CharSequence text) {
+            int result = Integer.MAX_VALUE;
+            int state = 0;
+            for (int i = 0; i < text.length() && result > 0; i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                int next = next(labels, targets, state, c);
+                while (next < 0 && state != 0) {
+                    state = fail[state];
+                    next = next(labels, targets, state, c);
+                }
+                state = next < 0 ? 0 : next;
+                result = Math.min(result, best[state]);
+            }
+            return result == Integer.MAX_VALUE ? -1 : result;
+        }
+
+        static int next(char[][] labels, int[][] targets, int state, char c) {
+            int index = Arrays.binarySearch(labels[state], c);
+            return index < 0 ? -1 : targets[state][index];
+        }
+    }
+}
@@ -9,6 +9,9 @@ import android.graphics.Bitmap;
 import android.util.Log;
 import android.util.LruCache;
 
+import com.squashtrainingapp.database.DatabaseHelper;
+import com.squashtrainingapp.database.QueryCache;
+
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -24,6 +27,7 @@ public class MemoryManager implements ComponentCallbacks2 {
     private final Context applicationContext;
     private final List<WeakReference<Activity>> activityReferences;
     private final BitmapCache bitmapCache;
+    private final QueryCache queryCache;
     
     // Memory thresholds
     private static final int LOW_MEMORY_THRESHOLD_MB = 50;
@@ -37,6 +41,7 @@ public class MemoryManager implements ComponentCallbacks2 {
         final int maxMemory = (int) (Runtime.getRuntime().maxMemory() / 1024);
         final int cacheSize = maxMemory / 8;
         this.bitmapCache = new BitmapCache(cacheSize);
+        this.queryCache = DatabaseHelper.getInstance(context).getQueryCache();
         
         // Register for memory callbacks
         context.registerComponentCallbacks(this);
@@ -134,8 +139,9 @@ public class MemoryManager implements ComponentCallbacks2 {
     public void performMemoryCleanup() {
         Log.d(TAG, "Performing memory cleanup...");
         
-        // Clear bitmap cache
+        // Clear bitmap and query caches
         bitmapCache.evictAll();
+        queryCache.trimToSize(0);
         
         // Request garbage collection
         System.gc();
@@ -177,12 +183,14 @@ public class MemoryManager implements ComponentCallbacks2 {
             case TRIM_MEMORY_UI_HIDDEN:
                 // App UI is hidden, reduce memory usage
                 bitmapCache.trimToSize(bitmapCache.maxSize() / 2);
+                queryCache.trimToSize(queryCache.maxSize() / 2);
                 break;
                 
             case TRIM_MEMORY_RUNNING_MODERATE:
             case TRIM_MEMORY_RUNNING_LOW:
                 // Running low on memory
                 bitmapCache.trimToSize(bitmapCache.maxSize() / 4);
+                queryCache.trimToSize(queryCache.maxSize() / 4);
                 break;
                 
             case TRIM_MEMORY_RUNNING_CRITICAL:
@@ -195,6 +203,8 @@ public class MemoryManager implements ComponentCallbacks2 {
             case TRIM_MEMORY_COMPLETE:
                 // App in background, clear caches
                 bitmapCache.evictAll();
+                queryCache.trimToSize(0);
+                Log.d(TAG, "Query cache cleared: " + queryCache);
                 break;
         }
     }
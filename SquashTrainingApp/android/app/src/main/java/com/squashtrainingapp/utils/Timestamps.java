@@ -0,0 +1,123 @@
+package com.squashtrainingapp.utils;
+
+import java.util.TimeZone;
+
+/**
+ * Parses and formats "yyyy-MM-dd HH:mm:ss" text without SimpleDateFormat. Parsing reads the
+ * digits in place and keeps no state, so it is safe from any thread; given a zone the caller
+ * already holds it allocates nothing, cheap enough to run once per row while decoding a cursor.
+ * A 'T' separator, missing seconds and a bare date (midnight) are accepted.
+ */
+public final class Timestamps {
+    // Returned by the parsers for text they cannot read
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    private Timestamps() {}
+
+    // Instant of the wall-clock time in the given zone, or INVALID
+    public static long parse(CharSequence text, TimeZone zone) {
+        long wallClock = parseWallClock(text);
+        return wallClock == INVALID ? INVALID : toInstant(wallClock, zone);
+    }
+
+    // Text in the device's zone; looks the zone up per call, so hoist it out of loops
+    public static long parseLocal(CharSequence text) {
+        return parse(text, TimeZone.getDefault());
+    }
+
+    // Text in UTC, as SQLite writes for CURRENT_TIMESTAMP
+    public static long parseUtc(CharSequence text) {
+        return parseWallClock(text);
+    }
+
+    // Local "yyyy-MM-dd HH:mm:ss" for the instant
+    public static String format(long millis, TimeZone zone) {
+        long wallClock = millis + zone.getOffset(millis);
+        int epochDay = (int) Math.floorDiv(wallClock, EpochDay.MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(wallClock, EpochDay.MILLIS_PER_DAY) / MILLIS_PER_SECOND);
+
+        int date = EpochDay.toYearMonthDay(epochDay);
+        char[] out = new char[19];
+        put(out, 0, date / 10000, 4);
+        out[4] = '-';
+        put(out, 5, date / 100 % 100, 2);
+        out[7] = '-';
+        put(out, 8, date % 100, 2);
+        out[10] = ' ';
+        put(out, 11, secondOfDay / 3600, 2);
+        out[13] = ':';
+        put(out, 14, secondOfDay / 60 % 60, 2);
+        out[16] = ':';
+        put(out, 17, secondOfDay % 60, 2);
+        return new String(out);
+    }
+
+    public static String formatLocal(long millis) {
+        return format(millis, TimeZone.getDefault());
+    }
+
+    // Wall-clock fields read as if they were UTC, or INVALID
+    private static long parseWallClock(CharSequence text) {
+        if (text == null) return INVALID;
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        int length = end - start;
+        if (length != 10 && length != 16 && length != 19) return INVALID;
+        if (text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-') return INVALID;
+        if (length > 10 && ((text.charAt(start + 10) != ' ' && text.charAt(start + 10) != 'T') ||
+                text.charAt(start + 13) != ':' || (length == 19 && text.charAt(start + 16) != ':'))) {
+            return INVALID;
+        }
+
+        int year = digits(text, start, 4);
+        int month = digits(text, start + 5, 2);
+        int day = digits(text, start + 8, 2);
+        int hour = length > 10 ? digits(text, start + 11, 2) : 0;
+        int minute = length > 10 ? digits(text, start + 14, 2) : 0;
+        int second = length == 19 ? digits(text, start + 17, 2) : 0;
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) ||
+                hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+
+        long seconds = hour * 3600L + minute * 60L + second;
+        return EpochDay.of(year, month, day) * EpochDay.MILLIS_PER_DAY + seconds * MILLIS_PER_SECOND;
+    }
+
+    // Same two-step offset lookup as EpochDay.toStartMillis, so DST edges resolve the same way
+    private static long toInstant(long wallClock, TimeZone zone) {
+        long guess = wallClock - zone.getOffset(wallClock);
+        return wallClock - zone.getOffset(guess);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Non-negative number from a fixed run of ASCII digits, or -1
+    private static int digits(CharSequence text, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static void put(char[] out, int start, int value, int width) {
+        for (int i = start + width - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}